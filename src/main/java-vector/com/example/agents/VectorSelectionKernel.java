@@ -0,0 +1,89 @@
+package com.example.agents;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link SelectionKernel} that compares a full SIMD register of rows per step with the
+ * {@code jdk.incubator.vector} API. Only compiled by the {@code vector} Maven profile and only
+ * instantiated by {@link SelectionKernel#create()} when the incubator module is present.
+ *
+ * Heap buffers are loaded straight from their backing arrays. Buffers over a mapped catalog file
+ * have no array, so each block of rows is read into a register-sized scratch array first.
+ * The average MPG is taken with a shift, which equals the scalar division for non-negative MPG.
+ */
+class VectorSelectionKernel implements SelectionKernel {
+
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    // Same lane count as DOUBLES, so that masks of both species line up row by row
+    private static final VectorSpecies<Integer> INTS =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+
+    @Override
+    public void select(
+            DoubleBuffer prices,
+            IntBuffer mpgCity,
+            IntBuffer mpgHighway,
+            int[] fuelIds,
+            int rows,
+            double minPrice,
+            double maxPrice,
+            int minMpg,
+            int fuelId,
+            long[] mask) {
+        int lanes = DOUBLES.length();
+        int bound = DOUBLES.loopBound(rows);
+        double[] priceBlock = prices.hasArray() ? null : new double[lanes];
+        int[] cityBlock = mpgCity.hasArray() ? null : new int[lanes];
+        int[] highwayBlock = mpgHighway.hasArray() ? null : new int[lanes];
+        int row = 0;
+        for (; row < bound; row += lanes) {
+            DoubleVector price = load(prices, priceBlock, row);
+            VectorMask<Double> selected =
+                    price.compare(VectorOperators.GE, minPrice).and(price.compare(VectorOperators.LE, maxPrice));
+
+            VectorMask<Integer> intSelected = load(mpgCity, cityBlock, row)
+                    .add(load(mpgHighway, highwayBlock, row))
+                    .lanewise(VectorOperators.ASHR, 1)
+                    .compare(VectorOperators.GE, minMpg);
+            if (fuelId != ANY_FUEL) {
+                intSelected =
+                        intSelected.and(IntVector.fromArray(INTS, fuelIds, row).compare(VectorOperators.EQ, fuelId));
+            }
+            selected = selected.and(intSelected.cast(DOUBLES));
+
+            // Lane counts are powers of two up to 64, so a block never straddles two mask words
+            mask[row >>> 6] |= selected.toLong() << (row & 63);
+        }
+        ScalarSelectionKernel.selectRange(
+                prices, mpgCity, mpgHighway, fuelIds, row, rows, minPrice, maxPrice, minMpg, fuelId, mask);
+    }
+
+    private static DoubleVector load(DoubleBuffer values, double[] block, int row) {
+        if (block == null) {
+            return DoubleVector.fromArray(DOUBLES, values.array(), values.arrayOffset() + row);
+        }
+        values.get(row, block);
+        return DoubleVector.fromArray(DOUBLES, block, 0);
+    }
+
+    private static IntVector load(IntBuffer values, int[] block, int row) {
+        if (block == null) {
+            return IntVector.fromArray(INTS, values.array(), values.arrayOffset() + row);
+        }
+        values.get(row, block);
+        return IntVector.fromArray(INTS, block, 0);
+    }
+
+    @Override
+    public String name() {
+        return "vector-" + DOUBLES.length() + "x" + DOUBLES.elementSize();
+    }
+}
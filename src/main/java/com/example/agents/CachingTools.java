@@ -0,0 +1,376 @@
+package com.example.agents;
+
+import static com.example.agents.CommonRequirements.*;
+
+import com.example.llmtoolkit.util.Env;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import java.lang.reflect.RecordComponent;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Memoizing {@link Tools} decorator for the tools that are pure functions of their arguments and the
+ * catalog: financing, financing comparison and grid, amortization schedules, total cost of
+ * ownership, vehicle comparison, safety ratings and trade-in value. All other calls go straight to the delegate.
+ *
+ * Results live in a Caffeine cache bounded by their estimated retained size; its W-TinyLFU admission
+ * keeps the calls repeated across conversations and evicts one-off calls first. Keys carry the
+ * catalog version, and the cache is cleared the first time a newer catalog is seen. Arguments are
+ * normalized only where the delegate ignores the difference, such as the case of the credit score.
+ * Cached results are shared between callers, so their lists are stored as immutable copies, and the
+ * arrays of an amortization schedule are copied for every caller.
+ */
+public class CachingTools implements Tools {
+
+    public static final String MAX_BYTES_VARIABLE = "GM_TOOL_CACHE_MAX_BYTES";
+    private static final long DEFAULT_MAX_BYTES = 16L << 20;
+
+    private static final CachingTools SHARED = new CachingTools(new ToolsImpl(), maxBytesFromEnv());
+
+    private record CallKey(long catalogVersion, String tool, List<Object> arguments) {}
+
+    private final Tools delegate;
+    private final Cache<CallKey, Object> cache;
+    private final AtomicLong catalogVersion = new AtomicLong(-1);
+
+    public CachingTools(Tools delegate, long maximumBytes) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumBytes)
+                .weigher((CallKey key, Object value) ->
+                        (int) Math.min(Integer.MAX_VALUE, estimateBytes(key) + estimateBytes(value)))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Process-wide instance over {@link ToolsImpl}, shared by all agents and conversations
+     */
+    public static CachingTools shared() {
+        return SHARED;
+    }
+
+    public long hitCount() {
+        return cache.stats().hitCount();
+    }
+
+    public long missCount() {
+        return cache.stats().missCount();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cached(String tool, Supplier<T> call, Object... arguments) {
+        long version = VehicleCatalog.current().version();
+        if (catalogVersion.getAndAccumulate(version, Math::max) < version) {
+            cache.invalidateAll();
+        }
+        return (T) cache.get(new CallKey(version, tool, Arrays.asList(arguments)), key -> call.get());
+    }
+
+    // Cached tools
+
+    @Override
+    public VehicleComparison compareVehicles(List<String> vehicleIds) {
+        List<String> ids = vehicleIds == null ? null : new ArrayList<>(vehicleIds);
+        return cached("compareVehicles", () -> immutable(delegate.compareVehicles(ids)), ids);
+    }
+
+    @Override
+    public FinancingOption calculateFinancing(
+            String vehicleId, double downPayment, int termMonths, String creditScore) {
+        return cached(
+                "calculateFinancing",
+                () -> delegate.calculateFinancing(vehicleId, downPayment, termMonths, creditScore),
+                vehicleId,
+                downPayment,
+                termMonths,
+                lowerCase(creditScore));
+    }
+
+    @Override
+    public TotalCostOfOwnership calculateTotalCostOfOwnership(String vehicleId, int years) {
+        return cached(
+                "calculateTotalCostOfOwnership",
+                () -> delegate.calculateTotalCostOfOwnership(vehicleId, years),
+                vehicleId,
+                years);
+    }
+
+    @Override
+    public SafetyRatings checkSafetyRatings(String vehicleId) {
+        return cached("checkSafetyRatings", () -> immutable(delegate.checkSafetyRatings(vehicleId)), vehicleId);
+    }
+
+    @Override
+    public List<FinancingOption> compareFinancingOptions(String vehicleId, String creditScore) {
+        return cached(
+                "compareFinancingOptions",
+                () -> immutable(delegate.compareFinancingOptions(vehicleId, creditScore)),
+                vehicleId,
+                lowerCase(creditScore));
+    }
+
+    @Override
+    public FinancingGrid calculateFinancingGrid(String vehicleId, List<Double> downPayments, String creditScore) {
+        List<Double> downs = downPayments == null ? null : new ArrayList<>(downPayments);
+        return cached(
+                "calculateFinancingGrid",
+                () -> immutable(delegate.calculateFinancingGrid(vehicleId, downs, creditScore)),
+                vehicleId,
+                downs,
+                lowerCase(creditScore));
+    }
+
+    @Override
+    public AmortizationSchedule calculateAmortizationSchedule(
+            String vehicleId, double downPayment, int termMonths, String creditScore) {
+        // Stored as a private copy and handed out as fresh copies, arrays cannot be made read-only
+        return copy(cached(
+                "calculateAmortizationSchedule",
+                () -> copy(delegate.calculateAmortizationSchedule(vehicleId, downPayment, termMonths, creditScore)),
+                vehicleId,
+                downPayment,
+                termMonths,
+                lowerCase(creditScore)));
+    }
+
+    @Override
+    public TradeInValue calculateTradeInValue(VehicleTradeIn tradeIn) {
+        return cached("calculateTradeInValue", () -> immutable(delegate.calculateTradeInValue(tradeIn)), tradeIn);
+    }
+
+    // Delegated tools
+
+    @Override
+    public List<VehicleInfo> searchVehicleInventory(SearchCriteria criteria) {
+        return delegate.searchVehicleInventory(criteria);
+    }
+
+    @Override
+    public VehicleInfo getVehicleDetails(String vehicleId) {
+        return delegate.getVehicleDetails(vehicleId);
+    }
+
+    @Override
+    public List<VehicleInfo> searchVehiclesByMake(VehicleMake make) {
+        return delegate.searchVehiclesByMake(make);
+    }
+
+    @Override
+    public VehicleInfo getVehicleByMakeAndModel(String make, String model) {
+        return delegate.getVehicleByMakeAndModel(make, model);
+    }
+
+    @Override
+    public List<VehicleInfo> getVehicles(Collection<String> vehicleIds) {
+        return delegate.getVehicles(vehicleIds);
+    }
+
+    @Override
+    public List<VehicleAvailability> checkAvailability(String vehicleId, String zipCode) {
+        return delegate.checkAvailability(vehicleId, zipCode);
+    }
+
+    @Override
+    public TestDriveAppointment scheduleTestDrive(
+            String vehicleId, String dealerId, LocalDateTime dateTime, String customerName, String customerPhone) {
+        return delegate.scheduleTestDrive(vehicleId, dealerId, dateTime, customerName, customerPhone);
+    }
+
+    @Override
+    public CustomerProfile analyzeCustomerNeeds(int familySize, String primaryUsage, List<String> preferences) {
+        return delegate.analyzeCustomerNeeds(familySize, primaryUsage, preferences);
+    }
+
+    @Override
+    public CustomerProfile buildCustomerProfile(CustomerRequirements requirements) {
+        return delegate.buildCustomerProfile(requirements);
+    }
+
+    @Override
+    public List<VehicleCategory> suggestVehicleCategories(CustomerProfile profile) {
+        return delegate.suggestVehicleCategories(profile);
+    }
+
+    @Override
+    public List<VehicleRecommendation> recommendVehicles(CustomerProfile profile, int limit) {
+        return delegate.recommendVehicles(profile, limit);
+    }
+
+    @Override
+    public VehicleComparison compareToCompetitors(String vehicleId) {
+        return delegate.compareToCompetitors(vehicleId);
+    }
+
+    @Override
+    public InsuranceCost calculateInsuranceCosts(String vehicleId, String zipCode, DriverProfile driverProfile) {
+        return delegate.calculateInsuranceCosts(vehicleId, zipCode, driverProfile);
+    }
+
+    @Override
+    public BudgetRecommendation suggestBudgetAllocation(double monthlyIncome, double monthlyExpenses) {
+        return delegate.suggestBudgetAllocation(monthlyIncome, monthlyExpenses);
+    }
+
+    @Override
+    public NegotiationStrategy suggestNegotiationStrategy(String vehicleId, MarketConditions marketConditions) {
+        return delegate.suggestNegotiationStrategy(vehicleId, marketConditions);
+    }
+
+    @Override
+    public List<Incentive> findIncentivesAndRebates(String vehicleId, String zipCode) {
+        return delegate.findIncentivesAndRebates(vehicleId, zipCode);
+    }
+
+    @Override
+    public ChargingCost calculateChargingCosts(String vehicleId, String zipCode, double dailyMiles) {
+        return delegate.calculateChargingCosts(vehicleId, zipCode, dailyMiles);
+    }
+
+    @Override
+    public List<ChargingStation> findChargingStations(String zipCode, double radiusMiles) {
+        return delegate.findChargingStations(zipCode, radiusMiles);
+    }
+
+    @Override
+    public RangeEstimate estimateRangeForTrip(String vehicleId, double tripDistance, String weatherCondition) {
+        return delegate.estimateRangeForTrip(vehicleId, tripDistance, weatherCondition);
+    }
+
+    // Copies of the cached results that no caller can modify
+
+    private static VehicleComparison immutable(VehicleComparison comparison) {
+        return comparison == null
+                ? null
+                : new VehicleComparison(
+                        immutable(comparison.vehicles()),
+                        immutable(comparison.comparisonCategories()),
+                        immutable(comparison.comparisonPoints()));
+    }
+
+    private static SafetyRatings immutable(SafetyRatings ratings) {
+        return ratings == null
+                ? null
+                : new SafetyRatings(
+                        ratings.vehicleId(),
+                        ratings.overallRating(),
+                        ratings.frontalCrashRating(),
+                        ratings.sideCrashRating(),
+                        ratings.rolloverRating(),
+                        immutable(ratings.safetyFeatures()),
+                        ratings.topSafetyPick());
+    }
+
+    private static FinancingGrid immutable(FinancingGrid grid) {
+        if (grid == null) {
+            return null;
+        }
+        List<CreditTierFinancing> tiers = new ArrayList<>(grid.creditTiers().size());
+        for (CreditTierFinancing tier : grid.creditTiers()) {
+            tiers.add(new CreditTierFinancing(
+                    tier.creditScore(),
+                    tier.interestRate(),
+                    immutableMatrix(tier.monthlyPayments()),
+                    immutableMatrix(tier.totalInterest())));
+        }
+        return new FinancingGrid(
+                grid.vehicleId(),
+                grid.vehiclePrice(),
+                immutable(grid.downPayments()),
+                immutable(grid.termMonths()),
+                List.copyOf(tiers));
+    }
+
+    private static TradeInValue immutable(TradeInValue value) {
+        return value == null
+                ? null
+                : new TradeInValue(
+                        value.fairValue(),
+                        value.dealerValue(),
+                        value.privatePartyValue(),
+                        value.marketDemand(),
+                        immutable(value.valueFactors()));
+    }
+
+    private static AmortizationSchedule copy(AmortizationSchedule schedule) {
+        return schedule == null
+                ? null
+                : new AmortizationSchedule(
+                        schedule.vehicleId(),
+                        schedule.amountFinanced(),
+                        schedule.interestRate(),
+                        schedule.termMonths(),
+                        schedule.monthlyPayment(),
+                        schedule.interestPaid().clone(),
+                        schedule.principalPaid().clone(),
+                        schedule.remainingBalance().clone());
+    }
+
+    private static List<List<Double>> immutableMatrix(List<List<Double>> rows) {
+        return rows.stream().map(List::copyOf).toList();
+    }
+
+    private static <E> List<E> immutable(List<E> list) {
+        return list == null ? null : List.copyOf(list);
+    }
+
+    private static String lowerCase(String text) {
+        return text == null ? null : text.toLowerCase();
+    }
+
+    /**
+     * Rough retained size of a key or result in bytes, used as its cache weight
+     */
+    static long estimateBytes(Object value) {
+        return switch (value) {
+            case null -> 0;
+            case String text -> 48 + text.length();
+            case Enum<?> constant -> 0;
+            case Number number -> 16;
+            case Boolean flag -> 0;
+            case double[] values -> 16 + 8L * values.length;
+            case Collection<?> elements -> {
+                long bytes = 32;
+                for (Object element : elements) {
+                    bytes += 8 + estimateBytes(element);
+                }
+                yield bytes;
+            }
+            case Record record -> {
+                long bytes = 16;
+                for (RecordComponent component : record.getClass().getRecordComponents()) {
+                    bytes += 8;
+                    if (!component.getType().isPrimitive()) {
+                        try {
+                            bytes += estimateBytes(component.getAccessor().invoke(record));
+                        } catch (ReflectiveOperationException e) {
+                            bytes += 64;
+                        }
+                    }
+                }
+                yield bytes;
+            }
+            default -> 64;
+        };
+    }
+
+    private static long maxBytesFromEnv() {
+        String maxBytes = Env.get(MAX_BYTES_VARIABLE);
+        return maxBytes == null ? DEFAULT_MAX_BYTES : Long.parseLong(maxBytes.strip());
+    }
+}
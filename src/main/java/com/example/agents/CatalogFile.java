@@ -0,0 +1,419 @@
+package com.example.agents;
+
+import com.example.agents.CommonRequirements.Dealer;
+import com.example.agents.CommonRequirements.VehicleInfo;
+import com.example.agents.CommonRequirements.VehicleMake;
+import com.example.agents.VehicleColumns.Column;
+import com.example.agents.VehicleColumns.DoubleColumn;
+import com.example.agents.VehicleColumns.FlagColumn;
+import com.example.agents.VehicleColumns.IntColumn;
+import com.example.agents.VehicleColumns.MakeColumn;
+import com.example.agents.VehicleColumns.OptionalIntColumn;
+import com.example.agents.VehicleColumns.StringColumn;
+import com.example.agents.VehicleColumns.StringListColumn;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary catalog format, opened at runtime through {@link FileChannel#map}.
+ *
+ * The file holds the dealers, the financing rates and the vehicle columns of {@link VehicleColumns}
+ * in component order. Primitive columns are 8-byte aligned and read in place from the mapped
+ * buffer, so several JVMs on a host share one copy through the page cache; only the string
+ * dictionaries and the bitsets are decoded onto the heap when the file is opened.
+ *
+ * Layout, little-endian:
+ * <pre>
+ * int magic, int format version, int vehicle count, int column count
+ * dealers:         int count, then id, name, location strings per dealer
+ * financing rates: int count, then credit score string and double rate per entry
+ * columns:         per column a name string and a kind byte, then the column data
+ * </pre>
+ * Strings are an int byte length followed by UTF-8 bytes, -1 for null. Opening checks every length
+ * against the size of the file and every code against its dictionary, so a truncated or corrupt file
+ * fails with an {@link IOException}.
+ */
+final class CatalogFile {
+
+    private static final int MAGIC = 0x474D4341; // "GMCA"
+    private static final int FORMAT_VERSION = 1;
+
+    private static final byte INT = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte FLAG = 3;
+    private static final byte OPTIONAL_INT = 4;
+    private static final byte MAKE = 5;
+    private static final byte STRING = 6;
+    private static final byte STRING_LIST = 7;
+
+    record Contents(VehicleColumns vehicles, List<Dealer> dealers, Map<String, Double> financingRates) {}
+
+    private CatalogFile() {}
+
+    static void write(Path path, List<VehicleInfo> vehicles, List<Dealer> dealers, Map<String, Double> financingRates)
+            throws IOException {
+        VehicleColumns columns = VehicleColumns.from(vehicles);
+        int columnCount = VehicleInfo.class.getRecordComponents().length;
+
+        Output out = new Output();
+        out.putInt(MAGIC);
+        out.putInt(FORMAT_VERSION);
+        out.putInt(columns.size());
+        out.putInt(columnCount);
+
+        out.putInt(dealers.size());
+        for (Dealer dealer : dealers) {
+            out.putString(dealer.id());
+            out.putString(dealer.name());
+            out.putString(dealer.location());
+        }
+
+        out.putInt(financingRates.size());
+        for (Map.Entry<String, Double> rate : financingRates.entrySet()) {
+            out.putString(rate.getKey());
+            out.putDouble(rate.getValue());
+        }
+
+        for (int i = 0; i < columnCount; i++) {
+            out.putString(VehicleColumns.componentName(i));
+            writeColumn(out, columns.columnAt(i), columns.size());
+        }
+
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (FileChannel channel = FileChannel.open(
+                path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer data = out.flip();
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+    }
+
+    static Contents open(Path path) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            return read(mapped.order(ByteOrder.LITTLE_ENDIAN));
+        } catch (IOException e) {
+            throw new IOException(e.getMessage() + " in " + path, e);
+        }
+    }
+
+    /**
+     * Reads the catalog, checking every length and code against the file before using it
+     */
+    private static Contents read(ByteBuffer in) throws IOException {
+        if (getInt(in) != MAGIC) {
+            throw new IOException("Not a vehicle catalog file");
+        }
+        int formatVersion = getInt(in);
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Unsupported catalog format version " + formatVersion);
+        }
+        int size = count(in, "vehicle");
+        int columnCount = getInt(in);
+        if (columnCount != VehicleInfo.class.getRecordComponents().length) {
+            throw new IOException("Catalog has " + columnCount + " columns, expected "
+                    + VehicleInfo.class.getRecordComponents().length);
+        }
+
+        List<Dealer> dealers = new ArrayList<>();
+        for (int i = count(in, "dealer"); i > 0; i--) {
+            dealers.add(new Dealer(getString(in), getString(in), getString(in)));
+        }
+
+        Map<String, Double> financingRates = new LinkedHashMap<>();
+        for (int i = count(in, "financing rate"); i > 0; i--) {
+            String creditScore = getString(in);
+            require(in, Double.BYTES);
+            financingRates.put(creditScore, in.getDouble());
+        }
+
+        Column[] columns = new Column[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            String name = getString(in);
+            if (!VehicleColumns.componentName(i).equals(name)) {
+                throw new IOException(
+                        "Catalog column " + i + " is " + name + ", expected " + VehicleColumns.componentName(i));
+            }
+            columns[i] = readColumn(in, size, name);
+        }
+
+        VehicleColumns vehicles;
+        try {
+            vehicles = VehicleColumns.of(size, columns);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        return new Contents(vehicles, List.copyOf(dealers), Map.copyOf(financingRates));
+    }
+
+    private static void writeColumn(Output out, Column column, int size) {
+        switch (column) {
+            case IntColumn ints -> {
+                out.putByte(INT);
+                out.putInts(ints.values(), size);
+            }
+            case DoubleColumn doubles -> {
+                out.putByte(DOUBLE);
+                out.align();
+                for (int row = 0; row < size; row++) {
+                    out.putDouble(doubles.get(row));
+                }
+            }
+            case FlagColumn flags -> {
+                out.putByte(FLAG);
+                out.putBits(flags.values());
+            }
+            case OptionalIntColumn optional -> {
+                out.putByte(OPTIONAL_INT);
+                out.putInts(optional.values(), size);
+                out.putBits(optional.present());
+            }
+            case MakeColumn makes -> {
+                out.putByte(MAKE);
+                for (int row = 0; row < size; row++) {
+                    out.putByte(makes.ordinals().get(row));
+                }
+            }
+            case StringColumn strings -> {
+                out.putByte(STRING);
+                out.putStrings(strings.dictionary());
+                out.putInts(strings.codes(), size);
+            }
+            case StringListColumn lists -> {
+                out.putByte(STRING_LIST);
+                out.putStrings(lists.dictionary());
+                out.putInts(lists.offsets(), size + 1);
+                out.putInt(lists.codes().limit());
+                out.putInts(lists.codes(), lists.codes().limit());
+                out.putBits(lists.nulls());
+            }
+        }
+    }
+
+    private static Column readColumn(ByteBuffer in, int size, String name) throws IOException {
+        require(in, 1);
+        byte kind = in.get();
+        return switch (kind) {
+            case INT -> new IntColumn(getInts(in, size));
+            case DOUBLE -> new DoubleColumn(getDoubles(in, size));
+            case FLAG -> new FlagColumn(getBits(in));
+            case OPTIONAL_INT -> new OptionalIntColumn(getInts(in, size), getBits(in));
+            case MAKE -> {
+                ByteBuffer ordinals = slice(in, size);
+                for (int row = 0; row < size; row++) {
+                    checkCode(ordinals.get(row), -1, VehicleMake.values().length, name);
+                }
+                yield new MakeColumn(ordinals);
+            }
+            case STRING -> {
+                String[] dictionary = getStrings(in);
+                IntBuffer codes = getInts(in, size);
+                for (int row = 0; row < size; row++) {
+                    checkCode(codes.get(row), -1, dictionary.length, name);
+                }
+                yield new StringColumn(dictionary, codes);
+            }
+            case STRING_LIST -> {
+                String[] dictionary = getStrings(in);
+                IntBuffer offsets = getInts(in, size + 1);
+                IntBuffer codes = getInts(in, count(in, name + " code"));
+                // The lists of the rows follow each other and end with the codes
+                checkCode(offsets.get(0), 0, 1, name + " offset");
+                for (int row = 1; row <= size; row++) {
+                    checkCode(offsets.get(row), offsets.get(row - 1), codes.limit() + 1, name + " offset");
+                }
+                checkCode(offsets.get(size), codes.limit(), codes.limit() + 1, name + " offset");
+                for (int i = 0; i < codes.limit(); i++) {
+                    checkCode(codes.get(i), 0, dictionary.length, name);
+                }
+                yield StringListColumn.of(dictionary, offsets, codes, getBits(in));
+            }
+            default -> throw new IOException("Unknown catalog column kind " + kind);
+        };
+    }
+
+    private static void checkCode(int code, int min, int limit, String name) throws IOException {
+        if (code < min || code >= limit) {
+            throw new IOException(
+                    "Catalog column " + name + " holds " + code + ", outside [" + min + ", " + limit + ")");
+        }
+    }
+
+    /**
+     * Fails unless the file has the bytes left
+     */
+    private static void require(ByteBuffer in, long bytes) throws IOException {
+        if (bytes > in.remaining()) {
+            throw new IOException("Catalog file is truncated: " + bytes + " bytes needed at offset " + in.position()
+                    + ", " + in.remaining() + " left");
+        }
+    }
+
+    private static int getInt(ByteBuffer in) throws IOException {
+        require(in, Integer.BYTES);
+        return in.getInt();
+    }
+
+    /**
+     * A count that is not negative
+     */
+    private static int count(ByteBuffer in, String what) throws IOException {
+        int count = getInt(in);
+        if (count < 0) {
+            throw new IOException("Negative catalog " + what + " count " + count);
+        }
+        return count;
+    }
+
+    private static ByteBuffer slice(ByteBuffer in, long bytes) throws IOException {
+        require(in, bytes);
+        ByteBuffer slice = in.slice(in.position(), (int) bytes).order(ByteOrder.LITTLE_ENDIAN);
+        in.position(in.position() + (int) bytes);
+        return slice;
+    }
+
+    private static IntBuffer getInts(ByteBuffer in, int count) throws IOException {
+        align(in);
+        return slice(in, (long) count * Integer.BYTES).asIntBuffer();
+    }
+
+    private static DoubleBuffer getDoubles(ByteBuffer in, int count) throws IOException {
+        align(in);
+        return slice(in, (long) count * Double.BYTES).asDoubleBuffer();
+    }
+
+    private static BitSet getBits(ByteBuffer in) throws IOException {
+        int words = count(in, "bitset word");
+        align(in);
+        LongBuffer bits = slice(in, (long) words * Long.BYTES).asLongBuffer();
+        return BitSet.valueOf(bits);
+    }
+
+    private static String[] getStrings(ByteBuffer in) throws IOException {
+        int count = count(in, "string");
+        // Each string takes at least its length
+        require(in, (long) count * Integer.BYTES);
+        String[] strings = new String[count];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = getString(in);
+        }
+        return strings;
+    }
+
+    private static String getString(ByteBuffer in) throws IOException {
+        int length = getInt(in);
+        if (length < 0) {
+            return null;
+        }
+        require(in, length);
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void align(ByteBuffer in) throws IOException {
+        int aligned = (in.position() + 7) & ~7;
+        require(in, aligned - in.position());
+        in.position(aligned);
+    }
+
+    /**
+     * Growable little-endian buffer for writing the catalog
+     */
+    private static class Output {
+        private ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+                ByteBuffer grown = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+        }
+
+        void align() {
+            int padding = ((buffer.position() + 7) & ~7) - buffer.position();
+            ensure(padding);
+            buffer.position(buffer.position() + padding);
+        }
+
+        void putByte(byte value) {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        void putInt(int value) {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putDouble(double value) {
+            ensure(Double.BYTES);
+            buffer.putDouble(value);
+        }
+
+        void putInts(IntBuffer values, int count) {
+            align();
+            ensure(count * Integer.BYTES);
+            for (int i = 0; i < count; i++) {
+                buffer.putInt(values.get(i));
+            }
+        }
+
+        void putBits(BitSet bits) {
+            long[] words = bits.toLongArray();
+            putInt(words.length);
+            align();
+            ensure(words.length * Long.BYTES);
+            for (long word : words) {
+                buffer.putLong(word);
+            }
+        }
+
+        void putString(String value) {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        void putStrings(String[] values) {
+            putInt(values.length);
+            for (String value : values) {
+                putString(value);
+            }
+        }
+
+        ByteBuffer flip() {
+            return buffer.flip();
+        }
+    }
+}
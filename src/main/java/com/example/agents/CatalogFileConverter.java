@@ -0,0 +1,25 @@
+package com.example.agents;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Offline converter that writes the {@link MockVehicleData} vehicles, dealers and financing rates
+ * into a {@link CatalogFile}. Point the {@value VehicleCatalog#CATALOG_FILE_VARIABLE} environment
+ * variable at the written file to have the tools map it instead of loading the Java literal.
+ */
+public class CatalogFileConverter {
+
+    private static final String DEFAULT_OUTPUT = "target/catalog/vehicles.gmcat";
+
+    public static void main(String[] args) throws IOException {
+        Path output = Path.of(args.length > 0 ? args[0] : DEFAULT_OUTPUT);
+
+        CatalogFile.write(output, MockVehicleData.VEHICLES, MockVehicleData.DEALERS, MockVehicleData.FINANCING_RATES);
+
+        System.out.println("Wrote " + MockVehicleData.VEHICLES.size() + " vehicles, "
+                + MockVehicleData.DEALERS.size() + " dealers and " + MockVehicleData.FINANCING_RATES.size()
+                + " financing rates to " + output.toAbsolutePath() + " (" + Files.size(output) + " bytes)");
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.agents;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -224,6 +225,36 @@ public interface CommonRequirements {
             double monthlyPayment,
             double totalCost) {}
 
+    /**
+     * Financing for every combination of down payment, term and credit tier of one vehicle.
+     * Each tier's matrices are indexed [down payment][term] in the order of the two lists.
+     */
+    record FinancingGrid(
+            String vehicleId,
+            double vehiclePrice,
+            List<Double> downPayments,
+            List<Integer> termMonths,
+            List<CreditTierFinancing> creditTiers) {}
+
+    record CreditTierFinancing(
+            String creditScore,
+            double interestRate,
+            List<List<Double>> monthlyPayments,
+            List<List<Double>> totalInterest) {}
+
+    /**
+     * Month by month split of each payment; element i is month i + 1
+     */
+    record AmortizationSchedule(
+            String vehicleId,
+            double amountFinanced,
+            double interestRate,
+            int termMonths,
+            double monthlyPayment,
+            double[] interestPaid,
+            double[] principalPaid,
+            double[] remainingBalance) {}
+
     record TestDriveAppointment(
             String confirmationNumber,
             String vehicleId,
@@ -248,6 +279,8 @@ public interface CommonRequirements {
             boolean needsOffRoad,
             String fuelPreference) {}
 
+    record VehicleRecommendation(VehicleInfo vehicle, double score) {}
+
     record CustomerRequirements(
             int familySize,
             String dailyCommute,
@@ -353,6 +386,15 @@ public interface CommonRequirements {
 
         VehicleInfo getVehicleDetails(String vehicleId);
 
+        List<VehicleInfo> searchVehiclesByMake(VehicleMake make);
+
+        VehicleInfo getVehicleByMakeAndModel(String make, String model);
+
+        /**
+         * Vehicles with the given ids, in catalog order
+         */
+        List<VehicleInfo> getVehicles(Collection<String> vehicleIds);
+
         VehicleComparison compareVehicles(List<String> vehicleIds);
 
         List<VehicleAvailability> checkAvailability(String vehicleId, String zipCode);
@@ -369,6 +411,8 @@ public interface CommonRequirements {
 
         List<VehicleCategory> suggestVehicleCategories(CustomerProfile profile);
 
+        List<VehicleRecommendation> recommendVehicles(CustomerProfile profile, int limit);
+
         // Technical Expert Tools
         VehicleComparison compareToCompetitors(String vehicleId);
 
@@ -379,6 +423,11 @@ public interface CommonRequirements {
         // Financial Advisor Tools
         List<FinancingOption> compareFinancingOptions(String vehicleId, String creditScore);
 
+        FinancingGrid calculateFinancingGrid(String vehicleId, List<Double> downPayments, String creditScore);
+
+        AmortizationSchedule calculateAmortizationSchedule(
+                String vehicleId, double downPayment, int termMonths, String creditScore);
+
         InsuranceCost calculateInsuranceCosts(String vehicleId, String zipCode, DriverProfile driverProfile);
 
         BudgetRecommendation suggestBudgetAllocation(double monthlyIncome, double monthlyExpenses);
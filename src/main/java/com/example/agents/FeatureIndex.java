@@ -0,0 +1,104 @@
+package com.example.agents;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted index answering case-insensitive substring requirements such as "carplay" or
+ * "blind spot" against the vehicle feature lists.
+ *
+ * Every distinct feature is lower-cased once and keeps the posting list (row bitset) of the vehicles
+ * that have it. A trigram index maps each three-character sequence to the features containing it,
+ * so a requirement only verifies the few features that share all of its trigrams and then unions
+ * their postings, without reading any vehicle record. Requirements shorter than a trigram fall back
+ * to checking every distinct feature.
+ */
+class FeatureIndex {
+
+    private static final int GRAM = 3;
+
+    private final int rows;
+    private final String[] features;
+    private final BitSet[] postings;
+    private final Map<Long, BitSet> featuresByTrigram = new HashMap<>();
+
+    private FeatureIndex(int rows, Map<String, BitSet> postingsByFeature) {
+        this.rows = rows;
+        this.features = postingsByFeature.keySet().toArray(new String[0]);
+        this.postings = postingsByFeature.values().toArray(new BitSet[0]);
+
+        for (int feature = 0; feature < features.length; feature++) {
+            String text = features[feature];
+            for (int i = 0; i + GRAM <= text.length(); i++) {
+                featuresByTrigram
+                        .computeIfAbsent(trigram(text, i), k -> new BitSet(features.length))
+                        .set(feature);
+            }
+        }
+    }
+
+    /**
+     * Builds the index from the feature list columns, merging features that only differ in case
+     */
+    static FeatureIndex build(int rows, List<VehicleColumns.StringListColumn> featureColumns) {
+        Map<String, BitSet> postingsByFeature = new LinkedHashMap<>();
+        for (VehicleColumns.StringListColumn column : featureColumns) {
+            String[] dictionary = column.dictionary();
+            for (int code = 0; code < dictionary.length; code++) {
+                postingsByFeature
+                        .computeIfAbsent(dictionary[code].toLowerCase(), k -> new BitSet(rows))
+                        .or(column.rowsWith(code));
+            }
+        }
+        return new FeatureIndex(rows, postingsByFeature);
+    }
+
+    /**
+     * Rows having at least one feature that contains the requirement, ignoring case
+     */
+    BitSet rowsMatching(String requirement) {
+        String term = requirement.toLowerCase();
+        BitSet rowsMatching = new BitSet(rows);
+        for (int feature : candidates(term)) {
+            if (features[feature].contains(term)) {
+                rowsMatching.or(postings[feature]);
+            }
+        }
+        return rowsMatching;
+    }
+
+    private List<Integer> candidates(String term) {
+        List<Integer> candidates = new ArrayList<>();
+        if (term.length() < GRAM) {
+            for (int feature = 0; feature < features.length; feature++) {
+                candidates.add(feature);
+            }
+            return candidates;
+        }
+
+        BitSet shared = null;
+        for (int i = 0; i + GRAM <= term.length(); i++) {
+            BitSet withTrigram = featuresByTrigram.get(trigram(term, i));
+            if (withTrigram == null) {
+                return candidates;
+            }
+            if (shared == null) {
+                shared = (BitSet) withTrigram.clone();
+            } else {
+                shared.and(withTrigram);
+            }
+        }
+        for (int feature = shared.nextSetBit(0); feature >= 0; feature = shared.nextSetBit(feature + 1)) {
+            candidates.add(feature);
+        }
+        return candidates;
+    }
+
+    private static long trigram(String text, int from) {
+        return ((long) text.charAt(from) << 32) | ((long) text.charAt(from + 1) << 16) | text.charAt(from + 2);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.agents;
+
+/**
+ * Loan arithmetic for the financing tools.
+ *
+ * A grid covers every combination of down payment, term and credit tier for one vehicle. The
+ * annuity factor (monthly payment per dollar financed) only depends on the rate and the term, so it
+ * is computed once per tier and term and shared by all down payments. Amortization schedules are
+ * linear in the principal as well and are produced by one recurrence over primitive arrays.
+ */
+final class FinancingEngine {
+
+    static final int[] STANDARD_TERMS = {24, 36, 48, 60, 72, 84};
+    static final double[] STANDARD_DOWN_PAYMENT_SHARES = {0, 0.1, 0.2, 0.3};
+
+    private FinancingEngine() {}
+
+    /**
+     * Monthly payment per dollar financed at the given annual percentage rate
+     */
+    static double paymentFactor(double annualRatePercent, int termMonths) {
+        double monthlyRate = annualRatePercent / 100 / 12;
+        if (monthlyRate == 0) {
+            return 1.0 / termMonths;
+        }
+        double growth = Math.pow(1 + monthlyRate, termMonths);
+        return monthlyRate * growth / (growth - 1);
+    }
+
+    /**
+     * Amount financed; nothing when the down payment covers the price
+     */
+    static double principal(double vehiclePrice, double downPayment) {
+        return Math.max(0, vehiclePrice - downPayment);
+    }
+
+    static double monthlyPayment(double principal, double annualRatePercent, int termMonths) {
+        return principal * paymentFactor(annualRatePercent, termMonths);
+    }
+
+    /**
+     * Monthly payments of the whole grid, indexed by {@link Grid#index}
+     */
+    static Grid grid(double vehiclePrice, double[] downPayments, int[] terms, double[] annualRatesPercent) {
+        Grid grid = new Grid(vehiclePrice, downPayments, terms, annualRatesPercent);
+        for (int tier = 0; tier < annualRatesPercent.length; tier++) {
+            for (int term = 0; term < terms.length; term++) {
+                double factor = paymentFactor(annualRatesPercent[tier], terms[term]);
+                for (int down = 0; down < downPayments.length; down++) {
+                    grid.payments[grid.index(tier, down, term)] = grid.principal(down) * factor;
+                }
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Month by month interest, principal and remaining balance of one loan
+     */
+    static Schedule schedule(double principal, double annualRatePercent, int termMonths) {
+        double monthlyRate = annualRatePercent / 100 / 12;
+        double payment = monthlyPayment(principal, annualRatePercent, termMonths);
+        Schedule schedule = new Schedule(payment, termMonths);
+        double balance = principal;
+        for (int month = 0; month < termMonths; month++) {
+            double interest = balance * monthlyRate;
+            double principalPaid = month == termMonths - 1 ? balance : payment - interest;
+            balance -= principalPaid;
+            schedule.interest[month] = interest;
+            schedule.principal[month] = principalPaid;
+            schedule.balance[month] = balance;
+        }
+        return schedule;
+    }
+
+    static final class Grid {
+        final double vehiclePrice;
+        final double[] downPayments;
+        final int[] terms;
+        final double[] annualRatesPercent;
+        final double[] payments;
+
+        private Grid(double vehiclePrice, double[] downPayments, int[] terms, double[] annualRatesPercent) {
+            this.vehiclePrice = vehiclePrice;
+            this.downPayments = downPayments;
+            this.terms = terms;
+            this.annualRatesPercent = annualRatesPercent;
+            this.payments = new double[annualRatesPercent.length * downPayments.length * terms.length];
+        }
+
+        int index(int tier, int down, int term) {
+            return (tier * downPayments.length + down) * terms.length + term;
+        }
+
+        double principal(int down) {
+            return FinancingEngine.principal(vehiclePrice, downPayments[down]);
+        }
+
+        double monthlyPayment(int tier, int down, int term) {
+            return payments[index(tier, down, term)];
+        }
+
+        double totalInterest(int tier, int down, int term) {
+            return monthlyPayment(tier, down, term) * terms[term] - principal(down);
+        }
+    }
+
+    static final class Schedule {
+        final double monthlyPayment;
+        final double[] interest;
+        final double[] principal;
+        final double[] balance;
+
+        private Schedule(double monthlyPayment, int termMonths) {
+            this.monthlyPayment = monthlyPayment;
+            this.interest = new double[termMonths];
+            this.principal = new double[termMonths];
+            this.balance = new double[termMonths];
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.agents;
+
+import com.example.agents.CommonRequirements.SearchCriteria;
+import com.example.agents.CommonRequirements.VehicleCategory;
+import com.example.agents.CommonRequirements.VehicleInfo;
+import com.example.agents.CommonRequirements.VehicleMake;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory index over the vehicle inventory that answers {@link SearchCriteria} queries
+ * by intersecting precomputed structures instead of scanning every vehicle.
+ *
+ * Category, make and fuel type matches are kept as bitmaps, price and average MPG as sorted
+ * arrays for range lookups, and feature requirements are resolved by a {@link FeatureIndex}.
+ * Broad price, MPG and fuel type bounds are instead evaluated in one pass of a
+ * {@link SelectionKernel} that reads the price and MPG buffers of the columns in place, plus a
+ * row-ordered column of fuel type ids. The index is built from {@link VehicleColumns} and only
+ * materializes the matching vehicles. Results keep the inventory order.
+ */
+class InventoryIndex {
+
+    private final VehicleColumns columns;
+    private final Map<VehicleCategory, BitSet> categories = new EnumMap<>(VehicleCategory.class);
+    private final Map<VehicleMake, BitSet> makes = new EnumMap<>(VehicleMake.class);
+    private final Map<String, BitSet> fuelTypes = new HashMap<>();
+    private final FeatureIndex features;
+
+    private final int[] priceOrder;
+    private final double[] sortedPrices;
+    private final int[] mpgOrder;
+    private final int[] sortedAvgMpg;
+
+    // Scanned by the selection kernel: the column buffers themselves and the fuel type ids by row
+    private final SelectionKernel kernel = SelectionKernel.create();
+    private final DoubleBuffer prices;
+    private final IntBuffer mpgCity;
+    private final IntBuffer mpgHighway;
+    private final int[] fuelIds;
+    private final Map<String, Integer> fuelIdsByName = new HashMap<>();
+
+    private InventoryIndex(VehicleColumns columns) {
+        this.columns = columns;
+        int size = columns.size();
+
+        for (VehicleCategory category : VehicleCategory.values()) {
+            categories.put(category, new BitSet(size));
+        }
+        for (VehicleMake make : VehicleMake.values()) {
+            makes.put(make, new BitSet(size));
+        }
+
+        // Categories and fuel types are normalized once per dictionary entry, not once per vehicle
+        VehicleColumns.StringColumn category = columns.category();
+        List<List<VehicleCategory>> categoriesByCode = Arrays.stream(category.dictionary())
+                .map(InventoryIndex::matchingCategories)
+                .toList();
+        VehicleColumns.StringColumn fuelType = columns.fuelType();
+        String[] fuelTypeByCode =
+                Arrays.stream(fuelType.dictionary()).map(String::toLowerCase).toArray(String[]::new);
+        VehicleColumns.MakeColumn make = columns.make();
+        this.fuelIds = new int[size];
+
+        for (int row = 0; row < size; row++) {
+            if (category.code(row) >= 0) {
+                for (VehicleCategory match : categoriesByCode.get(category.code(row))) {
+                    categories.get(match).set(row);
+                }
+            }
+            if (make.get(row) != null) {
+                makes.get(make.get(row)).set(row);
+            }
+            fuelIds[row] = SelectionKernel.ANY_FUEL;
+            if (fuelType.code(row) >= 0) {
+                String normalizedFuelType = fuelTypeByCode[fuelType.code(row)];
+                fuelTypes
+                        .computeIfAbsent(normalizedFuelType, k -> new BitSet(size))
+                        .set(row);
+                fuelIds[row] = fuelIdsByName.computeIfAbsent(normalizedFuelType, k -> fuelIdsByName.size());
+            }
+        }
+        this.features = FeatureIndex.build(size, List.of(columns.safetyFeatures(), columns.infotainmentFeatures()));
+
+        VehicleColumns.DoubleColumn price = columns.price();
+        this.prices = price.values();
+        this.priceOrder = IntStream.range(0, size)
+                .boxed()
+                .sorted(Comparator.comparingDouble(price::get))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        this.sortedPrices = Arrays.stream(priceOrder).mapToDouble(price::get).toArray();
+
+        VehicleColumns.IntColumn mpgCity = columns.mpgCity();
+        VehicleColumns.IntColumn mpgHighway = columns.mpgHighway();
+        this.mpgCity = mpgCity.values();
+        this.mpgHighway = mpgHighway.values();
+        IntUnaryOperator avgMpg = row -> (mpgCity.get(row) + mpgHighway.get(row)) / 2;
+        this.mpgOrder = IntStream.range(0, size)
+                .boxed()
+                .sorted(Comparator.comparingInt(avgMpg::applyAsInt))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        this.sortedAvgMpg = Arrays.stream(mpgOrder).map(avgMpg).toArray();
+    }
+
+    static InventoryIndex build(VehicleColumns columns) {
+        return new InventoryIndex(columns);
+    }
+
+    private static List<VehicleCategory> matchingCategories(String vehicleCategory) {
+        VehicleCategory exact = VehicleCategory.fromString(vehicleCategory);
+        String normalized = vehicleCategory.toLowerCase();
+        List<VehicleCategory> matches = new ArrayList<>();
+        for (VehicleCategory category : VehicleCategory.values()) {
+            // Exact match, or partial match (e.g., "Luxury SUV" contains "SUV")
+            if (category == exact
+                    || normalized.contains(category.getDisplayName().toLowerCase())) {
+                matches.add(category);
+            }
+        }
+        return matches;
+    }
+
+    List<VehicleInfo> search(SearchCriteria criteria) {
+        // A category criterion decides the match on its own, the other criteria are not applied to it
+        if (criteria.category() != null) {
+            return collect(categories.get(criteria.category()));
+        }
+
+        BitSet selection = hasNumericBounds(criteria) ? selectNumeric(criteria) : allRows();
+        if (criteria.requiredFeatures() != null) {
+            for (String required : criteria.requiredFeatures()) {
+                if (selection.isEmpty()) {
+                    break;
+                }
+                selection.and(features.rowsMatching(required));
+            }
+        }
+        return collect(selection);
+    }
+
+    List<VehicleInfo> byMake(VehicleMake make) {
+        return collect(makes.get(make));
+    }
+
+    BitSet rowsInCategory(VehicleCategory category) {
+        return (BitSet) categories.get(category).clone();
+    }
+
+    private static boolean hasNumericBounds(SearchCriteria criteria) {
+        return criteria.minPrice() != null
+                || criteria.maxPrice() != null
+                || criteria.minMpg() != null
+                || criteria.fuelType() != null;
+    }
+
+    /**
+     * Applies the price, MPG and fuel type bounds. Selective bounds are answered from the sorted
+     * arrays and bitmaps, touching only the matching rows; broad ones are cheaper to evaluate in one
+     * pass of the selection kernel over all rows.
+     */
+    private BitSet selectNumeric(SearchCriteria criteria) {
+        BitSet fuelRows = null;
+        int estimate = columns.size();
+        if (criteria.minPrice() != null || criteria.maxPrice() != null) {
+            estimate = Math.min(estimate, priceTo(criteria.maxPrice()) - priceFrom(criteria.minPrice()));
+        }
+        if (criteria.minMpg() != null) {
+            estimate = Math.min(estimate, sortedAvgMpg.length - lowerBound(sortedAvgMpg, criteria.minMpg()));
+        }
+        if (criteria.fuelType() != null) {
+            fuelRows = fuelTypes.getOrDefault(criteria.fuelType().toLowerCase(), new BitSet());
+            estimate = Math.min(estimate, fuelRows.cardinality());
+        }
+
+        // Fewer matches than one per mask word
+        if ((long) estimate * Long.SIZE < columns.size()) {
+            BitSet selection = allRows();
+            if (criteria.minPrice() != null || criteria.maxPrice() != null) {
+                selection.and(priceRange(criteria.minPrice(), criteria.maxPrice()));
+            }
+            if (criteria.minMpg() != null) {
+                selection.and(minAverageMpg(criteria.minMpg()));
+            }
+            if (fuelRows != null) {
+                selection.and(fuelRows);
+            }
+            return selection;
+        }
+        return scan(criteria);
+    }
+
+    private BitSet scan(SearchCriteria criteria) {
+        int fuelId = SelectionKernel.ANY_FUEL;
+        if (criteria.fuelType() != null) {
+            Integer id = fuelIdsByName.get(criteria.fuelType().toLowerCase());
+            if (id == null) {
+                return new BitSet();
+            }
+            fuelId = id;
+        }
+        long[] mask = new long[(columns.size() + Long.SIZE - 1) / Long.SIZE];
+        kernel.select(
+                prices,
+                mpgCity,
+                mpgHighway,
+                fuelIds,
+                columns.size(),
+                criteria.minPrice() != null ? criteria.minPrice() : Double.NEGATIVE_INFINITY,
+                criteria.maxPrice() != null ? criteria.maxPrice() : Double.POSITIVE_INFINITY,
+                criteria.minMpg() != null ? criteria.minMpg() : Integer.MIN_VALUE,
+                fuelId,
+                mask);
+        return BitSet.valueOf(mask);
+    }
+
+    private BitSet allRows() {
+        BitSet all = new BitSet(columns.size());
+        all.set(0, columns.size());
+        return all;
+    }
+
+    private int priceFrom(Double minPrice) {
+        return minPrice == null ? 0 : lowerBound(sortedPrices, minPrice);
+    }
+
+    private int priceTo(Double maxPrice) {
+        return maxPrice == null ? sortedPrices.length : upperBound(sortedPrices, maxPrice);
+    }
+
+    private BitSet priceRange(Double minPrice, Double maxPrice) {
+        return rows(priceOrder, priceFrom(minPrice), Math.max(priceFrom(minPrice), priceTo(maxPrice)));
+    }
+
+    private BitSet minAverageMpg(int minMpg) {
+        return rows(mpgOrder, lowerBound(sortedAvgMpg, minMpg), sortedAvgMpg.length);
+    }
+
+    private BitSet rows(int[] order, int from, int to) {
+        BitSet result = new BitSet(columns.size());
+        for (int i = from; i < to; i++) {
+            result.set(order[i]);
+        }
+        return result;
+    }
+
+    private List<VehicleInfo> collect(BitSet selection) {
+        return columns.vehicles(selection);
+    }
+
+    /** First position whose value is not less than the key */
+    private static int lowerBound(double[] sorted, double key) {
+        int low = 0, high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < key) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /** First position whose value is greater than the key */
+    private static int upperBound(double[] sorted, double key) {
+        int low = 0, high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] <= key) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private static int lowerBound(int[] sorted, int key) {
+        int low = 0, high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < key) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+}
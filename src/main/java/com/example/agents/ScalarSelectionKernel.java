@@ -0,0 +1,56 @@
+package com.example.agents;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Row-at-a-time {@link SelectionKernel}, used when the Vector API is not available
+ */
+class ScalarSelectionKernel implements SelectionKernel {
+
+    @Override
+    public void select(
+            DoubleBuffer prices,
+            IntBuffer mpgCity,
+            IntBuffer mpgHighway,
+            int[] fuelIds,
+            int rows,
+            double minPrice,
+            double maxPrice,
+            int minMpg,
+            int fuelId,
+            long[] mask) {
+        selectRange(prices, mpgCity, mpgHighway, fuelIds, 0, rows, minPrice, maxPrice, minMpg, fuelId, mask);
+    }
+
+    /**
+     * Scalar selection of the rows in [from, to), also used for the tail of the vectorized loop
+     */
+    static void selectRange(
+            DoubleBuffer prices,
+            IntBuffer mpgCity,
+            IntBuffer mpgHighway,
+            int[] fuelIds,
+            int from,
+            int to,
+            double minPrice,
+            double maxPrice,
+            int minMpg,
+            int fuelId,
+            long[] mask) {
+        for (int row = from; row < to; row++) {
+            double price = prices.get(row);
+            if (price >= minPrice
+                    && price <= maxPrice
+                    && (mpgCity.get(row) + mpgHighway.get(row)) / 2 >= minMpg
+                    && (fuelId == ANY_FUEL || fuelIds[row] == fuelId)) {
+                mask[row >>> 6] |= 1L << row;
+            }
+        }
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.agents;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Batch filter over primitive vehicle columns that evaluates the numeric {@link
+ * CommonRequirements.SearchCriteria} bounds for every row at once and produces a selection mask.
+ * The price and MPG buffers are the {@link VehicleColumns} buffers themselves, which may be views
+ * of a memory-mapped {@link CatalogFile}; they are read in place, never copied.
+ *
+ * {@link #create()} returns the SIMD implementation based on {@code jdk.incubator.vector} when it
+ * was compiled in with the {@code vector} Maven profile and the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}, and a scalar loop otherwise.
+ */
+interface SelectionKernel {
+
+    /** Fuel id accepting every fuel type */
+    int ANY_FUEL = -1;
+
+    /**
+     * Sets bit {@code row} of {@code mask} for every row with {@code minPrice <= prices[row] <= maxPrice},
+     * an average MPG {@code (mpgCity[row] + mpgHighway[row]) / 2 >= minMpg} and, unless {@code fuelId}
+     * is {@link #ANY_FUEL}, {@code fuelIds[row] == fuelId}. The mask must hold at least
+     * {@code (rows + 63) / 64} words.
+     */
+    void select(
+            DoubleBuffer prices,
+            IntBuffer mpgCity,
+            IntBuffer mpgHighway,
+            int[] fuelIds,
+            int rows,
+            double minPrice,
+            double maxPrice,
+            int minMpg,
+            int fuelId,
+            long[] mask);
+
+    String name();
+
+    static SelectionKernel create() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // Loaded reflectively so that this interface never links against the incubator module,
+                // and the class is absent unless the vector profile compiled it
+                return (SelectionKernel) Class.forName("com.example.agents.VectorSelectionKernel")
+                        .getDeclaredConstructor()
+                        .newInstance();
+            } catch (ReflectiveOperationException | LinkageError ignored) {
+            }
+        }
+        return new ScalarSelectionKernel();
+    }
+}
@@ -6,7 +6,11 @@ import com.example.agents.CommonRequirements.VehicleCategory;
 import com.example.agents.CommonRequirements.VehicleMake;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -16,77 +20,39 @@ import java.util.stream.Collectors;
  */
 public class ToolsImpl implements Tools {
 
+    private final VehicleRecommender recommender;
+
+    public ToolsImpl() {
+        this(new VehicleRecommender());
+    }
+
+    public ToolsImpl(VehicleRecommender recommender) {
+        this.recommender = recommender;
+    }
+
     @Override
     public List<VehicleInfo> searchVehicleInventory(SearchCriteria criteria) {
-        return MockVehicleData.VEHICLES.stream()
-                .filter(vehicle -> {
-                    if (criteria.category() != null) {
-                        // Check if vehicle category matches or contains the searched category
-                        VehicleCategory vehicleCategory = VehicleCategory.fromString(vehicle.category());
-                        if (vehicleCategory == criteria.category()) {
-                            return true; // Exact match
-                        }
-
-                        // Check if the vehicle's category string contains the searched category
-                        String searchedCategory = criteria.category().getDisplayName();
-                        if (vehicle.category().toLowerCase().contains(searchedCategory.toLowerCase())) {
-                            return true; // Partial match (e.g., "Luxury SUV" contains "SUV")
-                        }
-
-                        return false;
-                    }
-                    if (criteria.minPrice() != null && vehicle.price() < criteria.minPrice()) {
-                        return false;
-                    }
-                    if (criteria.maxPrice() != null && vehicle.price() > criteria.maxPrice()) {
-                        return false;
-                    }
-                    if (criteria.minMpg() != null) {
-                        int avgMpg = (vehicle.mpgCity() + vehicle.mpgHighway()) / 2;
-                        if (avgMpg < criteria.minMpg()) {
-                            return false;
-                        }
-                    }
-                    if (criteria.fuelType() != null && !vehicle.fuelType().equalsIgnoreCase(criteria.fuelType())) {
-                        return false;
-                    }
-                    if (criteria.requiredFeatures() != null
-                            && !criteria.requiredFeatures().isEmpty()) {
-                        List<String> allFeatures = new ArrayList<>();
-                        allFeatures.addAll(vehicle.safetyFeatures());
-                        allFeatures.addAll(vehicle.infotainmentFeatures());
-
-                        for (String required : criteria.requiredFeatures()) {
-                            boolean hasFeature = allFeatures.stream()
-                                    .anyMatch(feature -> feature.toLowerCase().contains(required.toLowerCase()));
-                            if (!hasFeature) {
-                                return false;
-                            }
-                        }
-                    }
-                    return true;
-                })
-                .collect(Collectors.toList());
+        return VehicleCatalog.current().inventory().search(criteria);
+    }
+
+    @Override
+    public List<VehicleInfo> searchVehiclesByMake(VehicleMake make) {
+        return VehicleCatalog.current().inventory().byMake(make);
     }
 
     @Override
     public VehicleInfo getVehicleDetails(String vehicleId) {
-        return MockVehicleData.VEHICLES.stream()
-                .filter(vehicle -> vehicle.id().equals(vehicleId))
-                .findFirst()
-                .orElse(null);
+        return VehicleCatalog.current().byId(vehicleId);
     }
 
+    @Override
     public VehicleInfo getVehicleByMakeAndModel(String make, String model) {
-        VehicleMake vehicleMake = VehicleMake.fromString(make);
-        if (vehicleMake == null) {
-            return null;
-        }
-        return MockVehicleData.VEHICLES.stream()
-                .filter(vehicle ->
-                        vehicle.make() == vehicleMake && vehicle.model().equalsIgnoreCase(model))
-                .findFirst()
-                .orElse(null);
+        return VehicleCatalog.current().byMakeAndModel(VehicleMake.fromString(make), model);
+    }
+
+    @Override
+    public List<VehicleInfo> getVehicles(Collection<String> vehicleIds) {
+        return VehicleCatalog.current().byIds(vehicleIds);
     }
 
     @Override
@@ -125,7 +91,7 @@ public class ToolsImpl implements Tools {
     public List<VehicleAvailability> checkAvailability(String vehicleId, String zipCode) {
         List<VehicleAvailability> availability = new ArrayList<>();
 
-        for (Dealer dealer : MockVehicleData.DEALERS) {
+        for (Dealer dealer : VehicleCatalog.current().dealers()) {
             boolean inStock = Math.random() > 0.3;
             int quantity = inStock ? (int) (Math.random() * 5) + 1 : 0;
             String delivery = inStock ? "Available Now" : "2-3 weeks";
@@ -139,18 +105,15 @@ public class ToolsImpl implements Tools {
     @Override
     public FinancingOption calculateFinancing(
             String vehicleId, double downPayment, int termMonths, String creditScore) {
-        VehicleInfo vehicle = getVehicleDetails(vehicleId);
+        VehicleCatalog.Snapshot catalog = VehicleCatalog.current();
+        VehicleInfo vehicle = catalog.byId(vehicleId);
         if (vehicle == null) {
             return null;
         }
 
-        double rate = MockVehicleData.FINANCING_RATES.getOrDefault(creditScore.toLowerCase(), 7.9);
-        double principal = vehicle.price() - downPayment;
-        double monthlyRate = rate / 100 / 12;
-
-        double monthlyPayment = principal
-                * (monthlyRate * Math.pow(1 + monthlyRate, termMonths))
-                / (Math.pow(1 + monthlyRate, termMonths) - 1);
+        double rate = financingRate(catalog, creditScore);
+        double principal = FinancingEngine.principal(vehicle.price(), downPayment);
+        double monthlyPayment = FinancingEngine.monthlyPayment(principal, rate, termMonths);
 
         double totalCost = (monthlyPayment * termMonths) + downPayment;
 
@@ -269,6 +232,11 @@ public class ToolsImpl implements Tools {
         return suggestions.stream().distinct().collect(Collectors.toList());
     }
 
+    @Override
+    public List<VehicleRecommendation> recommendVehicles(CustomerProfile profile, int limit) {
+        return recommender.recommend(profile, limit);
+    }
+
     // Technical Expert Tools
 
     @Override
@@ -344,20 +312,127 @@ public class ToolsImpl implements Tools {
 
     @Override
     public List<FinancingOption> compareFinancingOptions(String vehicleId, String creditScore) {
-        VehicleInfo vehicle = getVehicleDetails(vehicleId);
+        VehicleCatalog.Snapshot catalog = VehicleCatalog.current();
+        VehicleInfo vehicle = catalog.byId(vehicleId);
         if (vehicle == null) return new ArrayList<>();
 
-        List<FinancingOption> options = new ArrayList<>();
+        // Different term options, 20% down
+        double downPayment = vehicle.price() * 0.2;
+        double rate = financingRate(catalog, creditScore);
+        FinancingEngine.Grid grid = FinancingEngine.grid(
+                vehicle.price(), new double[] {downPayment}, new int[] {36, 48, 60, 72}, new double[] {rate});
 
-        // Different term options
-        int[] terms = {36, 48, 60, 72};
-        for (int term : terms) {
-            options.add(calculateFinancing(vehicleId, vehicle.price() * 0.2, term, creditScore));
+        List<FinancingOption> options = new ArrayList<>();
+        for (int term = 0; term < grid.terms.length; term++) {
+            double monthlyPayment = grid.monthlyPayment(0, 0, term);
+            options.add(new FinancingOption(
+                    vehicleId,
+                    vehicle.price(),
+                    downPayment,
+                    grid.terms[term],
+                    rate,
+                    monthlyPayment,
+                    monthlyPayment * grid.terms[term] + downPayment));
         }
 
         return options;
     }
 
+    @Override
+    public FinancingGrid calculateFinancingGrid(String vehicleId, List<Double> downPayments, String creditScore) {
+        VehicleCatalog.Snapshot catalog = VehicleCatalog.current();
+        VehicleInfo vehicle = catalog.byId(vehicleId);
+        if (vehicle == null) return null;
+
+        double[] downs;
+        if (downPayments == null || downPayments.isEmpty()) {
+            downs = new double[FinancingEngine.STANDARD_DOWN_PAYMENT_SHARES.length];
+            for (int i = 0; i < downs.length; i++) {
+                downs[i] = cents(vehicle.price() * FinancingEngine.STANDARD_DOWN_PAYMENT_SHARES[i]);
+            }
+        } else if (downPayments.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Down payments must be amounts, got " + downPayments);
+        } else {
+            downs = downPayments.stream().mapToDouble(Double::doubleValue).toArray();
+        }
+
+        List<String> tiers;
+        if (creditScore == null || creditScore.isBlank()) {
+            tiers = catalog.financingRates().entrySet().stream()
+                    .sorted(Map.Entry.comparingByValue())
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+        } else {
+            tiers = List.of(creditScore.toLowerCase());
+        }
+        double[] rates =
+                tiers.stream().mapToDouble(tier -> financingRate(catalog, tier)).toArray();
+
+        FinancingEngine.Grid grid = FinancingEngine.grid(vehicle.price(), downs, FinancingEngine.STANDARD_TERMS, rates);
+
+        List<CreditTierFinancing> creditTiers = new ArrayList<>();
+        for (int tier = 0; tier < rates.length; tier++) {
+            List<List<Double>> payments = new ArrayList<>();
+            List<List<Double>> interest = new ArrayList<>();
+            for (int down = 0; down < downs.length; down++) {
+                List<Double> paymentsByTerm = new ArrayList<>();
+                List<Double> interestByTerm = new ArrayList<>();
+                for (int term = 0; term < grid.terms.length; term++) {
+                    paymentsByTerm.add(cents(grid.monthlyPayment(tier, down, term)));
+                    interestByTerm.add(cents(grid.totalInterest(tier, down, term)));
+                }
+                payments.add(paymentsByTerm);
+                interest.add(interestByTerm);
+            }
+            creditTiers.add(new CreditTierFinancing(tiers.get(tier), rates[tier], payments, interest));
+        }
+
+        return new FinancingGrid(
+                vehicleId,
+                vehicle.price(),
+                Arrays.stream(downs).boxed().collect(Collectors.toList()),
+                Arrays.stream(grid.terms).boxed().collect(Collectors.toList()),
+                creditTiers);
+    }
+
+    @Override
+    public AmortizationSchedule calculateAmortizationSchedule(
+            String vehicleId, double downPayment, int termMonths, String creditScore) {
+        VehicleCatalog.Snapshot catalog = VehicleCatalog.current();
+        VehicleInfo vehicle = catalog.byId(vehicleId);
+        if (vehicle == null || termMonths <= 0) return null;
+
+        double rate = financingRate(catalog, creditScore);
+        double principal = FinancingEngine.principal(vehicle.price(), downPayment);
+        FinancingEngine.Schedule schedule = FinancingEngine.schedule(principal, rate, termMonths);
+
+        return new AmortizationSchedule(
+                vehicleId,
+                principal,
+                rate,
+                termMonths,
+                cents(schedule.monthlyPayment),
+                cents(schedule.interest),
+                cents(schedule.principal),
+                cents(schedule.balance));
+    }
+
+    private static double financingRate(VehicleCatalog.Snapshot catalog, String creditScore) {
+        return catalog.financingRates().getOrDefault(creditScore.toLowerCase(), 7.9);
+    }
+
+    private static double cents(double amount) {
+        return Math.round(amount * 100) / 100.0;
+    }
+
+    private static double[] cents(double[] amounts) {
+        double[] rounded = new double[amounts.length];
+        for (int i = 0; i < amounts.length; i++) {
+            rounded[i] = cents(amounts[i]);
+        }
+        return rounded;
+    }
+
     @Override
     public InsuranceCost calculateInsuranceCosts(String vehicleId, String zipCode, DriverProfile driverProfile) {
         VehicleInfo vehicle = getVehicleDetails(vehicleId);
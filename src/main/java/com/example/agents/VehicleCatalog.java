@@ -0,0 +1,174 @@
+package com.example.agents;
+
+import com.example.agents.CommonRequirements.Dealer;
+import com.example.agents.CommonRequirements.VehicleInfo;
+import com.example.agents.CommonRequirements.VehicleMake;
+import com.example.llmtoolkit.util.Env;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Registry of the vehicle catalog shared by all tools.
+ *
+ * The catalog is held as an immutable {@link Snapshot} with its lookup indexes already built.
+ * Readers take the current snapshot without locking; a reload builds a complete new snapshot
+ * first and then swaps it in atomically, so a lookup never sees a half-built index.
+ *
+ * When the {@value #CATALOG_FILE_VARIABLE} environment variable points to a {@link CatalogFile},
+ * the catalog is memory-mapped from that file and {@link MockVehicleData} is never loaded.
+ */
+public class VehicleCatalog {
+
+    public static final String CATALOG_FILE_VARIABLE = "GM_CATALOG_FILE";
+
+    private static final AtomicLong VERSIONS = new AtomicLong();
+    private static final AtomicReference<Snapshot> CURRENT = new AtomicReference<>(initialSnapshot());
+
+    public static Snapshot current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Replaces the catalog with the given data and returns the new snapshot
+     */
+    public static Snapshot reload(
+            List<VehicleInfo> vehicles, List<Dealer> dealers, Map<String, Double> financingRates) {
+        return swap(new Snapshot(VERSIONS.incrementAndGet(), VehicleColumns.from(vehicles), dealers, financingRates));
+    }
+
+    /**
+     * Replaces the catalog with the contents of a {@link CatalogFile} and returns the new snapshot
+     */
+    public static Snapshot reload(Path catalogFile) throws IOException {
+        return swap(fromFile(catalogFile));
+    }
+
+    private static Snapshot swap(Snapshot next) {
+        // Concurrent reloads keep the most recent snapshot
+        return CURRENT.accumulateAndGet(
+                next, (previous, candidate) -> candidate.version() > previous.version() ? candidate : previous);
+    }
+
+    private static Snapshot initialSnapshot() {
+        String catalogFile = Env.get(CATALOG_FILE_VARIABLE);
+        if (catalogFile != null && !catalogFile.isBlank()) {
+            try {
+                return fromFile(Path.of(catalogFile.strip()));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open vehicle catalog " + catalogFile, e);
+            }
+        }
+        return new Snapshot(
+                VERSIONS.incrementAndGet(),
+                VehicleColumns.from(MockVehicleData.VEHICLES),
+                MockVehicleData.DEALERS,
+                MockVehicleData.FINANCING_RATES);
+    }
+
+    private static Snapshot fromFile(Path catalogFile) throws IOException {
+        CatalogFile.Contents contents = CatalogFile.open(catalogFile);
+        return new Snapshot(
+                VERSIONS.incrementAndGet(), contents.vehicles(), contents.dealers(), contents.financingRates());
+    }
+
+    private record MakeModel(VehicleMake make, String model) {}
+
+    /**
+     * Immutable view of the catalog stored as {@link VehicleColumns}, with a hash index on vehicle id,
+     * a case-folded (make, model) index and the {@link InventoryIndex} used by searches, together
+     * with the dealers and financing rates.
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final VehicleColumns columns;
+        private final Map<String, Integer> byId;
+        private final Map<MakeModel, Integer> byMakeModel;
+        private final InventoryIndex inventory;
+        private final List<Dealer> dealers;
+        private final Map<String, Double> financingRates;
+
+        private Snapshot(
+                long version, VehicleColumns columns, List<Dealer> dealers, Map<String, Double> financingRates) {
+            this.version = version;
+            this.columns = columns;
+            this.dealers = List.copyOf(dealers);
+            this.financingRates = Map.copyOf(financingRates);
+
+            VehicleColumns.StringColumn id = columns.id();
+            VehicleColumns.MakeColumn make = columns.make();
+            VehicleColumns.StringColumn model = columns.model();
+            Map<String, Integer> ids = new HashMap<>();
+            Map<MakeModel, Integer> makeModels = new HashMap<>();
+            for (int row = 0; row < columns.size(); row++) {
+                // The first vehicle wins, as with a scan over the list
+                ids.putIfAbsent(id.get(row), row);
+                if (make.get(row) != null && model.get(row) != null) {
+                    makeModels.putIfAbsent(
+                            new MakeModel(make.get(row), model.get(row).toLowerCase()), row);
+                }
+            }
+            this.byId = Collections.unmodifiableMap(ids);
+            this.byMakeModel = Collections.unmodifiableMap(makeModels);
+            this.inventory = InventoryIndex.build(columns);
+        }
+
+        public long version() {
+            return version;
+        }
+
+        public int size() {
+            return columns.size();
+        }
+
+        public VehicleInfo byId(String vehicleId) {
+            return vehicleId == null ? null : vehicleAt(byId.get(vehicleId));
+        }
+
+        public List<VehicleInfo> byIds(Collection<String> vehicleIds) {
+            BitSet rows = new BitSet(columns.size());
+            for (String vehicleId : vehicleIds) {
+                Integer row = vehicleId == null ? null : byId.get(vehicleId);
+                if (row != null) {
+                    rows.set(row);
+                }
+            }
+            return columns.vehicles(rows);
+        }
+
+        public VehicleInfo byMakeAndModel(VehicleMake make, String model) {
+            if (make == null || model == null) {
+                return null;
+            }
+            return vehicleAt(byMakeModel.get(new MakeModel(make, model.toLowerCase())));
+        }
+
+        public List<Dealer> dealers() {
+            return dealers;
+        }
+
+        public Map<String, Double> financingRates() {
+            return financingRates;
+        }
+
+        private VehicleInfo vehicleAt(Integer row) {
+            return row == null ? null : columns.vehicle(row);
+        }
+
+        VehicleColumns columns() {
+            return columns;
+        }
+
+        InventoryIndex inventory() {
+            return inventory;
+        }
+    }
+}
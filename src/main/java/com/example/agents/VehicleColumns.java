@@ -0,0 +1,437 @@
+package com.example.agents;
+
+import com.example.agents.CommonRequirements.VehicleInfo;
+import com.example.agents.CommonRequirements.VehicleMake;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column-oriented storage of the vehicle catalog.
+ *
+ * Every {@link VehicleInfo} component is stored as its own column: numeric fields in one primitive
+ * buffer per field, boolean flags and the presence of the optional EV range in bitsets, strings as
+ * codes into a per-column dictionary, and string lists as dictionary codes with one row bitmap per
+ * distinct value. Filters read the columns directly; a {@link VehicleInfo} record is only
+ * materialized by {@link #vehicle(int)} when a tool has to return the full record.
+ *
+ * Primitive buffers either wrap heap arrays, when built {@link #from(List)} records, or are views
+ * of a memory-mapped {@link CatalogFile}.
+ */
+final class VehicleColumns {
+
+    private static final RecordComponent[] COMPONENTS = VehicleInfo.class.getRecordComponents();
+    private static final MethodHandle CONSTRUCTOR = canonicalConstructor();
+
+    private final int size;
+    private final Column[] columns;
+
+    private VehicleColumns(int size, Column[] columns) {
+        this.size = size;
+        this.columns = columns;
+    }
+
+    /**
+     * Columns in {@link VehicleInfo} component order, as read from a {@link CatalogFile}
+     */
+    static VehicleColumns of(int size, Column[] columns) {
+        if (columns.length != COMPONENTS.length) {
+            throw new IllegalArgumentException(
+                    "Expected " + COMPONENTS.length + " vehicle columns, got " + columns.length);
+        }
+        for (int i = 0; i < COMPONENTS.length; i++) {
+            if (!columnType(COMPONENTS[i]).isInstance(columns[i])) {
+                throw new IllegalArgumentException("Column " + i + " does not hold vehicle component "
+                        + COMPONENTS[i].getName() + " of type " + COMPONENTS[i].getGenericType());
+            }
+        }
+        return new VehicleColumns(size, columns);
+    }
+
+    static VehicleColumns from(List<VehicleInfo> vehicles) {
+        Column[] columns = new Column[COMPONENTS.length];
+        for (int i = 0; i < COMPONENTS.length; i++) {
+            columns[i] = buildColumn(COMPONENTS[i], vehicles);
+        }
+        return new VehicleColumns(vehicles.size(), columns);
+    }
+
+    int size() {
+        return size;
+    }
+
+    Column columnAt(int index) {
+        return columns[index];
+    }
+
+    static String componentName(int index) {
+        return COMPONENTS[index].getName();
+    }
+
+    VehicleInfo vehicle(int row) {
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = columns[i].value(row);
+        }
+        try {
+            return (VehicleInfo) CONSTRUCTOR.invokeExact(values);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot materialize vehicle at row " + row, e);
+        }
+    }
+
+    List<VehicleInfo> vehicles(BitSet rows) {
+        List<VehicleInfo> result = new ArrayList<>(rows.cardinality());
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            result.add(vehicle(row));
+        }
+        return result;
+    }
+
+    StringColumn id() {
+        return column("id", StringColumn.class);
+    }
+
+    MakeColumn make() {
+        return column("make", MakeColumn.class);
+    }
+
+    StringColumn model() {
+        return column("model", StringColumn.class);
+    }
+
+    DoubleColumn price() {
+        return column("price", DoubleColumn.class);
+    }
+
+    StringColumn category() {
+        return column("category", StringColumn.class);
+    }
+
+    IntColumn mpgCity() {
+        return column("mpgCity", IntColumn.class);
+    }
+
+    IntColumn mpgHighway() {
+        return column("mpgHighway", IntColumn.class);
+    }
+
+    StringColumn fuelType() {
+        return column("fuelType", StringColumn.class);
+    }
+
+    StringListColumn safetyFeatures() {
+        return column("safetyFeatures", StringListColumn.class);
+    }
+
+    StringListColumn infotainmentFeatures() {
+        return column("infotainmentFeatures", StringListColumn.class);
+    }
+
+    <C extends Column> C column(String component, Class<C> type) {
+        for (int i = 0; i < COMPONENTS.length; i++) {
+            if (COMPONENTS[i].getName().equals(component)) {
+                return type.cast(columns[i]);
+            }
+        }
+        throw new IllegalArgumentException("Unknown vehicle component: " + component);
+    }
+
+    sealed interface Column
+            permits IntColumn, DoubleColumn, FlagColumn, OptionalIntColumn, MakeColumn, StringColumn, StringListColumn {
+        /**
+         * Boxed value of the row, used when materializing a record
+         */
+        Object value(int row);
+    }
+
+    record IntColumn(IntBuffer values) implements Column {
+        int get(int row) {
+            return values.get(row);
+        }
+
+        @Override
+        public Object value(int row) {
+            return values.get(row);
+        }
+    }
+
+    record DoubleColumn(DoubleBuffer values) implements Column {
+        double get(int row) {
+            return values.get(row);
+        }
+
+        @Override
+        public Object value(int row) {
+            return values.get(row);
+        }
+    }
+
+    record FlagColumn(BitSet values) implements Column {
+        boolean get(int row) {
+            return values.get(row);
+        }
+
+        @Override
+        public Object value(int row) {
+            return values.get(row);
+        }
+    }
+
+    /**
+     * Nullable integer, such as the range of electric vehicles
+     */
+    record OptionalIntColumn(IntBuffer values, BitSet present) implements Column {
+        boolean isPresent(int row) {
+            return present.get(row);
+        }
+
+        int get(int row) {
+            return values.get(row);
+        }
+
+        @Override
+        public Object value(int row) {
+            return present.get(row) ? values.get(row) : null;
+        }
+    }
+
+    /**
+     * Make ordinals, -1 for no make
+     */
+    record MakeColumn(ByteBuffer ordinals) implements Column {
+        private static final VehicleMake[] MAKES = VehicleMake.values();
+
+        VehicleMake get(int row) {
+            byte ordinal = ordinals.get(row);
+            return ordinal < 0 ? null : MAKES[ordinal];
+        }
+
+        @Override
+        public Object value(int row) {
+            return get(row);
+        }
+    }
+
+    /**
+     * Dictionary-encoded strings, code -1 for null
+     */
+    record StringColumn(String[] dictionary, IntBuffer codes) implements Column {
+        int code(int row) {
+            return codes.get(row);
+        }
+
+        String get(int row) {
+            int code = codes.get(row);
+            return code < 0 ? null : dictionary[code];
+        }
+
+        @Override
+        public Object value(int row) {
+            return get(row);
+        }
+    }
+
+    /**
+     * Dictionary-encoded string lists. Each row keeps its codes in list order between
+     * {@code offsets[row]} and {@code offsets[row + 1]}; {@code rowsByCode} holds, for each
+     * dictionary entry, the bitset of rows whose list contains it. A list can be null, its
+     * elements cannot.
+     */
+    record StringListColumn(String[] dictionary, IntBuffer offsets, IntBuffer codes, BitSet nulls, BitSet[] rowsByCode)
+            implements Column {
+
+        static StringListColumn of(String[] dictionary, IntBuffer offsets, IntBuffer codes, BitSet nulls) {
+            int size = offsets.limit() - 1;
+            BitSet[] rowsByCode = new BitSet[dictionary.length];
+            for (int code = 0; code < rowsByCode.length; code++) {
+                rowsByCode[code] = new BitSet(size);
+            }
+            for (int row = 0; row < size; row++) {
+                for (int i = offsets.get(row); i < offsets.get(row + 1); i++) {
+                    rowsByCode[codes.get(i)].set(row);
+                }
+            }
+            return new StringListColumn(dictionary, offsets, codes, nulls, rowsByCode);
+        }
+
+        BitSet rowsWith(int code) {
+            return rowsByCode[code];
+        }
+
+        List<String> get(int row) {
+            if (nulls.get(row)) {
+                return null;
+            }
+            int from = offsets.get(row);
+            String[] values = new String[offsets.get(row + 1) - from];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = dictionary[codes.get(from + i)];
+            }
+            return List.of(values);
+        }
+
+        @Override
+        public Object value(int row) {
+            return get(row);
+        }
+    }
+
+    private static Class<? extends Column> columnType(RecordComponent component) {
+        Class<?> type = component.getType();
+        if (type == int.class) {
+            return IntColumn.class;
+        } else if (type == double.class) {
+            return DoubleColumn.class;
+        } else if (type == boolean.class) {
+            return FlagColumn.class;
+        } else if (type == Integer.class) {
+            return OptionalIntColumn.class;
+        } else if (type == VehicleMake.class) {
+            return MakeColumn.class;
+        } else if (type == String.class) {
+            return StringColumn.class;
+        } else if (type == List.class && isListOfStrings(component.getGenericType())) {
+            return StringListColumn.class;
+        }
+        throw new IllegalStateException(
+                "Unsupported vehicle component type: " + component.getGenericType() + " " + component.getName());
+    }
+
+    private static Column buildColumn(RecordComponent component, List<VehicleInfo> vehicles) {
+        Class<? extends Column> columnType = columnType(component);
+        Object[] values = new Object[vehicles.size()];
+        for (int row = 0; row < values.length; row++) {
+            values[row] = read(component, vehicles.get(row));
+        }
+
+        if (columnType == IntColumn.class) {
+            return new IntColumn(IntBuffer.wrap(
+                    Arrays.stream(values).mapToInt(v -> (Integer) v).toArray()));
+        } else if (columnType == DoubleColumn.class) {
+            return new DoubleColumn(DoubleBuffer.wrap(
+                    Arrays.stream(values).mapToDouble(v -> (Double) v).toArray()));
+        } else if (columnType == FlagColumn.class) {
+            BitSet flags = new BitSet(values.length);
+            for (int row = 0; row < values.length; row++) {
+                flags.set(row, (Boolean) values[row]);
+            }
+            return new FlagColumn(flags);
+        } else if (columnType == OptionalIntColumn.class) {
+            int[] ints = new int[values.length];
+            BitSet present = new BitSet(values.length);
+            for (int row = 0; row < values.length; row++) {
+                if (values[row] != null) {
+                    ints[row] = (Integer) values[row];
+                    present.set(row);
+                }
+            }
+            return new OptionalIntColumn(IntBuffer.wrap(ints), present);
+        } else if (columnType == MakeColumn.class) {
+            byte[] ordinals = new byte[values.length];
+            for (int row = 0; row < values.length; row++) {
+                ordinals[row] = values[row] == null ? -1 : (byte) ((VehicleMake) values[row]).ordinal();
+            }
+            return new MakeColumn(ByteBuffer.wrap(ordinals));
+        } else if (columnType == StringColumn.class) {
+            Dictionary dictionary = new Dictionary();
+            int[] codes = new int[values.length];
+            for (int row = 0; row < values.length; row++) {
+                codes[row] = dictionary.encode((String) values[row]);
+            }
+            return new StringColumn(dictionary.toArray(), IntBuffer.wrap(codes));
+        } else {
+            return buildStringListColumn(component, vehicles, values);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static StringListColumn buildStringListColumn(
+            RecordComponent component, List<VehicleInfo> vehicles, Object[] values) {
+        Dictionary dictionary = new Dictionary();
+        int[] offsets = new int[values.length + 1];
+        List<Integer> codes = new ArrayList<>();
+        BitSet nulls = new BitSet(values.length);
+
+        for (int row = 0; row < values.length; row++) {
+            List<String> list = (List<String>) values[row];
+            if (list == null) {
+                nulls.set(row);
+            } else {
+                for (String value : list) {
+                    if (value == null) {
+                        throw new IllegalArgumentException(
+                                "Vehicle " + vehicles.get(row).id() + " has a null element in " + component.getName());
+                    }
+                    codes.add(dictionary.encode(value));
+                }
+            }
+            offsets[row + 1] = codes.size();
+        }
+        return StringListColumn.of(
+                dictionary.toArray(),
+                IntBuffer.wrap(offsets),
+                IntBuffer.wrap(codes.stream().mapToInt(Integer::intValue).toArray()),
+                nulls);
+    }
+
+    private static boolean isListOfStrings(Type type) {
+        return type instanceof ParameterizedType parameterized
+                && parameterized.getActualTypeArguments()[0] == String.class;
+    }
+
+    private static Object read(RecordComponent component, VehicleInfo vehicle) {
+        try {
+            return component.getAccessor().invoke(vehicle);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot read vehicle component " + component.getName(), e);
+        }
+    }
+
+    private static MethodHandle canonicalConstructor() {
+        Class<?>[] types =
+                Arrays.stream(COMPONENTS).map(RecordComponent::getType).toArray(Class<?>[]::new);
+        try {
+            return MethodHandles.lookup()
+                    .findConstructor(VehicleInfo.class, MethodType.methodType(void.class, types))
+                    .asSpreader(Object[].class, types.length)
+                    .asType(MethodType.methodType(VehicleInfo.class, Object[].class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Assigns consecutive codes to distinct non-null strings, -1 to null
+     */
+    private static class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            if (value == null) {
+                return -1;
+            }
+            return codes.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+        }
+
+        String[] toArray() {
+            return values.toArray(new String[0]);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.agents;
+
+import com.example.agents.CommonRequirements.CustomerProfile;
+import com.example.agents.CommonRequirements.VehicleCategory;
+import com.example.agents.CommonRequirements.VehicleRecommendation;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Ranks the catalog against a {@link CustomerProfile} and returns only the best K vehicles, so
+ * agents get a short ranked list instead of a full search result to sort in the prompt.
+ *
+ * Each vehicle gets a weighted score in [0, 1] from budget fit, preferred categories, towing
+ * capacity, fuel preference and seating. Scores are computed from the catalog columns and kept in a
+ * bounded min-heap of size K; only the K winners are materialized as records.
+ */
+public class VehicleRecommender {
+
+    private static final double REFERENCE_TOWING_LBS = 7000;
+
+    /**
+     * Relative weights of the score components; they need not sum to 1
+     */
+    public record Weights(double budget, double category, double towing, double fuel, double seating) {
+        public static final Weights DEFAULT = new Weights(0.35, 0.25, 0.15, 0.15, 0.10);
+
+        double total() {
+            return budget + category + towing + fuel + seating;
+        }
+    }
+
+    private record Candidate(int row, double score) {}
+
+    // Lowest score on top; on equal scores the later row is dropped first so catalog order wins
+    private static final Comparator<Candidate> WORST_FIRST =
+            Comparator.comparingDouble(Candidate::score).thenComparing(Candidate::row, Comparator.reverseOrder());
+
+    private final Weights weights;
+
+    public VehicleRecommender() {
+        this(Weights.DEFAULT);
+    }
+
+    public VehicleRecommender(Weights weights) {
+        if (weights.total() <= 0) {
+            throw new IllegalArgumentException("At least one recommendation weight must be positive");
+        }
+        this.weights = weights;
+    }
+
+    public List<VehicleRecommendation> recommend(CustomerProfile profile, int limit) {
+        return recommend(VehicleCatalog.current(), profile, limit);
+    }
+
+    List<VehicleRecommendation> recommend(VehicleCatalog.Snapshot catalog, CustomerProfile profile, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        VehicleColumns columns = catalog.columns();
+        ProfileScorer scorer = new ProfileScorer(catalog, profile);
+
+        PriorityQueue<Candidate> best = new PriorityQueue<>(limit + 1, WORST_FIRST);
+        for (int row = 0; row < columns.size(); row++) {
+            Candidate candidate = new Candidate(row, scorer.score(row));
+            if (best.size() < limit) {
+                best.add(candidate);
+            } else if (WORST_FIRST.compare(candidate, best.peek()) > 0) {
+                best.poll();
+                best.add(candidate);
+            }
+        }
+
+        List<Candidate> ranked = new ArrayList<>(best);
+        ranked.sort(WORST_FIRST.reversed());
+        List<VehicleRecommendation> recommendations = new ArrayList<>(ranked.size());
+        for (Candidate candidate : ranked) {
+            recommendations.add(new VehicleRecommendation(columns.vehicle(candidate.row()), candidate.score()));
+        }
+        return recommendations;
+    }
+
+    /**
+     * Scores rows against one profile, with the profile-dependent parts resolved once per query
+     */
+    private class ProfileScorer {
+        private final CustomerProfile profile;
+        private final VehicleColumns.DoubleColumn price;
+        private final VehicleColumns.DoubleColumn towing;
+        private final VehicleColumns.IntColumn seating;
+        private final VehicleColumns.StringColumn fuelType;
+        private final BitSet preferredRows;
+        private final boolean[] preferredFuelCodes;
+
+        ProfileScorer(VehicleCatalog.Snapshot catalog, CustomerProfile profile) {
+            VehicleColumns columns = catalog.columns();
+            this.profile = profile;
+            this.price = columns.price();
+            this.towing = columns.column("maxTowingCapacity", VehicleColumns.DoubleColumn.class);
+            this.seating = columns.column("seatingCapacity", VehicleColumns.IntColumn.class);
+            this.fuelType = columns.fuelType();
+
+            List<VehicleCategory> preferred = profile.preferredCategories();
+            if (preferred == null || preferred.isEmpty()) {
+                this.preferredRows = null;
+            } else {
+                this.preferredRows = new BitSet(columns.size());
+                for (VehicleCategory category : preferred) {
+                    preferredRows.or(catalog.inventory().rowsInCategory(category));
+                }
+            }
+
+            String fuelPreference = profile.fuelPreference();
+            if (fuelPreference == null || fuelPreference.isBlank()) {
+                this.preferredFuelCodes = null;
+            } else {
+                String wanted = fuelPreference.toLowerCase();
+                String[] dictionary = fuelType.dictionary();
+                this.preferredFuelCodes = new boolean[dictionary.length];
+                for (int code = 0; code < dictionary.length; code++) {
+                    // Preferences are free text such as "prefer electric", so match either way round
+                    String offered = dictionary[code].toLowerCase();
+                    preferredFuelCodes[code] = wanted.contains(offered) || offered.contains(wanted);
+                }
+            }
+        }
+
+        double score(int row) {
+            double score = weights.budget() * budgetFit(price.get(row))
+                    + weights.category() * (preferredRows == null || preferredRows.get(row) ? 1 : 0)
+                    + weights.towing()
+                            * (profile.needsTowing() ? Math.min(1, towing.get(row) / REFERENCE_TOWING_LBS) : 1)
+                    + weights.fuel() * fuelFit(fuelType.code(row))
+                    + weights.seating() * seatingFit(seating.get(row));
+            return score / weights.total();
+        }
+
+        private double budgetFit(double vehiclePrice) {
+            double min = profile.budgetMin();
+            double max = profile.budgetMax();
+            if (max <= 0 || (vehiclePrice >= min && vehiclePrice <= max)) {
+                return 1;
+            }
+            if (vehiclePrice > max) {
+                // Going over budget hurts twice as fast as staying under it
+                return Math.max(0, 1 - 2 * (vehiclePrice - max) / max);
+            }
+            return Math.max(0, 1 - (min - vehiclePrice) / min);
+        }
+
+        private double fuelFit(int code) {
+            if (preferredFuelCodes == null) {
+                return 1;
+            }
+            return code >= 0 && preferredFuelCodes[code] ? 1 : 0;
+        }
+
+        private double seatingFit(int seats) {
+            int needed = profile.familySize();
+            if (needed <= 0 || seats >= needed) {
+                return 1;
+            }
+            return (double) seats / needed;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.agents;
+
+import com.example.agents.CommonRequirements.ComparisonPoint;
+import com.example.agents.CommonRequirements.VehicleMake;
+import java.util.List;
+
+/**
+ * Summary views of tool results, used with {@link com.example.llmtoolkit.core.annotations.ToolResultView}.
+ *
+ * Only the component names matter: they select which fields of the full result are sent to the LLM.
+ * Search-style tools return summaries; the full record stays available through the detail tools.
+ */
+public interface VehicleViews {
+
+    record VehicleSummary(
+            String id,
+            VehicleMake make,
+            String model,
+            int year,
+            String trim,
+            double price,
+            String category,
+            String subcategory,
+            int mpgCity,
+            int mpgHighway,
+            String fuelType,
+            Integer range,
+            int horsepower,
+            String drivetrain,
+            int seatingCapacity,
+            double maxTowingCapacity,
+            double cargoVolume) {}
+
+    record VehicleName(String id, VehicleMake make, String model, int year, String trim) {}
+
+    record RecommendationSummary(VehicleSummary vehicle, double score) {}
+
+    record ComparisonSummary(List<VehicleName> vehicles, List<ComparisonPoint> comparisonPoints) {}
+}
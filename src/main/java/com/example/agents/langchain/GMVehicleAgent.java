@@ -1,5 +1,6 @@
 package com.example.agents.langchain;
 
+import com.example.llmtoolkit.core.ProjectingToolExecutor;
 import dev.langchain4j.memory.ChatMemory;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 import dev.langchain4j.model.chat.ChatModel;
@@ -46,7 +47,7 @@ public class GMVehicleAgent {
         this.assistant = AiServices.builder(VehicleAssistant.class)
                 .chatModel(model)
                 .chatMemory(chatMemory)
-                .tools(tools)
+                .tools(ProjectingToolExecutor.forTools(tools))
                 .build();
     }
 
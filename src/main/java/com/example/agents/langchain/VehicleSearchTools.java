@@ -2,8 +2,12 @@ package com.example.agents.langchain;
 
 import static com.example.agents.multiple.ToolLogger.logToolCall;
 
+import com.example.agents.CachingTools;
 import com.example.agents.CommonRequirements.*;
-import com.example.agents.ToolsImpl;
+import com.example.agents.VehicleViews;
+import com.example.llmtoolkit.core.ToolResultEncoding;
+import com.example.llmtoolkit.core.annotations.ToolResultFormat;
+import com.example.llmtoolkit.core.annotations.ToolResultView;
 import dev.langchain4j.agent.tool.Tool;
 import java.util.List;
 
@@ -13,16 +17,18 @@ import java.util.List;
  */
 public class VehicleSearchTools {
 
-    private final ToolsImpl tools = new ToolsImpl();
+    private final Tools tools = CachingTools.shared();
 
     @Tool(
             "Search for vehicles by make and model. Returns detailed information about a specific vehicle. Returns null if  not found.")
+    @ToolResultView
     public VehicleInfo searchVehicleByMakeAndModel(String make, String model) {
         logToolCall("searchVehicleByMakeAndModel", "make", make, "model", model);
         return tools.getVehicleByMakeAndModel(make, model);
     }
 
     @Tool("Get detailed information about a vehicle by its ID")
+    @ToolResultView
     public VehicleInfo getVehicleById(String vehicleId) {
         logToolCall("getVehicleById", "vehicleId", vehicleId);
         VehicleInfo vehicle = tools.getVehicleDetails(vehicleId);
@@ -34,6 +40,8 @@ public class VehicleSearchTools {
 
     @Tool(
             "Search vehicles by criteria. Category should be like 'Truck', 'SUV', 'Sedan', 'Sports Car', etc. NOT the make/brand. MinMpg is minimum miles per gallon (fuel efficiency), not year.")
+    @ToolResultView(VehicleViews.VehicleSummary.class)
+    @ToolResultFormat(ToolResultEncoding.TABLE)
     public List<VehicleInfo> searchVehicles(
             String category, Double minPrice, Double maxPrice, Integer minMpg, String fuelType) {
 
@@ -61,6 +69,7 @@ public class VehicleSearchTools {
     }
 
     @Tool("Compare multiple vehicles by their IDs")
+    @ToolResultView(VehicleViews.ComparisonSummary.class)
     public VehicleComparison compareVehicles(List<String> vehicleIds) {
         logToolCall("compareVehicles", "vehicleIds", vehicleIds);
         return tools.compareVehicles(vehicleIds);
@@ -91,15 +100,14 @@ public class VehicleSearchTools {
     }
 
     @Tool("Search all vehicles by make (brand like Chevrolet, GMC, Cadillac)")
+    @ToolResultView(VehicleViews.VehicleSummary.class)
+    @ToolResultFormat(ToolResultEncoding.TABLE)
     public List<VehicleInfo> searchVehiclesByMake(String make) {
         logToolCall("searchVehiclesByMake", "make", make);
         VehicleMake vehicleMake = VehicleMake.fromString(make);
         if (vehicleMake == null) {
             return List.of();
         }
-        SearchCriteria allVehiclesCriteria = new SearchCriteria(null, null, null, null, null, null);
-        return tools.searchVehicleInventory(allVehiclesCriteria).stream()
-                .filter(v -> v.make() == vehicleMake)
-                .collect(java.util.stream.Collectors.toList());
+        return tools.searchVehiclesByMake(vehicleMake);
     }
 }
@@ -1,12 +1,14 @@
 package com.example.agents.multiple;
 
 import com.example.llmtoolkit.core.annotations.Cue;
+import com.example.llmtoolkit.core.annotations.StreamedText;
 
 /**
- * Structured response from agents that includes psychological state analysis
+ * Structured response from agents that includes psychological state analysis. The response text is
+ * streamed first, the analysis follows it.
  */
 public record AgentResponse(
-        @Cue("The main response to the customer's query") String response,
+        @Cue("The main response to the customer's query") @StreamedText String response,
         @Cue(
                         "Brief assessment of customer's current psychological state (e.g., anxious, confused, excited, overwhelmed, decisive)"
                                 + "analyze and summarize the psychological state of the customer. Indicate their overall sentiment, any notable emotions, and possible personality traits (using the Big Five framework if possible)")
@@ -1,15 +1,20 @@
 package com.example.agents.multiple;
 
+import com.example.agents.CachingTools;
 import com.example.agents.CommonRequirements.*;
-import com.example.agents.ToolsImpl;
 import com.example.llmtoolkit.core.JacksonSourceResponseStructuringStrategy;
 import com.example.llmtoolkit.core.JteTemplateProcessor;
+import com.example.llmtoolkit.core.ProjectingToolExecutor;
+import com.example.llmtoolkit.core.StreamingResponse;
 import com.example.llmtoolkit.core.TemplatedLLMServiceFactory;
 import com.example.llmtoolkit.core.annotations.PT;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.service.MemoryId;
+import dev.langchain4j.service.memory.ChatMemoryAccess;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -19,7 +24,7 @@ import java.util.List;
 public class AvailabilityCoordinatorAgent {
 
     static class AvailabilityTools {
-        private final ToolsImpl tools = new ToolsImpl();
+        private final Tools tools = CachingTools.shared();
 
         @Tool("Check vehicle availability at dealers")
         public VehicleAvailability checkAvailability(
@@ -55,30 +60,49 @@ public class AvailabilityCoordinatorAgent {
         }
     }
 
-    interface AvailabilityAssistant {
+    interface AvailabilityAssistant extends ChatMemoryAccess {
         @PT(templatePath = "availability_coordinator.jte")
-        AgentResponse assistWithAvailability();
+        AgentResponse assistWithAvailability(@MemoryId String sessionId);
+
+        @PT(templatePath = "availability_coordinator.jte")
+        StreamingResponse<AgentResponse> assistWithAvailabilityStreaming(@MemoryId String sessionId);
     }
 
     private final AvailabilityAssistant assistant;
-    private final ConversationState conversationState;
+    private final Conversations conversations;
+
+    public AvailabilityCoordinatorAgent(ChatModel model, Conversations conversations) {
+        this(model, null, conversations);
+    }
 
-    public AvailabilityCoordinatorAgent(ChatModel model, ConversationState conversationState) {
-        this.conversationState = conversationState;
+    public AvailabilityCoordinatorAgent(
+            ChatModel model, StreamingChatModel streamingModel, Conversations conversations) {
+        this.conversations = conversations;
         this.assistant = TemplatedLLMServiceFactory.builder()
                 .serviceStrategy(new JacksonSourceResponseStructuringStrategy())
                 .model(model)
+                .streamingModel(streamingModel)
                 .templateProcessor(JteTemplateProcessor.create())
                 .aiServiceCustomizer(aiServices -> {
-                    aiServices.tools(new AvailabilityTools(), new SharedVehicleSearchTools());
-                    aiServices.chatMemory(conversationState.getChatMemory());
+                    aiServices.tools(
+                            ProjectingToolExecutor.forTools(new AvailabilityTools(), new SharedVehicleSearchTools()));
+                    aiServices.chatMemoryProvider(conversations);
                 })
                 .build()
                 .create(AvailabilityAssistant.class);
+        conversations.onEviction(assistant::evictChatMemory);
+    }
+
+    public AgentResponse execute(String sessionId, String query) {
+        conversations.get(sessionId).add(UserMessage.from(query));
+        return assistant.assistWithAvailability(sessionId);
     }
 
-    public AgentResponse execute(String query) {
-        conversationState.getChatMemory().add(UserMessage.from(query));
-        return assistant.assistWithAvailability();
+    /**
+     * Like {@link #execute}, with the response text available while it is generated; needs a streaming model
+     */
+    public StreamingResponse<AgentResponse> executeStreaming(String sessionId, String query) {
+        conversations.get(sessionId).add(UserMessage.from(query));
+        return assistant.assistWithAvailabilityStreaming(sessionId);
     }
 }
@@ -1,19 +1,114 @@
 package com.example.agents.multiple;
 
+import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.memory.ChatMemory;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import dev.langchain4j.store.memory.chat.InMemoryChatMemoryStore;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 /**
- * Simple conversation state that holds ChatMemory for sharing across agents
+ * State of one session: the ChatMemory shared by its agents, and the routing state of its turns.
+ * Turns of a session run one at a time, see {@link #inTurn}; sessions do not share any state.
  */
 public class ConversationState {
+    static final int MAX_MESSAGES = 100;
+
+    private final String id;
     private final ChatMemory chatMemory;
+    private final ReentrantLock turn = new ReentrantLock();
+    private final Set<String> speculating = ConcurrentHashMap.newKeySet();
+    private volatile String previousAgent;
+
+    public ConversationState(String id) {
+        this(id, new InMemoryChatMemoryStore());
+    }
+
+    /**
+     * @param store holds the messages, which are there already when the session continues
+     */
+    public ConversationState(String id, ChatMemoryStore store) {
+        this(id, MAX_MESSAGES, store);
+    }
+
+    private ConversationState(String id, int maxMessages, ChatMemoryStore store) {
+        this.id = id;
+        this.chatMemory = MessageWindowChatMemory.builder()
+                .id(id)
+                .maxMessages(maxMessages)
+                .chatMemoryStore(store)
+                .build();
+    }
+
+    /**
+     * State for speculative runs, which holds a copy of another state: it keeps all messages, so the
+     * messages added by the run are the ones after the copy. Its messages stay on the heap.
+     */
+    static ConversationState forSpeculation(String id) {
+        return new ConversationState(id, Integer.MAX_VALUE, new InMemoryChatMemoryStore());
+    }
 
-    public ConversationState() {
-        this.chatMemory = MessageWindowChatMemory.withMaxMessages(100);
+    public String getId() {
+        return id;
     }
 
     public ChatMemory getChatMemory() {
         return chatMemory;
     }
+
+    /**
+     * Runs a turn of the session, after the turns already running or waiting
+     */
+    <T> T inTurn(Supplier<T> action) {
+        turn.lock();
+        try {
+            return action.get();
+        } finally {
+            turn.unlock();
+        }
+    }
+
+    /**
+     * The agent that answered the previous message, or null
+     */
+    String previousAgent() {
+        return previousAgent;
+    }
+
+    void setPreviousAgent(String agent) {
+        this.previousAgent = agent;
+    }
+
+    /**
+     * Marks a speculative run of the agent as started, false when its previous run has not ended
+     */
+    boolean startSpeculating(String agent) {
+        return speculating.add(agent);
+    }
+
+    void endSpeculating(String agent) {
+        speculating.remove(agent);
+    }
+
+    /**
+     * Replaces the messages with those of the other state, returns their number
+     */
+    int copyFrom(ConversationState other) {
+        List<ChatMessage> messages = other.chatMemory.messages();
+        chatMemory.clear();
+        messages.forEach(chatMemory::add);
+        return messages.size();
+    }
+
+    /**
+     * Adds the messages of the other state from the given index on
+     */
+    void appendFrom(ConversationState other, int fromIndex) {
+        List<ChatMessage> messages = other.chatMemory.messages();
+        messages.subList(fromIndex, messages.size()).forEach(chatMemory::add);
+    }
 }
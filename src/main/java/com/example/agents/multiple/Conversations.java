@@ -0,0 +1,180 @@
+package com.example.agents.multiple;
+
+import com.example.llmtoolkit.memory.ChatMemoryStores;
+import com.example.llmtoolkit.util.Env;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import dev.langchain4j.store.memory.chat.InMemoryChatMemoryStore;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The {@link ConversationState} of every session, by session id, and the chat memory provider of the
+ * agents: the agents are built once and resolve the memory of each call from its session id, so any
+ * number of sessions share them. The messages are kept in a {@link ChatMemoryStore}, by default the
+ * one selected by {@link ChatMemoryStores}. A session's state is created by its first message, or the
+ * first after a restart, and dropped from the heap after {@link #IDLE_MINUTES_VARIABLE} minutes
+ * without one (30 by default). A persistent store keeps the messages until {@link #end}; an
+ * {@link InMemoryChatMemoryStore} drops them with the state, as no later message could continue them
+ * after a restart either.
+ *
+ * The agents' services keep the memories they resolved, so they register with {@link #onEviction}
+ * to let go of them when a session or fork is dropped.
+ */
+public final class Conversations implements ChatMemoryProvider {
+
+    public static final String IDLE_MINUTES_VARIABLE = "GM_SESSION_IDLE_MINUTES";
+    private static final long DEFAULT_IDLE_MINUTES = 30;
+
+    private final ChatMemoryStore store;
+    private final Cache<String, ConversationState> states;
+    private final List<Consumer<Object>> evictionListeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong forks = new AtomicLong();
+
+    public Conversations() {
+        this(ChatMemoryStores.fromEnv());
+    }
+
+    public Conversations(ChatMemoryStore store) {
+        this.store = store;
+        boolean inMemory = store instanceof InMemoryChatMemoryStore;
+        String idleMinutes = Env.get(IDLE_MINUTES_VARIABLE);
+        this.states = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(
+                        idleMinutes == null || idleMinutes.isBlank()
+                                ? DEFAULT_IDLE_MINUTES
+                                : Long.parseLong(idleMinutes.strip())))
+                // Runs within the removal, so a session continued meanwhile keeps its new messages
+                .evictionListener((String id, ConversationState state, RemovalCause cause) -> {
+                    if (inMemory && cause == RemovalCause.EXPIRED) {
+                        store.deleteMessages(id);
+                    }
+                })
+                .removalListener((String id, ConversationState state, RemovalCause cause) ->
+                        evictionListeners.forEach(listener -> listener.accept(id)))
+                .build();
+    }
+
+    @Override
+    public ChatMemory get(Object memoryId) {
+        return state(memoryId.toString()).getChatMemory();
+    }
+
+    /**
+     * The state of the session, created when it has none
+     */
+    public ConversationState state(String sessionId) {
+        return states.get(sessionId, id -> new ConversationState(id, store));
+    }
+
+    /**
+     * Drops the session and its messages
+     */
+    public void end(String sessionId) {
+        states.invalidate(sessionId);
+        store.deleteMessages(sessionId);
+    }
+
+    /**
+     * Number of sessions and forks held on the heap, approximately
+     */
+    public long size() {
+        return states.estimatedSize();
+    }
+
+    /**
+     * @param listener called with the id of each dropped session or fork
+     */
+    void onEviction(Consumer<Object> listener) {
+        evictionListeners.add(listener);
+    }
+
+    /**
+     * A copy of the conversation under an id of its own
+     *
+     * @param onDropped called when the fork is dropped
+     */
+    Fork fork(ConversationState conversation, Runnable onDropped) {
+        ConversationState state =
+                ConversationState.forSpeculation(conversation.getId() + "#" + forks.incrementAndGet());
+        int copied = state.copyFrom(conversation);
+        states.put(state.getId(), state);
+        return new Fork(state, copied, onDropped);
+    }
+
+    /**
+     * A copy of a conversation for one run of an agent next to the conversation's own agents. It is
+     * released by the run, when it ends, and by its owner, when the messages have been taken or
+     * dropped; it is dropped after both, so a cancelled run never writes to a dropped fork.
+     */
+    final class Fork {
+        private final ConversationState state;
+        private final int copied;
+        private final Runnable onDropped;
+        private final AtomicInteger holders = new AtomicInteger(2);
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        private Fork(ConversationState state, int copied, Runnable onDropped) {
+            this.state = state;
+            this.copied = copied;
+            this.onDropped = onDropped;
+        }
+
+        /**
+         * The run, answering under the fork's id; it does not start once the fork is cancelled
+         */
+        <T> Callable<T> run(Function<String, T> answer) {
+            return () -> {
+                if (!started.compareAndSet(false, true)) {
+                    throw new CancellationException();
+                }
+                try {
+                    return answer.apply(state.getId());
+                } finally {
+                    release();
+                }
+            };
+        }
+
+        /**
+         * Adds the messages of the run to the conversation it was copied from
+         */
+        void appendTo(ConversationState conversation) {
+            conversation.appendFrom(state, copied);
+        }
+
+        /**
+         * Releases the owner's hold
+         */
+        void release() {
+            if (holders.decrementAndGet() == 0) {
+                states.invalidate(state.getId());
+                onDropped.run();
+            }
+        }
+
+        /**
+         * Cancels the run and releases the owner's hold, and the run's when it never started
+         */
+        void cancel(Future<?> run) {
+            if (started.compareAndSet(false, true)) {
+                release();
+            }
+            run.cancel(true);
+            release();
+        }
+    }
+}
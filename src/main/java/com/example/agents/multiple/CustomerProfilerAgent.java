@@ -1,16 +1,24 @@
 package com.example.agents.multiple;
 
+import com.example.agents.CachingTools;
 import com.example.agents.CommonRequirements.*;
-import com.example.agents.MockVehicleData;
-import com.example.agents.ToolsImpl;
+import com.example.agents.VehicleViews;
 import com.example.llmtoolkit.core.JacksonSourceResponseStructuringStrategy;
 import com.example.llmtoolkit.core.JteTemplateProcessor;
+import com.example.llmtoolkit.core.ProjectingToolExecutor;
+import com.example.llmtoolkit.core.StreamingResponse;
 import com.example.llmtoolkit.core.TemplatedLLMServiceFactory;
+import com.example.llmtoolkit.core.ToolResultEncoding;
 import com.example.llmtoolkit.core.annotations.PT;
+import com.example.llmtoolkit.core.annotations.ToolResultFormat;
+import com.example.llmtoolkit.core.annotations.ToolResultView;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.service.MemoryId;
+import dev.langchain4j.service.memory.ChatMemoryAccess;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -21,7 +29,7 @@ import java.util.stream.Collectors;
 public class CustomerProfilerAgent {
 
     static class ProfilerTools {
-        private final ToolsImpl tools = new ToolsImpl();
+        private final Tools tools = CachingTools.shared();
 
         @Tool("Analyze customer needs based on family size, usage, and preferences")
         public CustomerProfile analyzeNeeds(
@@ -94,13 +102,14 @@ public class CustomerProfilerAgent {
         }
 
         @Tool("Filter vehicles based on customer preferences")
+        @ToolResultView(VehicleViews.VehicleSummary.class)
+        @ToolResultFormat(ToolResultEncoding.TABLE)
         public List<VehicleInfo> filterVehicles(
                 @P("List of vehicle IDs to filter") List<String> vehicleIds,
                 @P("Customer profile") CustomerProfile profile) {
             ToolLogger.logToolCall("filterVehicles", "vehicleIds", vehicleIds, "profile", profile);
 
-            return MockVehicleData.VEHICLES.stream()
-                    .filter(v -> vehicleIds.contains(v.id()))
+            return tools.getVehicles(vehicleIds).stream()
                     .filter(v -> v.price() >= profile.budgetMin() && v.price() <= profile.budgetMax())
                     .filter(v -> {
                         String vehicleCategory = v.category();
@@ -130,30 +139,48 @@ public class CustomerProfilerAgent {
         }
     }
 
-    interface ProfilerAssistant {
+    interface ProfilerAssistant extends ChatMemoryAccess {
         @PT(templatePath = "customer_profiler.jte")
-        AgentResponse assistCustomer();
+        AgentResponse assistCustomer(@MemoryId String sessionId);
+
+        @PT(templatePath = "customer_profiler.jte")
+        StreamingResponse<AgentResponse> assistCustomerStreaming(@MemoryId String sessionId);
     }
 
     private final ProfilerAssistant assistant;
-    private final ConversationState conversationState;
+    private final Conversations conversations;
+
+    public CustomerProfilerAgent(ChatModel model, Conversations conversations) {
+        this(model, null, conversations);
+    }
 
-    public CustomerProfilerAgent(ChatModel model, ConversationState conversationState) {
-        this.conversationState = conversationState;
+    public CustomerProfilerAgent(ChatModel model, StreamingChatModel streamingModel, Conversations conversations) {
+        this.conversations = conversations;
         this.assistant = TemplatedLLMServiceFactory.builder()
                 .serviceStrategy(new JacksonSourceResponseStructuringStrategy())
                 .model(model)
+                .streamingModel(streamingModel)
                 .templateProcessor(JteTemplateProcessor.create())
                 .aiServiceCustomizer(aiServices -> {
-                    aiServices.tools(new ProfilerTools(), new SharedVehicleSearchTools());
-                    aiServices.chatMemory(conversationState.getChatMemory());
+                    aiServices.tools(
+                            ProjectingToolExecutor.forTools(new ProfilerTools(), new SharedVehicleSearchTools()));
+                    aiServices.chatMemoryProvider(conversations);
                 })
                 .build()
                 .create(ProfilerAssistant.class);
+        conversations.onEviction(assistant::evictChatMemory);
+    }
+
+    public AgentResponse execute(String sessionId, String query) {
+        conversations.get(sessionId).add(UserMessage.from(query));
+        return assistant.assistCustomer(sessionId);
     }
 
-    public AgentResponse execute(String query) {
-        conversationState.getChatMemory().add(UserMessage.from(query));
-        return assistant.assistCustomer();
+    /**
+     * Like {@link #execute}, with the response text available while it is generated; needs a streaming model
+     */
+    public StreamingResponse<AgentResponse> executeStreaming(String sessionId, String query) {
+        conversations.get(sessionId).add(UserMessage.from(query));
+        return assistant.assistCustomerStreaming(sessionId);
     }
 }
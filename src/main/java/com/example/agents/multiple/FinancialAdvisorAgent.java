@@ -1,18 +1,26 @@
 package com.example.agents.multiple;
 
+import com.example.agents.CachingTools;
+import com.example.agents.CommonRequirements.AmortizationSchedule;
 import com.example.agents.CommonRequirements.BudgetRecommendation;
 import com.example.agents.CommonRequirements.DriverProfile;
+import com.example.agents.CommonRequirements.FinancingGrid;
 import com.example.agents.CommonRequirements.FinancingOption;
 import com.example.agents.CommonRequirements.InsuranceCost;
-import com.example.agents.ToolsImpl;
+import com.example.agents.CommonRequirements.Tools;
 import com.example.llmtoolkit.core.JacksonSourceResponseStructuringStrategy;
 import com.example.llmtoolkit.core.JteTemplateProcessor;
+import com.example.llmtoolkit.core.ProjectingToolExecutor;
+import com.example.llmtoolkit.core.StreamingResponse;
 import com.example.llmtoolkit.core.TemplatedLLMServiceFactory;
 import com.example.llmtoolkit.core.annotations.PT;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.service.MemoryId;
+import dev.langchain4j.service.memory.ChatMemoryAccess;
 import java.util.List;
 
 /**
@@ -21,7 +29,7 @@ import java.util.List;
 public class FinancialAdvisorAgent {
 
     static class FinancialTools {
-        private final ToolsImpl tools = new ToolsImpl();
+        private final Tools tools = CachingTools.shared();
 
         @Tool("Calculate financing options for a vehicle")
         public FinancingOption calculateFinancing(
@@ -50,6 +58,50 @@ public class FinancialAdvisorAgent {
             return tools.compareFinancingOptions(vehicleId, creditScore);
         }
 
+        @Tool("Calculate the full financing grid for a vehicle in one call: monthly payment and total interest "
+                + "for every down payment, loan term (24 to 84 months) and credit tier. "
+                + "Use this instead of calling calculateFinancing repeatedly to compare options.")
+        public FinancingGrid calculateFinancingGrid(
+                @P("Vehicle ID") String vehicleId,
+                @P(
+                                value =
+                                        "Down payment amounts to compare, or empty for 0%, 10%, 20% and 30% of the price",
+                                required = false)
+                        List<Double> downPayments,
+                @P(value = "Credit score (excellent, good, fair, subprime), or empty for all tiers", required = false)
+                        String creditScore) {
+            ToolLogger.logToolCall(
+                    "calculateFinancingGrid",
+                    "vehicleId",
+                    vehicleId,
+                    "downPayments",
+                    downPayments,
+                    "creditScore",
+                    creditScore);
+
+            return tools.calculateFinancingGrid(vehicleId, downPayments, creditScore);
+        }
+
+        @Tool("Month by month amortization schedule of a loan: interest, principal and remaining balance")
+        public AmortizationSchedule getAmortizationSchedule(
+                @P("Vehicle ID") String vehicleId,
+                @P("Down payment amount") double downPayment,
+                @P("Loan term in months") int termMonths,
+                @P("Credit score (excellent, good, fair, subprime)") String creditScore) {
+            ToolLogger.logToolCall(
+                    "getAmortizationSchedule",
+                    "vehicleId",
+                    vehicleId,
+                    "downPayment",
+                    "$" + downPayment,
+                    "termMonths",
+                    termMonths,
+                    "creditScore",
+                    creditScore);
+
+            return tools.calculateAmortizationSchedule(vehicleId, downPayment, termMonths, creditScore);
+        }
+
         @Tool("Calculate insurance costs")
         public InsuranceCost calculateInsurance(
                 @P("Vehicle ID") String vehicleId,
@@ -71,30 +123,48 @@ public class FinancialAdvisorAgent {
         }
     }
 
-    interface FinancialAssistant {
+    interface FinancialAssistant extends ChatMemoryAccess {
+        @PT(templatePath = "financial_advisor.jte")
+        AgentResponse provideFinancialAdvice(@MemoryId String sessionId);
+
         @PT(templatePath = "financial_advisor.jte")
-        AgentResponse provideFinancialAdvice();
+        StreamingResponse<AgentResponse> provideFinancialAdviceStreaming(@MemoryId String sessionId);
     }
 
     private final FinancialAssistant assistant;
-    private final ConversationState conversationState;
+    private final Conversations conversations;
 
-    public FinancialAdvisorAgent(ChatModel model, ConversationState conversationState) {
-        this.conversationState = conversationState;
+    public FinancialAdvisorAgent(ChatModel model, Conversations conversations) {
+        this(model, null, conversations);
+    }
+
+    public FinancialAdvisorAgent(ChatModel model, StreamingChatModel streamingModel, Conversations conversations) {
+        this.conversations = conversations;
         this.assistant = TemplatedLLMServiceFactory.builder()
                 .serviceStrategy(new JacksonSourceResponseStructuringStrategy())
                 .model(model)
+                .streamingModel(streamingModel)
                 .templateProcessor(JteTemplateProcessor.create())
                 .aiServiceCustomizer(aiServices -> {
-                    aiServices.tools(new FinancialTools(), new SharedVehicleSearchTools());
-                    aiServices.chatMemory(conversationState.getChatMemory());
+                    aiServices.tools(
+                            ProjectingToolExecutor.forTools(new FinancialTools(), new SharedVehicleSearchTools()));
+                    aiServices.chatMemoryProvider(conversations);
                 })
                 .build()
                 .create(FinancialAssistant.class);
+        conversations.onEviction(assistant::evictChatMemory);
+    }
+
+    public AgentResponse execute(String sessionId, String query) {
+        conversations.get(sessionId).add(UserMessage.from(query));
+        return assistant.provideFinancialAdvice(sessionId);
     }
 
-    public AgentResponse execute(String query) {
-        conversationState.getChatMemory().add(UserMessage.from(query));
-        return assistant.provideFinancialAdvice();
+    /**
+     * Like {@link #execute}, with the response text available while it is generated; needs a streaming model
+     */
+    public StreamingResponse<AgentResponse> executeStreaming(String sessionId, String query) {
+        conversations.get(sessionId).add(UserMessage.from(query));
+        return assistant.provideFinancialAdviceStreaming(sessionId);
     }
 }
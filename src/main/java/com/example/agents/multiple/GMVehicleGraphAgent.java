@@ -1,74 +1,241 @@
 package com.example.agents.multiple;
 
+import com.example.llmtoolkit.core.StreamingResponse;
+import com.example.llmtoolkit.util.Env;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Main GM Vehicle Graph Agent that orchestrates multiple specialized agents
+ *
+ * The agents are built once and hold no conversation: each message names its session, whose state
+ * comes from {@link Conversations}, so one instance serves any number of sessions. Messages of
+ * different sessions are processed in parallel, those of one session in turn.
+ *
+ * With {@link SpeculativeExecution} enabled, the specialists predicted by the local classifier and
+ * the previous route start answering while the LLM router runs. A message the router splits between
+ * several agents is answered by all of them at once, up to {@link #FAN_OUT_VARIABLE} agents (3 by
+ * default): the other agents answer over forks of the conversation, and their answers follow the
+ * main agent's answer.
  */
 public class GMVehicleGraphAgent {
 
+    public static final String FAN_OUT_VARIABLE = "GM_FAN_OUT_AGENTS";
+    private static final int DEFAULT_FAN_OUT = 3;
+
+    private static final String DEFAULT_AGENT = "TECHNICAL_EXPERT";
+    private static final String DEFAULT_SESSION = "default";
+    private static final List<String> AGENTS = List.of(
+            "CUSTOMER_PROFILER",
+            "TECHNICAL_EXPERT",
+            "FINANCIAL_ADVISOR",
+            "AVAILABILITY_COORDINATOR",
+            "NEGOTIATION_COACH",
+            "EV_SPECIALIST");
+
     private final IntentClassifierAgent router;
-    private final CustomerProfilerAgent customerProfiler;
-    private final TechnicalExpertAgent technicalExpert;
-    private final FinancialAdvisorAgent financialAdvisor;
-    private final AvailabilityCoordinatorAgent availabilityCoordinator;
-    private final NegotiationCoachAgent negotiationCoach;
-    private final EVSpecialistAgent evSpecialist;
-    private final ConversationState conversationState;
+    private final Map<String, Specialist> specialists = new LinkedHashMap<>();
+    private final SpeculativeExecution speculation;
+    private final int maxFanOut;
+    private final Conversations conversations;
+
+    /**
+     * A specialist agent; its calls take the session id and the message
+     */
+    record Specialist(
+            String label,
+            BiFunction<String, String, AgentResponse> execute,
+            BiFunction<String, String, StreamingResponse<AgentResponse>> executeStreaming) {}
+
+    /**
+     * An agent answering its part of a multi-topic message over a fork of the conversation
+     */
+    private record Part(Conversations.Fork fork, Future<AgentResponse> answer) {}
 
     public GMVehicleGraphAgent(ChatModel model) {
-        // Create shared conversation state
-        this.conversationState = new ConversationState();
+        this(model, null);
+    }
+
+    /**
+     * @param streamingModel model for {@link #processQueryStreaming}, may be null when it is not used
+     */
+    public GMVehicleGraphAgent(ChatModel model, StreamingChatModel streamingModel) {
+        this(model, streamingModel, new Conversations());
+    }
+
+    /**
+     * @param conversations the sessions, which the agents resolve their chat memory from
+     */
+    public GMVehicleGraphAgent(ChatModel model, StreamingChatModel streamingModel, Conversations conversations) {
+        this.conversations = conversations;
+
+        // Initialize all agents once, for all sessions
+        this.router = new IntentClassifierAgent(model, conversations);
+        for (String agent : AGENTS) {
+            specialists.put(agent, specialist(agent, model, streamingModel, conversations));
+        }
+        this.speculation = new SpeculativeExecution(specialists, conversations);
+        String maxFanOut = Env.get(FAN_OUT_VARIABLE);
+        this.maxFanOut =
+                maxFanOut == null || maxFanOut.isBlank() ? DEFAULT_FAN_OUT : Integer.parseInt(maxFanOut.strip());
+    }
 
-        // Initialize all agents - only router and technicalExpert use ConversationState for now
-        this.router = new IntentClassifierAgent(model, conversationState);
-        this.customerProfiler = new CustomerProfilerAgent(model, conversationState);
-        this.technicalExpert = new TechnicalExpertAgent(model, conversationState);
-        this.financialAdvisor = new FinancialAdvisorAgent(model, conversationState);
-        this.availabilityCoordinator = new AvailabilityCoordinatorAgent(model, conversationState);
-        this.negotiationCoach = new NegotiationCoachAgent(model, conversationState);
-        this.evSpecialist = new EVSpecialistAgent(model, conversationState);
+    private static Specialist specialist(
+            String agent, ChatModel model, StreamingChatModel streamingModel, Conversations conversations) {
+        return switch (agent) {
+            case "CUSTOMER_PROFILER" -> {
+                CustomerProfilerAgent customerProfiler =
+                        new CustomerProfilerAgent(model, streamingModel, conversations);
+                yield new Specialist(
+                        "Customer Profiler", customerProfiler::execute, customerProfiler::executeStreaming);
+            }
+            case "TECHNICAL_EXPERT" -> {
+                TechnicalExpertAgent technicalExpert = new TechnicalExpertAgent(model, streamingModel, conversations);
+                yield new Specialist("Technical Expert", technicalExpert::execute, technicalExpert::executeStreaming);
+            }
+            case "FINANCIAL_ADVISOR" -> {
+                FinancialAdvisorAgent financialAdvisor =
+                        new FinancialAdvisorAgent(model, streamingModel, conversations);
+                yield new Specialist(
+                        "Financial Advisor", financialAdvisor::execute, financialAdvisor::executeStreaming);
+            }
+            case "AVAILABILITY_COORDINATOR" -> {
+                AvailabilityCoordinatorAgent availabilityCoordinator =
+                        new AvailabilityCoordinatorAgent(model, streamingModel, conversations);
+                yield new Specialist(
+                        "Availability Coordinator",
+                        availabilityCoordinator::execute,
+                        availabilityCoordinator::executeStreaming);
+            }
+            case "NEGOTIATION_COACH" -> {
+                NegotiationCoachAgent negotiationCoach =
+                        new NegotiationCoachAgent(model, streamingModel, conversations);
+                yield new Specialist(
+                        "Negotiation Coach", negotiationCoach::execute, negotiationCoach::executeStreaming);
+            }
+            case "EV_SPECIALIST" -> {
+                EVSpecialistAgent evSpecialist = new EVSpecialistAgent(model, streamingModel, conversations);
+                yield new Specialist("EV Specialist", evSpecialist::execute, evSpecialist::executeStreaming);
+            }
+            default -> throw new IllegalArgumentException("Unknown agent " + agent);
+        };
     }
 
+    /**
+     * Answers a message of the default session
+     */
     public String processQuery(String userQuery) {
+        return processQuery(DEFAULT_SESSION, userQuery);
+    }
+
+    public String processQuery(String sessionId, String userQuery) {
+        return process(sessionId, userQuery, null);
+    }
+
+    /**
+     * Like {@link #processQuery(String)}, passing the response text to onPartialText while it is generated
+     */
+    public String processQueryStreaming(String userQuery, Consumer<String> onPartialText) {
+        return processQueryStreaming(DEFAULT_SESSION, userQuery, onPartialText);
+    }
+
+    /**
+     * Like {@link #processQuery(String, String)}, passing the response text to onPartialText while it is generated
+     */
+    public String processQueryStreaming(String sessionId, String userQuery, Consumer<String> onPartialText) {
+        return process(sessionId, userQuery, onPartialText);
+    }
+
+    private String process(String sessionId, String userQuery, Consumer<String> onPartialText) {
+        ConversationState conversation = conversations.state(sessionId);
+        return conversation.inTurn(() -> processTurn(conversation, userQuery, onPartialText));
+    }
+
+    private String processTurn(ConversationState conversation, String userQuery, Consumer<String> onPartialText) {
+        String sessionId = conversation.getId();
 
         System.out.println("\n🔄 Routing: Intent Classifier analyzing query...");
-        IntentClassifierAgent.IntentClassification classification = router.classifyIntentWithReason(userQuery);
+        SpeculativeExecution.Turn[] speculative = {null};
+        IntentClassifierAgent.IntentClassification classification =
+                router.classifyIntentWithReason(sessionId, userQuery, prediction -> {
+                    if (speculation.isEnabled()) {
+                        speculative[0] = speculation.start(
+                                speculationCandidates(prediction, conversation),
+                                conversation,
+                                userQuery,
+                                onPartialText);
+                    }
+                });
         String nextAgentName = classification.agent();
         String reason = classification.reasonForChoosing();
 
-        AgentResponse agentResponse =
-                switch (nextAgentName) {
-                    case "CUSTOMER_PROFILER" -> {
-                        System.out.println("➡️  Agent: Customer Profiler (" + reason + ")");
-                        yield customerProfiler.execute(userQuery);
-                    }
-                    case "TECHNICAL_EXPERT" -> {
-                        System.out.println("➡️  Agent: Technical Expert (" + reason + ")");
-                        yield technicalExpert.execute(userQuery);
-                    }
-                    case "FINANCIAL_ADVISOR" -> {
-                        System.out.println("➡️  Agent: Financial Advisor (" + reason + ")");
-                        yield financialAdvisor.execute(userQuery);
-                    }
-                    case "AVAILABILITY_COORDINATOR" -> {
-                        System.out.println("➡️  Agent: Availability Coordinator (" + reason + ")");
-                        yield availabilityCoordinator.execute(userQuery);
-                    }
-                    case "NEGOTIATION_COACH" -> {
-                        System.out.println("➡️  Agent: Negotiation Coach (" + reason + ")");
-                        yield negotiationCoach.execute(userQuery);
-                    }
-                    case "EV_SPECIALIST" -> {
-                        System.out.println("➡️  Agent: EV Specialist (" + reason + ")");
-                        yield evSpecialist.execute(userQuery);
-                    }
-                    default -> {
-                        System.out.println("➡️  Agent: Technical Expert (default - " + reason + ")");
-                        yield technicalExpert.execute(userQuery);
-                    }
-                };
+        Specialist specialist = specialists.get(nextAgentName);
+        if (specialist != null) {
+            System.out.println("➡️  Agent: " + specialist.label() + " (" + reason + ")");
+        } else {
+            nextAgentName = DEFAULT_AGENT;
+            specialist = specialists.get(DEFAULT_AGENT);
+            System.out.println("➡️  Agent: " + specialist.label() + " (default - " + reason + ")");
+        }
+        conversation.setPreviousAgent(nextAgentName);
 
+        List<String> otherAgents = otherAgents(classification, nextAgentName);
+        if (!otherAgents.isEmpty()) {
+            System.out.println("➕ Also consulting: "
+                    + otherAgents.stream()
+                            .map(agent -> specialists.get(agent).label())
+                            .collect(Collectors.joining(", ")));
+            if (speculative[0] != null) {
+                // The speculative runs answered the whole message, not the main agent's part of it
+                speculative[0].cancel(nextAgentName);
+                speculative[0] = null;
+            }
+        }
+        AgentResponse agentResponse;
+        try (ExecutorService scope = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Part> parts = new ArrayList<>();
+            for (String agent : otherAgents) {
+                parts.add(
+                        startPart(scope, conversation, agent, partQuery(userQuery, agent, nextAgentName, otherAgents)));
+            }
+            try {
+                agentResponse = speculative[0] == null
+                        ? null
+                        : speculative[0].commit(nextAgentName, conversation, onPartialText);
+                if (agentResponse == null) {
+                    String query = parts.isEmpty()
+                            ? userQuery
+                            : partQuery(userQuery, nextAgentName, nextAgentName, otherAgents);
+                    agentResponse = onPartialText == null
+                            ? specialist.execute().apply(sessionId, query)
+                            : specialist
+                                    .executeStreaming()
+                                    .apply(sessionId, query)
+                                    .onPartialText(onPartialText)
+                                    .start()
+                                    .join();
+                }
+            } catch (RuntimeException e) {
+                for (Part part : parts) {
+                    part.fork().cancel(part.answer());
+                }
+                throw e;
+            }
+            agentResponse = merge(agentResponse, parts, conversation, onPartialText);
+        }
         // Print psychological state attributes
         System.out.println("\n🧠 Customer Psychological State: " + agentResponse.overallCustomerPsychologicalState());
         System.out.println("🎯 Response Strategy: " + agentResponse.howAnswerAccommodatesThat());
@@ -76,10 +243,112 @@ public class GMVehicleGraphAgent {
         return agentResponse.response();
     }
 
+    private Part startPart(ExecutorService scope, ConversationState conversation, String agent, String query) {
+        Specialist specialist = specialists.get(agent);
+        Conversations.Fork fork = conversations.fork(conversation, () -> {});
+        Future<AgentResponse> answer =
+                scope.submit(fork.run(sessionId -> specialist.execute().apply(sessionId, query)));
+        return new Part(fork, answer);
+    }
+
+    /**
+     * The main answer followed by the answers of the other agents, whose messages are added to the
+     * conversation in that order; a failed part is left out. The customer assessment is the main agent's.
+     */
+    private AgentResponse merge(
+            AgentResponse main, List<Part> parts, ConversationState conversation, Consumer<String> onPartialText) {
+        StringBuilder response = new StringBuilder(main.response());
+        for (Part part : parts) {
+            try {
+                String text = "\n\n" + part.answer().get().response();
+                part.fork().appendTo(conversation);
+                response.append(text);
+                if (onPartialText != null) {
+                    onPartialText.accept(text);
+                }
+            } catch (ExecutionException e) {
+                System.err.println(
+                        "Agent failed to answer its part: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the answer", e);
+            } finally {
+                part.fork().release();
+            }
+        }
+        return parts.isEmpty()
+                ? main
+                : new AgentResponse(
+                        response.toString(),
+                        main.overallCustomerPsychologicalState(),
+                        main.howAnswerAccommodatesThat());
+    }
+
+    /**
+     * Known agents named by the router besides the main one, within the fan-out limit
+     */
+    private List<String> otherAgents(IntentClassifierAgent.IntentClassification classification, String mainAgent) {
+        Set<String> others = new LinkedHashSet<>();
+        for (String agent : classification.otherAgents()) {
+            if (others.size() + 1 < maxFanOut && specialists.containsKey(agent) && !agent.equals(mainAgent)) {
+                others.add(agent);
+            }
+        }
+        return List.copyOf(others);
+    }
+
     /**
-     * Get the conversation state
+     * The message with a note that the other agents answer its other parts
+     */
+    private String partQuery(String userQuery, String agent, String mainAgent, List<String> otherAgents) {
+        List<String> rest = new ArrayList<>();
+        for (String other : concat(mainAgent, otherAgents)) {
+            if (!other.equals(agent)) {
+                rest.add(specialists.get(other).label());
+            }
+        }
+        return userQuery + "\n\n(Answer only the part of this message in your area; " + String.join(", ", rest)
+                + " answer the other parts.)";
+    }
+
+    private static List<String> concat(String first, List<String> rest) {
+        List<String> all = new ArrayList<>(rest.size() + 1);
+        all.add(first);
+        all.addAll(rest);
+        return all;
+    }
+
+    /**
+     * The locally predicted agent, then the agent of the previous message
+     */
+    private static List<String> speculationCandidates(
+            LocalIntentClassifier.Prediction prediction, ConversationState conversation) {
+        Set<String> candidates = new LinkedHashSet<>();
+        if (prediction.agent() != null) {
+            candidates.add(prediction.agent());
+        }
+        String previousAgent = conversation.previousAgent();
+        if (previousAgent != null) {
+            candidates.add(previousAgent);
+        }
+        return List.copyOf(candidates);
+    }
+
+    /**
+     * Get the conversation state of the default session
      */
     public ConversationState getConversationState() {
-        return conversationState;
+        return getConversationState(DEFAULT_SESSION);
+    }
+
+    public ConversationState getConversationState(String sessionId) {
+        return conversations.state(sessionId);
+    }
+
+    /**
+     * Drops the session and its messages
+     */
+    public void endSession(String sessionId) {
+        conversations.end(sessionId);
     }
 }
@@ -1,6 +1,7 @@
 package com.example.agents.multiple;
 
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
 import java.util.Scanner;
 
 /**
@@ -13,8 +14,9 @@ public class GMVehicleGraphDemo {
         System.out.println("Using multi-agent system with specialized experts\n");
 
         ChatModel model = ModelProvider.getDefaultModel();
+        StreamingChatModel streamingModel = ModelProvider.getDefaultStreamingModel();
 
-        GMVehicleGraphAgent agent = new GMVehicleGraphAgent(model);
+        GMVehicleGraphAgent agent = new GMVehicleGraphAgent(model, streamingModel);
 
         System.out.println(
                 "Hello! I'm your GM Vehicle Assistant. I can help you find the perfect vehicle. What are you looking for today?");
@@ -38,9 +40,17 @@ public class GMVehicleGraphDemo {
             }
 
             try {
-                // Process query with single agent routing (most queries only need one step)
-                String response = agent.processQuery(userInput);
-                System.out.println("\nGM Vehicle Assistant: " + response);
+                // Process query with single agent routing (most queries only need one step),
+                // printing the response while it is generated
+                boolean[] answering = {false};
+                agent.processQueryStreaming(userInput, text -> {
+                    if (!answering[0]) {
+                        System.out.print("\nGM Vehicle Assistant: ");
+                        answering[0] = true;
+                    }
+                    System.out.print(text);
+                });
+                System.out.println();
 
             } catch (Exception e) {
                 System.err.println("\nError: " + e.getMessage());
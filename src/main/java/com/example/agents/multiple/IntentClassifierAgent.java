@@ -5,44 +5,153 @@ import com.example.llmtoolkit.core.JteTemplateProcessor;
 import com.example.llmtoolkit.core.TemplatedLLMServiceFactory;
 import com.example.llmtoolkit.core.annotations.Cue;
 import com.example.llmtoolkit.core.annotations.PT;
+import com.example.llmtoolkit.util.Env;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.service.MemoryId;
+import dev.langchain4j.service.memory.ChatMemoryAccess;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 /**
  * Intent Classifier Agent - Routes user queries to appropriate expert agents
+ *
+ * A {@link LocalIntentClassifier} routes first; only when its confidence is below
+ * {@link #THRESHOLD_VARIABLE} (0.7 by default, above 1 to always ask the LLM) does the LLM router run.
+ * A share of the local routes set by {@link #AUDIT_RATE_VARIABLE} is also sent to the LLM, whose route
+ * is then used, to measure how often the local tier agrees; see {@link #routingStats()}.
  */
 public class IntentClassifierAgent {
 
     public record IntentClassification(
             @Cue("Agent name all caps including underscores") String agent,
-            @Cue("Very short, but informative reason") String reasonForChoosing) {}
+            @Cue("Very short, but informative reason") String reasonForChoosing,
+            @Cue("Names of the agents for the other topics of a multi-topic message, usually empty")
+                    List<String> otherAgents) {
 
-    interface IntentClassifierStructured {
+        public IntentClassification {
+            otherAgents = otherAgents == null ? List.of() : List.copyOf(otherAgents);
+        }
+
+        public IntentClassification(String agent, String reasonForChoosing) {
+            this(agent, reasonForChoosing, List.of());
+        }
+    }
+
+    /**
+     * Routes and time spent since start. Agreements count LLM routes that match the local prediction:
+     * for audited local routes, and for uncertain local predictions that fell back to the LLM.
+     */
+    public record RoutingStats(
+            long localRoutes,
+            long llmRoutes,
+            long localNanos,
+            long llmNanos,
+            long audits,
+            long auditAgreements,
+            long fallbackGuesses,
+            long fallbackAgreements) {}
+
+    public static final String THRESHOLD_VARIABLE = "GM_LOCAL_ROUTER_THRESHOLD";
+    public static final String AUDIT_RATE_VARIABLE = "GM_LOCAL_ROUTER_AUDIT_RATE";
+    private static final double DEFAULT_THRESHOLD = 0.7;
+
+    private static final LongAdder LOCAL_ROUTES = new LongAdder();
+    private static final LongAdder LLM_ROUTES = new LongAdder();
+    private static final LongAdder LOCAL_NANOS = new LongAdder();
+    private static final LongAdder LLM_NANOS = new LongAdder();
+    private static final LongAdder AUDITS = new LongAdder();
+    private static final LongAdder AUDIT_AGREEMENTS = new LongAdder();
+    private static final LongAdder FALLBACK_GUESSES = new LongAdder();
+    private static final LongAdder FALLBACK_AGREEMENTS = new LongAdder();
+
+    interface IntentClassifierStructured extends ChatMemoryAccess {
         @PT(templatePath = "classify_intent.jte")
-        IntentClassification classifyIntent();
+        IntentClassification classifyIntent(@MemoryId String sessionId);
     }
 
     private final IntentClassifierStructured classifier;
-    private final ConversationState conversationState;
+    private final Conversations conversations;
+    private final LocalIntentClassifier localClassifier = new LocalIntentClassifier();
+    private final double threshold = doubleFromEnv(THRESHOLD_VARIABLE, DEFAULT_THRESHOLD);
+    private final double auditRate = doubleFromEnv(AUDIT_RATE_VARIABLE, 0);
 
-    public IntentClassifierAgent(ChatModel model, ConversationState conversationState) {
-        this.conversationState = conversationState;
+    public IntentClassifierAgent(ChatModel model, Conversations conversations) {
+        this.conversations = conversations;
         this.classifier = TemplatedLLMServiceFactory.builder()
                 .serviceStrategy(new JacksonSourceResponseStructuringStrategy())
                 .model(model)
                 .templateProcessor(JteTemplateProcessor.create())
-                .aiServiceCustomizer(aiServices -> aiServices.chatMemory(conversationState.getChatMemory()))
+                .aiServiceCustomizer(aiServices -> aiServices.chatMemoryProvider(conversations))
                 .build()
                 .create(IntentClassifierStructured.class);
+        conversations.onEviction(classifier::evictChatMemory);
+    }
+
+    public IntentClassification classifyIntentWithReason(String sessionId, String userMessage) {
+        return classifyIntentWithReason(sessionId, userMessage, prediction -> {});
     }
 
-    public IntentClassification classifyIntentWithReason(String userMessage) {
+    /**
+     * @param beforeLlm called with the local prediction (possibly without an agent) right before the
+     *     LLM router is called, not called when the message is routed locally
+     */
+    public IntentClassification classifyIntentWithReason(
+            String sessionId, String userMessage, Consumer<LocalIntentClassifier.Prediction> beforeLlm) {
+        conversations.get(sessionId).add(UserMessage.from(userMessage));
+
+        long start = System.nanoTime();
+        LocalIntentClassifier.Prediction prediction = localClassifier.predict(userMessage);
+        boolean confident = prediction.agent() != null && prediction.confidence() >= threshold;
+        boolean audit = confident && ThreadLocalRandom.current().nextDouble() < auditRate;
+        if (confident && !audit) {
+            LOCAL_NANOS.add(System.nanoTime() - start);
+            LOCAL_ROUTES.increment();
+            System.out.printf("⚡ Routed locally (confidence %.2f)%n", prediction.confidence());
+            return new IntentClassification(prediction.agent(), "Mentions " + String.join(", ", prediction.matched()));
+        }
+
+        beforeLlm.accept(prediction);
+        IntentClassification classification = classifyWithLlm(sessionId, prediction);
+        LLM_NANOS.add(System.nanoTime() - start);
+        LLM_ROUTES.increment();
+        if (prediction.agent() != null) {
+            boolean agreed = prediction.agent().equals(classification.agent());
+            (audit ? AUDITS : FALLBACK_GUESSES).increment();
+            if (agreed) {
+                (audit ? AUDIT_AGREEMENTS : FALLBACK_AGREEMENTS).increment();
+            }
+        }
+        return classification;
+    }
+
+    public static RoutingStats routingStats() {
+        return new RoutingStats(
+                LOCAL_ROUTES.sum(),
+                LLM_ROUTES.sum(),
+                LOCAL_NANOS.sum(),
+                LLM_NANOS.sum(),
+                AUDITS.sum(),
+                AUDIT_AGREEMENTS.sum(),
+                FALLBACK_GUESSES.sum(),
+                FALLBACK_AGREEMENTS.sum());
+    }
+
+    private IntentClassification classifyWithLlm(String sessionId, LocalIntentClassifier.Prediction prediction) {
         try {
-            conversationState.getChatMemory().add(UserMessage.from(userMessage));
-            return classifier.classifyIntent();
+            return classifier.classifyIntent(sessionId);
         } catch (Exception e) {
             System.err.println("Error with structured output: " + e.getMessage());
-            return new IntentClassification("TECHNICAL_EXPERT", "Classification error occurred");
+            return prediction.agent() != null
+                    ? new IntentClassification(prediction.agent(), "Classification error occurred, local guess")
+                    : new IntentClassification("TECHNICAL_EXPERT", "Classification error occurred");
         }
     }
+
+    private static double doubleFromEnv(String variable, double defaultValue) {
+        String value = Env.get(variable);
+        return value == null || value.isBlank() ? defaultValue : Double.parseDouble(value.strip());
+    }
 }
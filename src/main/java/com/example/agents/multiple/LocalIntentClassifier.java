@@ -0,0 +1,157 @@
+package com.example.agents.multiple;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keyword tier in front of the LLM router of {@link IntentClassifierAgent}, classifying the last
+ * message only.
+ *
+ * The phrases follow the routing rules of classify_intent.jte. A decisive phrase (one the template
+ * names, such as "rebate" or "test drive") weighs 2, a hint weighs 1, and every phrase counts once.
+ * The confidence of the best agent is its score over the score of all agents plus one, so a single
+ * phrase or a message that names several topics stays below the usual threshold and goes to the LLM.
+ */
+public class LocalIntentClassifier {
+
+    /**
+     * Best agent for a message; agent is null when no phrase matched
+     */
+    public record Prediction(String agent, double confidence, List<String> matched) {}
+
+    private record Phrase(Pattern pattern, int weight) {}
+
+    private final Map<String, List<Phrase>> phrasesByAgent = new LinkedHashMap<>();
+
+    public LocalIntentClassifier() {
+        agent("FINANCIAL_ADVISOR")
+                .decisive(
+                        "financ(e|es|ed|ing)",
+                        "leas(e|es|ing)",
+                        "loans?",
+                        "payments?",
+                        "apr",
+                        "interest rates?",
+                        "down payment",
+                        "credit score",
+                        "insurance",
+                        "afford(able|ability)?")
+                .hint("budget", "per month", "terms?");
+        agent("NEGOTIATION_COACH")
+                .decisive(
+                        "trade[- ]?ins?",
+                        "negotiat(e|ing|ion)",
+                        "deals?",
+                        "incentives?",
+                        "rebates?",
+                        "best time to buy",
+                        "pricing strateg(y|ies)",
+                        "haggl(e|ing)",
+                        "discounts?")
+                .hint("offers?", "invoice");
+        agent("EV_SPECIALIST")
+                .decisive(
+                        "electric vehicles?",
+                        "evs?",
+                        "charging",
+                        "chargers?",
+                        "charging stations?",
+                        "kwh",
+                        "range anxiety")
+                .hint("range", "electric", "battery", "plug-in");
+        agent("AVAILABILITY_COORDINATOR")
+                .decisive("test drives?", "in stock", "inventory", "availability", "schedul(e|ing)", "appointments?")
+                .hint("available", "dealers?", "dealerships?", "near me", "zip( code)?");
+        agent("CUSTOMER_PROFILER")
+                .decisive(
+                        "help me (find|choose|pick|decide)",
+                        "narrow (it |them |my options |things )?down",
+                        "not sure (which|what)",
+                        "(which|what) (car|vehicle|suv|truck) should")
+                .hint("recommend(ation|ations)?", "suggest(ion|ions)?", "looking for");
+        agent("TECHNICAL_EXPERT")
+                .decisive(
+                        "compare",
+                        "comparison",
+                        "versus",
+                        "vs\\.?",
+                        "specs?",
+                        "specifications",
+                        "horsepower",
+                        "towing",
+                        "mpg",
+                        "fuel economy",
+                        "safety ratings?",
+                        "show me")
+                .hint(
+                        "display",
+                        "features",
+                        "performance",
+                        "engine",
+                        "cargo",
+                        "seating",
+                        "prices?",
+                        "total cost of ownership",
+                        "suvs?",
+                        "trucks?",
+                        "sedans?",
+                        "chevrolet",
+                        "chevy",
+                        "gmc",
+                        "cadillac",
+                        "buick");
+    }
+
+    public Prediction predict(String message) {
+        String text = message == null ? "" : message.toLowerCase(Locale.ROOT);
+        String best = null;
+        int bestScore = 0;
+        int total = 0;
+        List<String> bestMatched = List.of();
+        for (Map.Entry<String, List<Phrase>> entry : phrasesByAgent.entrySet()) {
+            int score = 0;
+            List<String> matched = new ArrayList<>();
+            for (Phrase phrase : entry.getValue()) {
+                Matcher matcher = phrase.pattern().matcher(text);
+                if (matcher.find()) {
+                    score += phrase.weight();
+                    matched.add(matcher.group());
+                }
+            }
+            total += score;
+            if (score > bestScore) {
+                best = entry.getKey();
+                bestScore = score;
+                bestMatched = matched;
+            }
+        }
+        return new Prediction(best, bestScore / (total + 1.0), bestMatched);
+    }
+
+    private Rules agent(String agent) {
+        return new Rules(phrasesByAgent.computeIfAbsent(agent, name -> new ArrayList<>()));
+    }
+
+    private record Rules(List<Phrase> phrases) {
+        Rules decisive(String... regexes) {
+            return add(2, regexes);
+        }
+
+        Rules hint(String... regexes) {
+            return add(1, regexes);
+        }
+
+        private Rules add(int weight, String... regexes) {
+            for (String regex : regexes) {
+                // Whole words, where a hyphen is part of the word
+                phrases.add(new Phrase(Pattern.compile("(?<![\\w-])(?:" + regex + ")(?![\\w-])"), weight));
+            }
+            return this;
+        }
+    }
+}
@@ -2,8 +2,11 @@ package com.example.agents.multiple;
 
 import com.example.llmtoolkit.util.Env;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.googleai.GoogleAiGeminiChatModel;
+import dev.langchain4j.model.googleai.GoogleAiGeminiStreamingChatModel;
 import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
 
 /**
  * Centralized model provider for the langgraph package
@@ -22,6 +25,13 @@ public class ModelProvider {
         return getModel(Model.GPT_41);
     }
 
+    /**
+     * Streaming variant of the default model, for answers shown while they are generated
+     */
+    public static StreamingChatModel getDefaultStreamingModel() {
+        return getStreamingModel(Model.GPT_41);
+    }
+
     @SuppressWarnings("SameParameterValue")
     private static ChatModel getModel(Model model) {
         return switch (model) {
@@ -52,4 +62,35 @@ public class ModelProvider {
             }
         };
     }
+
+    @SuppressWarnings("SameParameterValue")
+    private static StreamingChatModel getStreamingModel(Model model) {
+        return switch (model) {
+            case GEMINI_25_FLASH -> {
+                String geminiApiKey = Env.getRequired("GEMINI_API_KEY");
+                yield GoogleAiGeminiStreamingChatModel.builder()
+                        .apiKey(geminiApiKey)
+                        .modelName("gemini-2.5-flash-preview-05-20")
+                        .temperature(DEFAULT_TEMPERATURE)
+                        .build();
+            }
+            case GPT_41 -> {
+                String openaiApiKey = Env.getRequired("OPENAI_API_KEY");
+                yield OpenAiStreamingChatModel.builder()
+                        .apiKey(openaiApiKey)
+                        .modelName("gpt-4.1")
+                        .temperature(DEFAULT_TEMPERATURE)
+                        .build();
+            }
+            case GROQ_LLAMA_3_3_70B -> {
+                String groqApiKey = Env.getRequired("GROQ_API_KEY");
+                yield OpenAiStreamingChatModel.builder()
+                        .apiKey(groqApiKey)
+                        .modelName("llama-3.3-70b-versatile")
+                        .baseUrl("https://api.groq.com/openai/v1")
+                        .temperature(DEFAULT_TEMPERATURE)
+                        .build();
+            }
+        };
+    }
 }
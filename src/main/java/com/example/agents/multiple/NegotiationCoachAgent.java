@@ -1,15 +1,20 @@
 package com.example.agents.multiple;
 
+import com.example.agents.CachingTools;
 import com.example.agents.CommonRequirements.*;
-import com.example.agents.ToolsImpl;
 import com.example.llmtoolkit.core.JacksonSourceResponseStructuringStrategy;
 import com.example.llmtoolkit.core.JteTemplateProcessor;
+import com.example.llmtoolkit.core.ProjectingToolExecutor;
+import com.example.llmtoolkit.core.StreamingResponse;
 import com.example.llmtoolkit.core.TemplatedLLMServiceFactory;
 import com.example.llmtoolkit.core.annotations.PT;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.service.MemoryId;
+import dev.langchain4j.service.memory.ChatMemoryAccess;
 import java.util.List;
 
 /**
@@ -18,7 +23,7 @@ import java.util.List;
 public class NegotiationCoachAgent {
 
     static class NegotiationTools {
-        private final ToolsImpl tools = new ToolsImpl();
+        private final Tools tools = CachingTools.shared();
 
         @Tool("Calculate trade-in value for current vehicle")
         public TradeInValue calculateTradeIn(
@@ -85,30 +90,48 @@ public class NegotiationCoachAgent {
         }
     }
 
-    interface NegotiationAssistant {
+    interface NegotiationAssistant extends ChatMemoryAccess {
         @PT(templatePath = "negotiation_coach.jte")
-        AgentResponse provideNegotiationCoaching();
+        AgentResponse provideNegotiationCoaching(@MemoryId String sessionId);
+
+        @PT(templatePath = "negotiation_coach.jte")
+        StreamingResponse<AgentResponse> provideNegotiationCoachingStreaming(@MemoryId String sessionId);
     }
 
     private final NegotiationAssistant assistant;
-    private final ConversationState conversationState;
+    private final Conversations conversations;
+
+    public NegotiationCoachAgent(ChatModel model, Conversations conversations) {
+        this(model, null, conversations);
+    }
 
-    public NegotiationCoachAgent(ChatModel model, ConversationState conversationState) {
-        this.conversationState = conversationState;
+    public NegotiationCoachAgent(ChatModel model, StreamingChatModel streamingModel, Conversations conversations) {
+        this.conversations = conversations;
         this.assistant = TemplatedLLMServiceFactory.builder()
                 .serviceStrategy(new JacksonSourceResponseStructuringStrategy())
                 .model(model)
+                .streamingModel(streamingModel)
                 .templateProcessor(JteTemplateProcessor.create())
                 .aiServiceCustomizer(aiServices -> {
-                    aiServices.tools(new NegotiationTools(), new SharedVehicleSearchTools());
-                    aiServices.chatMemory(conversationState.getChatMemory());
+                    aiServices.tools(
+                            ProjectingToolExecutor.forTools(new NegotiationTools(), new SharedVehicleSearchTools()));
+                    aiServices.chatMemoryProvider(conversations);
                 })
                 .build()
                 .create(NegotiationAssistant.class);
+        conversations.onEviction(assistant::evictChatMemory);
+    }
+
+    public AgentResponse execute(String sessionId, String query) {
+        conversations.get(sessionId).add(UserMessage.from(query));
+        return assistant.provideNegotiationCoaching(sessionId);
     }
 
-    public AgentResponse execute(String query) {
-        conversationState.getChatMemory().add(UserMessage.from(query));
-        return assistant.provideNegotiationCoaching();
+    /**
+     * Like {@link #execute}, with the response text available while it is generated; needs a streaming model
+     */
+    public StreamingResponse<AgentResponse> executeStreaming(String sessionId, String query) {
+        conversations.get(sessionId).add(UserMessage.from(query));
+        return assistant.provideNegotiationCoachingStreaming(sessionId);
     }
 }
@@ -1,8 +1,14 @@
 package com.example.agents.multiple;
 
+import com.example.agents.CachingTools;
 import com.example.agents.CommonRequirements;
+import com.example.agents.CommonRequirements.Tools;
 import com.example.agents.CommonRequirements.VehicleInfo;
-import com.example.agents.ToolsImpl;
+import com.example.agents.CommonRequirements.VehicleRecommendation;
+import com.example.agents.VehicleViews;
+import com.example.llmtoolkit.core.ToolResultEncoding;
+import com.example.llmtoolkit.core.annotations.ToolResultFormat;
+import com.example.llmtoolkit.core.annotations.ToolResultView;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import java.util.List;
@@ -11,9 +17,12 @@ import java.util.List;
  * Shared vehicle search tools that can be used by multiple agents
  */
 public class SharedVehicleSearchTools {
-    private final ToolsImpl tools = new ToolsImpl();
+    private static final int MAX_RECOMMENDATIONS = 20;
+
+    private final Tools tools = CachingTools.shared();
 
     @Tool("Search vehicle by make and model")
+    @ToolResultView
     public VehicleInfo searchByMakeModel(
             @P("Make (Chevrolet, GMC, Cadillac, Buick)") String make, @P("Model name") String model) {
         ToolLogger.logToolCall("searchByMakeModel", "make", make, "model", model);
@@ -21,6 +30,8 @@ public class SharedVehicleSearchTools {
     }
 
     @Tool("Search vehicles by criteria")
+    @ToolResultView(VehicleViews.VehicleSummary.class)
+    @ToolResultFormat(ToolResultEncoding.TABLE)
     public List<VehicleInfo> searchVehicles(
             @P("Category like Truck, SUV, Sedan or null for all") String category,
             @P("Min price") Double minPrice,
@@ -38,4 +49,15 @@ public class SharedVehicleSearchTools {
                 new CommonRequirements.SearchCriteria(cat, minPrice, maxPrice, minMpg, fuelType, null);
         return tools.searchVehicleInventory(criteria);
     }
+
+    @Tool("Recommend the vehicles that best fit a customer profile, best match first. "
+            + "Prefer this over listing all search results when the customer's needs are known.")
+    @ToolResultView(VehicleViews.RecommendationSummary.class)
+    @ToolResultFormat(ToolResultEncoding.TABLE)
+    public List<VehicleRecommendation> recommendVehicles(
+            @P("Customer profile") CommonRequirements.CustomerProfile profile,
+            @P("Number of vehicles to recommend, usually 3 to 5") int limit) {
+        ToolLogger.logToolCall("recommendVehicles", "profile", profile, "limit", limit);
+        return tools.recommendVehicles(profile, Math.min(limit, MAX_RECOMMENDATIONS));
+    }
 }
@@ -0,0 +1,286 @@
+package com.example.agents.multiple;
+
+import com.example.llmtoolkit.util.Env;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Speculative specialist runs for {@link GMVehicleGraphAgent}: while the LLM router classifies a
+ * message, the likely specialists answer it on virtual threads, each against its own fork of the
+ * conversation. The run of the agent the router picks is kept and the messages it added are appended
+ * to the conversation; the other runs are cancelled and their answers dropped. When the router splits
+ * the message between several agents, every run is cancelled, as each one answered all of it.
+ *
+ * Costs are capped by {@link #MAX_AGENTS_VARIABLE}, the number of runs started per message (0, the
+ * default, turns speculation off), and by {@link #MIN_HIT_RATE_VARIABLE}: while fewer of the last 20
+ * predictions than that were right, no runs are started, but predictions are still scored so
+ * speculation resumes when they improve. A specialist whose previous run for the session has not
+ * ended is skipped. Counts and the hit rate cover the messages of all sessions routed by the LLM.
+ */
+public final class SpeculativeExecution {
+
+    public static final String MAX_AGENTS_VARIABLE = "GM_SPECULATIVE_AGENTS";
+    public static final String MIN_HIT_RATE_VARIABLE = "GM_SPECULATION_MIN_HIT_RATE";
+    private static final double DEFAULT_MIN_HIT_RATE = 0.5;
+    private static final int WINDOW = 20;
+
+    /**
+     * Counts since start. Hits are runs whose answer was used, misses runs that were cancelled, and
+     * overlap is the routing time of the hits, which their answers did not wait for.
+     */
+    public record SpeculationStats(
+            long turns,
+            long predictedRight,
+            long started,
+            long hits,
+            long misses,
+            long skipped,
+            long failures,
+            long overlapNanos) {}
+
+    private static final LongAdder TURNS = new LongAdder();
+    private static final LongAdder PREDICTED_RIGHT = new LongAdder();
+    private static final LongAdder STARTED = new LongAdder();
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder SKIPPED = new LongAdder();
+    private static final LongAdder FAILURES = new LongAdder();
+    private static final LongAdder OVERLAP_NANOS = new LongAdder();
+
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private record Run(Conversations.Fork fork, Future<AgentResponse> answer, PartialText partialText) {}
+
+    private final int maxAgents;
+    private final double minHitRate;
+    private final Map<String, GMVehicleGraphAgent.Specialist> specialists;
+    private final Conversations conversations;
+    private final boolean[] recent = new boolean[WINDOW];
+    private int recentCount;
+    private int recentNext;
+
+    SpeculativeExecution(Map<String, GMVehicleGraphAgent.Specialist> specialists, Conversations conversations) {
+        this.specialists = specialists;
+        this.conversations = conversations;
+        String maxAgents = Env.get(MAX_AGENTS_VARIABLE);
+        String minHitRate = Env.get(MIN_HIT_RATE_VARIABLE);
+        this.maxAgents = maxAgents == null || maxAgents.isBlank() ? 0 : Integer.parseInt(maxAgents.strip());
+        this.minHitRate = minHitRate == null || minHitRate.isBlank()
+                ? DEFAULT_MIN_HIT_RATE
+                : Double.parseDouble(minHitRate.strip());
+    }
+
+    public static SpeculationStats stats() {
+        return new SpeculationStats(
+                TURNS.sum(),
+                PREDICTED_RIGHT.sum(),
+                STARTED.sum(),
+                HITS.sum(),
+                MISSES.sum(),
+                SKIPPED.sum(),
+                FAILURES.sum(),
+                OVERLAP_NANOS.sum());
+    }
+
+    boolean isEnabled() {
+        return maxAgents > 0;
+    }
+
+    /**
+     * Starts the first candidates, each over a fork of the conversation
+     *
+     * @param onPartialText receives the text of the kept run once it is kept, null for a run without streaming
+     */
+    Turn start(List<String> candidates, ConversationState conversation, String query, Consumer<String> onPartialText) {
+        List<String> predicted = candidates.subList(0, Math.min(maxAgents, candidates.size()));
+        boolean paused = isPaused();
+        Map<String, Run> runs = new HashMap<>();
+        for (String agent : predicted) {
+            if (paused || !conversation.startSpeculating(agent)) {
+                SKIPPED.increment();
+                continue;
+            }
+            GMVehicleGraphAgent.Specialist specialist = specialists.get(agent);
+            Conversations.Fork fork = conversations.fork(conversation, () -> conversation.endSpeculating(agent));
+            PartialText partialText = onPartialText == null ? null : new PartialText();
+            Future<AgentResponse> answer = EXECUTOR.submit(fork.run(sessionId -> partialText == null
+                    ? specialist.execute().apply(sessionId, query)
+                    : specialist
+                            .executeStreaming()
+                            .apply(sessionId, query)
+                            .onPartialText(partialText)
+                            .start()
+                            .join()));
+            STARTED.increment();
+            runs.put(agent, new Run(fork, answer, partialText));
+        }
+        if (!runs.isEmpty()) {
+            System.out.println("🔮 Speculating: " + String.join(", ", runs.keySet()));
+        }
+        return new Turn(predicted, runs, System.nanoTime());
+    }
+
+    /**
+     * Whether too few recent predictions were right. The monitors of this class guard only the
+     * window, never a blocking call, as a virtual thread blocking inside one pins its carrier.
+     */
+    private synchronized boolean isPaused() {
+        return recentCount == WINDOW && hitRate() < minHitRate;
+    }
+
+    private synchronized void score(boolean right) {
+        recent[recentNext] = right;
+        recentNext = (recentNext + 1) % WINDOW;
+        recentCount = Math.min(WINDOW, recentCount + 1);
+    }
+
+    private double hitRate() {
+        int right = 0;
+        for (int i = 0; i < recentCount; i++) {
+            if (recent[i]) {
+                right++;
+            }
+        }
+        return recentCount == 0 ? 1 : (double) right / recentCount;
+    }
+
+    /**
+     * The speculative runs for one message
+     */
+    final class Turn {
+        private final List<String> predicted;
+        private final Map<String, Run> runs;
+        private final long startNanos;
+
+        private Turn(List<String> predicted, Map<String, Run> runs, long startNanos) {
+            this.predicted = predicted;
+            this.runs = runs;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * Cancels the runs of the other agents and returns the answer of the given agent's run, after
+         * adding its messages to the conversation; null when there was no such run or it failed before
+         * any of its text was passed to onPartialText. A run that fails after that fails the turn, as a
+         * streamed answer does without speculation, since answering again would repeat the text.
+         */
+        AgentResponse commit(String agent, ConversationState conversation, Consumer<String> onPartialText) {
+            long overlap = System.nanoTime() - startNanos;
+            Run kept = settle(agent, true);
+            if (kept == null) {
+                return null;
+            }
+            if (kept.partialText() != null) {
+                kept.partialText().release(onPartialText);
+            }
+            try {
+                AgentResponse response = kept.answer().get();
+                kept.fork().appendTo(conversation);
+                HITS.increment();
+                OVERLAP_NANOS.add(overlap);
+                return response;
+            } catch (ExecutionException e) {
+                FAILURES.increment();
+                if (kept.partialText() != null && kept.partialText().passedOn()) {
+                    throw new CompletionException(e.getCause());
+                }
+                System.err.println("Speculative run failed: " + e.getCause().getMessage());
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the answer", e);
+            } finally {
+                kept.fork().release();
+            }
+        }
+
+        /**
+         * Cancels every run, the given agent's too: the router split the message between several
+         * agents, and a run answered all of it. The prediction is still scored against the agent.
+         */
+        void cancel(String agent) {
+            settle(agent, false);
+        }
+
+        /**
+         * Scores the prediction and cancels the runs, except the given agent's one when it is kept
+         */
+        private Run settle(String agent, boolean keep) {
+            TURNS.increment();
+            boolean right = predicted.contains(agent);
+            if (right) {
+                PREDICTED_RIGHT.increment();
+            }
+            if (!predicted.isEmpty()) {
+                score(right);
+            }
+            Run kept = keep ? runs.remove(agent) : null;
+            for (Run run : runs.values()) {
+                run.fork().cancel(run.answer());
+                MISSES.increment();
+            }
+            runs.clear();
+            return kept;
+        }
+    }
+
+    /**
+     * Holds the partial text of a run until it is kept, then passes it on. The target is called under
+     * a lock, which virtual threads can wait for without pinning their carrier, unlike a monitor.
+     */
+    private static final class PartialText implements Consumer<String> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final List<String> held = new ArrayList<>();
+        private Consumer<String> target;
+        private boolean passedOn;
+
+        @Override
+        public void accept(String text) {
+            lock.lock();
+            try {
+                if (target == null) {
+                    held.add(text);
+                } else {
+                    target.accept(text);
+                    passedOn = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release(Consumer<String> target) {
+            lock.lock();
+            try {
+                held.forEach(target);
+                passedOn = !held.isEmpty();
+                held.clear();
+                this.target = target;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Whether any text reached the target
+         */
+        boolean passedOn() {
+            lock.lock();
+            try {
+                return passedOn;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
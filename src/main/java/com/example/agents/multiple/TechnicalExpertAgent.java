@@ -1,15 +1,24 @@
 package com.example.agents.multiple;
 
+import com.example.agents.CachingTools;
 import com.example.agents.CommonRequirements.*;
-import com.example.agents.ToolsImpl;
+import com.example.agents.VehicleViews;
 import com.example.llmtoolkit.core.JacksonSourceResponseStructuringStrategy;
 import com.example.llmtoolkit.core.JteTemplateProcessor;
+import com.example.llmtoolkit.core.ProjectingToolExecutor;
+import com.example.llmtoolkit.core.StreamingResponse;
 import com.example.llmtoolkit.core.TemplatedLLMServiceFactory;
+import com.example.llmtoolkit.core.ToolResultEncoding;
 import com.example.llmtoolkit.core.annotations.PT;
+import com.example.llmtoolkit.core.annotations.ToolResultFormat;
+import com.example.llmtoolkit.core.annotations.ToolResultView;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.service.MemoryId;
+import dev.langchain4j.service.memory.ChatMemoryAccess;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -20,9 +29,11 @@ import java.util.stream.Collectors;
 public class TechnicalExpertAgent {
 
     static class TechnicalTools {
-        private final ToolsImpl tools = new ToolsImpl();
+        private final Tools tools = CachingTools.shared();
 
         @Tool("Search vehicles by make/brand")
+        @ToolResultView(VehicleViews.VehicleSummary.class)
+        @ToolResultFormat(ToolResultEncoding.TABLE)
         public List<VehicleInfo> searchVehiclesByMake(
                 @P("Make like Chevrolet, GMC, Cadillac, Buick") String make, @P("Exclude EVs") boolean excludeEVs) {
             ToolLogger.logToolCall(
@@ -34,10 +45,7 @@ public class TechnicalExpertAgent {
             if (vehicleMake == null) {
                 return new ArrayList<>();
             }
-            List<VehicleInfo> results =
-                    tools.searchVehicleInventory(new SearchCriteria(null, null, null, null, null, null)).stream()
-                            .filter(v -> v.make() == vehicleMake)
-                            .collect(Collectors.toList());
+            List<VehicleInfo> results = tools.searchVehiclesByMake(vehicleMake);
             if (excludeEVs) {
                 results = results.stream()
                         .filter(v -> !"Electric".equalsIgnoreCase(v.fuelType()))
@@ -48,11 +56,13 @@ public class TechnicalExpertAgent {
         }
 
         @Tool("Get detailed vehicle information by ID")
+        @ToolResultView
         public VehicleInfo getVehicleDetails(@P("Vehicle ID") String vehicleId) {
             return tools.getVehicleDetails(vehicleId);
         }
 
         @Tool("Compare multiple vehicles")
+        @ToolResultView(VehicleViews.ComparisonSummary.class)
         public VehicleComparison compareVehicles(@P("List of vehicle IDs") List<String> vehicleIds) {
             ToolLogger.logToolCall("compareVehicles", "vehicleIds", vehicleIds);
 
@@ -112,30 +122,48 @@ public class TechnicalExpertAgent {
         }
     }
 
-    interface TechnicalAssistant {
+    interface TechnicalAssistant extends ChatMemoryAccess {
         @PT(templatePath = "technical_expert.jte")
-        AgentResponse provideTechnicalInfo();
+        AgentResponse provideTechnicalInfo(@MemoryId String sessionId);
+
+        @PT(templatePath = "technical_expert.jte")
+        StreamingResponse<AgentResponse> provideTechnicalInfoStreaming(@MemoryId String sessionId);
     }
 
     private final TechnicalAssistant assistant;
-    private final ConversationState conversationState;
+    private final Conversations conversations;
+
+    public TechnicalExpertAgent(ChatModel model, Conversations conversations) {
+        this(model, null, conversations);
+    }
 
-    public TechnicalExpertAgent(ChatModel model, ConversationState conversationState) {
-        this.conversationState = conversationState;
+    public TechnicalExpertAgent(ChatModel model, StreamingChatModel streamingModel, Conversations conversations) {
+        this.conversations = conversations;
         this.assistant = TemplatedLLMServiceFactory.builder()
                 .serviceStrategy(new JacksonSourceResponseStructuringStrategy())
                 .model(model)
+                .streamingModel(streamingModel)
                 .templateProcessor(JteTemplateProcessor.create())
                 .aiServiceCustomizer(aiServices -> {
-                    aiServices.tools(new TechnicalTools(), new SharedVehicleSearchTools());
-                    aiServices.chatMemory(conversationState.getChatMemory());
+                    aiServices.tools(
+                            ProjectingToolExecutor.forTools(new TechnicalTools(), new SharedVehicleSearchTools()));
+                    aiServices.chatMemoryProvider(conversations);
                 })
                 .build()
                 .create(TechnicalAssistant.class);
+        conversations.onEviction(assistant::evictChatMemory);
+    }
+
+    public AgentResponse execute(String sessionId, String query) {
+        conversations.get(sessionId).add(UserMessage.from(query));
+        return assistant.provideTechnicalInfo(sessionId);
     }
 
-    public AgentResponse execute(String query) {
-        conversationState.getChatMemory().add(UserMessage.from(query));
-        return assistant.provideTechnicalInfo();
+    /**
+     * Like {@link #execute}, with the response text available while it is generated; needs a streaming model
+     */
+    public StreamingResponse<AgentResponse> executeStreaming(String sessionId, String query) {
+        conversations.get(sessionId).add(UserMessage.from(query));
+        return assistant.provideTechnicalInfoStreaming(sessionId);
     }
 }
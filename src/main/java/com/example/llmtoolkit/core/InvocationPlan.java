@@ -0,0 +1,223 @@
+package com.example.llmtoolkit.core;
+
+import com.example.llmtoolkit.core.annotations.PP;
+import com.example.llmtoolkit.core.annotations.PT;
+import com.example.llmtoolkit.core.annotations.StreamedText;
+import com.example.llmtoolkit.util.json.JsonUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.langchain4j.service.MemoryId;
+import dev.langchain4j.service.TokenStream;
+import dev.langchain4j.service.memory.ChatMemoryAccess;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.RecordComponent;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Everything a proxied {@link PT} method needs per call, resolved once when the service is created:
+ * template path, template parameter names, return type, output instruction suffix, the bound
+ * service call and the result conversion. Streaming methods get the bound streaming call instead,
+ * the binding of the incrementally parsed answer and the record component whose text is streamed.
+ * A method with a {@link MemoryId} parameter is bound to the memory id call, which resolves the chat
+ * memory of the argument through the configured chat memory provider.
+ */
+final class InvocationPlan {
+    private final String templatePath;
+    private final String[] parameterNames;
+    private final String instructionSuffix;
+    private final int memoryIdIndex;
+    private final BiFunction<Object, String, Object> serviceCall;
+    private final Function<Object, Object> resultConverter;
+    private final ReturnTypeInfo.Streaming streaming;
+    private final BiFunction<Object, String, TokenStream> streamingCall;
+    private final Function<JsonNode, Object> treeConverter;
+    private final String streamedProperty;
+
+    private InvocationPlan(
+            String templatePath,
+            String[] parameterNames,
+            String instructionSuffix,
+            int memoryIdIndex,
+            BiFunction<Object, String, Object> serviceCall,
+            Function<Object, Object> resultConverter,
+            ReturnTypeInfo.Streaming streaming,
+            BiFunction<Object, String, TokenStream> streamingCall,
+            Function<JsonNode, Object> treeConverter,
+            String streamedProperty) {
+        this.templatePath = templatePath;
+        this.parameterNames = parameterNames;
+        this.instructionSuffix = instructionSuffix;
+        this.memoryIdIndex = memoryIdIndex;
+        this.serviceCall = serviceCall;
+        this.resultConverter = resultConverter;
+        this.streaming = streaming;
+        this.streamingCall = streamingCall;
+        this.treeConverter = treeConverter;
+        this.streamedProperty = streamedProperty;
+    }
+
+    /**
+     * @param streamingService the streaming service of a {@link StreamingResponseStructuringStrategy}, or null
+     *     when no streaming model is configured
+     */
+    static InvocationPlan compile(
+            Method method, Object service, Object streamingService, ResponseStructuringStrategy strategy) {
+        ReturnTypeInfo typeInfo = ReturnTypeInfo.from(method.getGenericReturnType());
+        int memoryIdIndex = memoryIdIndex(method);
+        BiFunction<Object, String, Object> serviceCall = null;
+        BiFunction<Object, String, TokenStream> streamingCall = null;
+        if (!typeInfo.isStreaming()) {
+            if (memoryIdIndex >= 0) {
+                serviceCall = strategy.bindMemoryService(service, method);
+            } else {
+                Function<String, Object> call = strategy.bindService(service, method);
+                serviceCall = (memoryId, prompt) -> call.apply(prompt);
+            }
+        } else if (streamingService != null) {
+            StreamingResponseStructuringStrategy streamingStrategy = (StreamingResponseStructuringStrategy) strategy;
+            if (memoryIdIndex >= 0) {
+                streamingCall = streamingStrategy.bindMemoryStreamingService(streamingService, method);
+            } else {
+                Function<String, TokenStream> call = streamingStrategy.bindStreamingService(streamingService, method);
+                streamingCall = (memoryId, prompt) -> call.apply(prompt);
+            }
+        } else {
+            streamingCall = (memoryId, prompt) -> {
+                throw new IllegalStateException("No streaming model configured for "
+                        + method.getDeclaringClass().getSimpleName() + "." + method.getName());
+            };
+        }
+        return new InvocationPlan(
+                method.getAnnotation(PT.class).templatePath(),
+                parameterNames(method),
+                strategy.outputInstructions(method, typeInfo),
+                memoryIdIndex,
+                serviceCall,
+                result -> strategy.convertResult(result, typeInfo),
+                typeInfo.getStreaming(),
+                streamingCall,
+                treeConverter(typeInfo),
+                streamedProperty(typeInfo));
+    }
+
+    private static Function<JsonNode, Object> treeConverter(ReturnTypeInfo typeInfo) {
+        if (typeInfo.isString()) {
+            return null;
+        }
+        Class<?> valueType = typeInfo.getValueType();
+        return typeInfo.isList()
+                ? tree -> JsonUtils.convertJsonArray(tree, valueType)
+                : tree -> JsonUtils.convertJsonObject(tree, valueType);
+    }
+
+    /**
+     * Name of the {@link StreamedText} component of a single record result, or null
+     */
+    private static String streamedProperty(ReturnTypeInfo typeInfo) {
+        if (typeInfo.isList() || !typeInfo.getValueType().isRecord()) {
+            return null;
+        }
+        for (RecordComponent component : typeInfo.getValueType().getRecordComponents()) {
+            if (component.isAnnotationPresent(StreamedText.class)) {
+                return component.getName();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Index of the {@link MemoryId} parameter, or -1
+     */
+    static int memoryIdIndex(Method method) {
+        Parameter[] parameters = method.getParameters();
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i].isAnnotationPresent(MemoryId.class)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Whether the service interface extends {@link ChatMemoryAccess} or has a {@link PT} method with a
+     * {@link MemoryId} parameter; only such services are built over a chat memory
+     */
+    static boolean usesChatMemory(Class<?> serviceInterface) {
+        if (ChatMemoryAccess.class.isAssignableFrom(serviceInterface)) {
+            return true;
+        }
+        for (Method method : serviceInterface.getMethods()) {
+            if (method.isAnnotationPresent(PT.class) && memoryIdIndex(method) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The @PP name of each parameter, null where the parameter is not annotated
+     */
+    static String[] parameterNames(Method method) {
+        Parameter[] parameters = method.getParameters();
+        String[] names = new String[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            PP paramAnnotation = parameters[i].getAnnotation(PP.class);
+            names[i] = paramAnnotation != null ? paramAnnotation.value() : null;
+        }
+        return names;
+    }
+
+    String preparePrompt(TemplateProcessor templateProcessor, Object[] args) {
+        return templateProcessor.render(templatePath, parameterNames, args) + instructionSuffix;
+    }
+
+    /**
+     * The memory id argument of a call, null when the method has no {@link MemoryId} parameter
+     */
+    Object memoryId(Object[] args) {
+        if (memoryIdIndex < 0) {
+            return null;
+        }
+        Object memoryId = args[memoryIdIndex];
+        if (memoryId == null) {
+            throw new IllegalArgumentException("The @MemoryId argument must not be null");
+        }
+        return memoryId;
+    }
+
+    Object invokeService(Object memoryId, String prompt) {
+        return serviceCall.apply(memoryId, prompt);
+    }
+
+    Object convertResult(Object rawResult) {
+        return resultConverter.apply(rawResult);
+    }
+
+    boolean isStreaming() {
+        return streaming != ReturnTypeInfo.Streaming.NONE;
+    }
+
+    private static Object notify(Consumer<Object> answerListener, Object result) {
+        answerListener.accept(result);
+        return result;
+    }
+
+    /**
+     * The streamed answer in the declared return type; the request is sent when it is started
+     * (or subscribed), except for a Stream, which is started right away
+     */
+    Object stream(Object memoryId, String prompt, Consumer<Object> answerListener) {
+        StreamingResponse<Object> response = new StreamingResponse<>(
+                () -> streamingCall.apply(memoryId, prompt),
+                rawResult -> notify(answerListener, convertResult(rawResult)),
+                treeConverter == null ? null : tree -> notify(answerListener, treeConverter.apply(tree)),
+                streamedProperty);
+        return switch (streaming) {
+            case PUBLISHER -> response.asPublisher();
+            case STREAM -> response.asStream();
+            default -> response;
+        };
+    }
+}
@@ -2,17 +2,23 @@ package com.example.llmtoolkit.core;
 
 import com.example.llmtoolkit.util.json.JsonUtils;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.service.AiServices;
+import dev.langchain4j.service.TokenStream;
 import java.lang.reflect.Method;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
-public class JacksonSourceResponseStructuringStrategy implements ResponseStructuringStrategy {
+public class JacksonSourceResponseStructuringStrategy implements StreamingResponseStructuringStrategy {
 
     @Override
     public <T> Object createService(Class<T> serviceInterface, ChatModel model, Consumer<AiServices<?>> customizer) {
         // Create a single StringAnswer service to handle all method calls
-        AiServices<StringAnswer> baseBuilder =
-                AiServices.builder(StringAnswer.class).chatModel(model);
+        Class<? extends StringAnswer> answerType =
+                InvocationPlan.usesChatMemory(serviceInterface) ? MemoryStringAnswer.class : StringAnswer.class;
+        AiServices<? extends StringAnswer> baseBuilder =
+                AiServices.builder(answerType).chatModel(model);
 
         if (customizer != null) {
             customizer.accept(baseBuilder);
@@ -22,12 +28,47 @@ public class JacksonSourceResponseStructuringStrategy implements ResponseStructu
     }
 
     @Override
-    public String augmentPromptWithOutputInstructions(String prompt, Method method, ReturnTypeInfo typeInfo) {
+    public <T> Object createStreamingService(
+            Class<T> serviceInterface, StreamingChatModel model, Consumer<AiServices<?>> customizer) {
+        Class<? extends StreamingStringAnswer> answerType = InvocationPlan.usesChatMemory(serviceInterface)
+                ? MemoryStreamingStringAnswer.class
+                : StreamingStringAnswer.class;
+        AiServices<? extends StreamingStringAnswer> baseBuilder =
+                AiServices.builder(answerType).streamingChatModel(model);
+
+        if (customizer != null) {
+            customizer.accept(baseBuilder);
+        }
+
+        return baseBuilder.build();
+    }
+
+    @Override
+    public Function<String, TokenStream> bindStreamingService(Object streamingService, Method originalMethod) {
+        StreamingStringAnswer answer = (StreamingStringAnswer) streamingService;
+        return answer::answer;
+    }
+
+    @Override
+    public BiFunction<Object, String, Object> bindMemoryService(Object service, Method originalMethod) {
+        MemoryStringAnswer answer = (MemoryStringAnswer) service;
+        return answer::answer;
+    }
+
+    @Override
+    public BiFunction<Object, String, TokenStream> bindMemoryStreamingService(
+            Object streamingService, Method originalMethod) {
+        MemoryStreamingStringAnswer answer = (MemoryStreamingStringAnswer) streamingService;
+        return answer::answer;
+    }
+
+    @Override
+    public String outputInstructions(Method method, ReturnTypeInfo typeInfo) {
         if (typeInfo.isString()) {
-            return prompt;
+            return "";
         }
 
-        return prompt + "\n"
+        return "\n"
                 + (typeInfo.isList()
                         ? OutputInstructions.arrayInstructions(typeInfo.getValueType())
                         : OutputInstructions.singleObjectInstructions(typeInfo.getValueType()));
@@ -6,7 +6,6 @@ import gg.jte.ContentType;
 import gg.jte.TemplateEngine;
 import gg.jte.output.StringOutput;
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -44,8 +43,10 @@ public class JteTemplateProcessor implements TemplateProcessor {
                 .map(PP::value)
                 .collect(Collectors.toSet());
 
-        if (declaredParams.size() != method.getParameterCount()) {
-            throw new IllegalArgumentException("All parameters must be annotated with @PP");
+        // The @MemoryId parameter selects the chat memory and is not a template parameter
+        int memoryIdParams = InvocationPlan.memoryIdIndex(method) < 0 ? 0 : 1;
+        if (declaredParams.size() + memoryIdParams != method.getParameterCount()) {
+            throw new IllegalArgumentException("All parameters but the @MemoryId one must be annotated with @PP");
         }
 
         Set<String> missingParams = new HashSet<>(templateParams.keySet());
@@ -68,23 +69,20 @@ public class JteTemplateProcessor implements TemplateProcessor {
 
     @Override
     public String preparePrompt(Method method, Object[] args) {
-        String templatePath = getTemplatePath(method);
-        Map<String, Object> params = extractParameters(method, args);
-
-        StringOutput output = new StringOutput();
-        templateEngine.render(templatePath, params, output);
-        return output.toString();
+        return render(getTemplatePath(method), InvocationPlan.parameterNames(method), args);
     }
 
-    private Map<String, Object> extractParameters(Method method, Object[] args) {
+    @Override
+    public String render(String templatePath, String[] parameterNames, Object[] args) {
         Map<String, Object> params = new HashMap<>();
-        Parameter[] parameters = method.getParameters();
-        for (int i = 0; i < parameters.length; i++) {
-            PP paramAnnotation = parameters[i].getAnnotation(PP.class);
-            if (paramAnnotation != null) {
-                params.put(paramAnnotation.value(), args[i]);
+        for (int i = 0; i < parameterNames.length; i++) {
+            if (parameterNames[i] != null) {
+                params.put(parameterNames[i], args[i]);
             }
         }
-        return params;
+
+        StringOutput output = new StringOutput();
+        templateEngine.render(templatePath, params, output);
+        return output.toString();
     }
 }
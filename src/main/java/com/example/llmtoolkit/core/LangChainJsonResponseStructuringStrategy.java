@@ -3,11 +3,18 @@ package com.example.llmtoolkit.core;
 import com.example.llmtoolkit.core.annotations.PT;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.service.AiServices;
+import dev.langchain4j.service.MemoryId;
 import dev.langchain4j.service.UserMessage;
 import dev.langchain4j.service.V;
+import dev.langchain4j.service.memory.ChatMemoryAccess;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import net.bytebuddy.ByteBuddy;
 import net.bytebuddy.description.annotation.AnnotationDescription;
 import net.bytebuddy.description.modifier.Visibility;
@@ -33,8 +40,10 @@ public class LangChainJsonResponseStructuringStrategy implements ResponseStructu
     }
 
     private <T> Class<?> createModifiedInterface(Class<T> originalInterface) {
-        var builder = new ByteBuddy()
-                .makeInterface()
+        // langchain4j requires a chat memory for ChatMemoryAccess, so it is only added when the service uses one
+        var builder = (InvocationPlan.usesChatMemory(originalInterface)
+                        ? new ByteBuddy().makeInterface(ChatMemoryAccess.class)
+                        : new ByteBuddy().makeInterface())
                 .name(originalInterface.getPackage().getName() + ".Modified" + originalInterface.getSimpleName()
                         + counter.incrementAndGet());
 
@@ -49,11 +58,24 @@ public class LangChainJsonResponseStructuringStrategy implements ResponseStructu
                         .define("value", "raw")
                         .build();
 
-                builder = builder.defineMethod(method.getName(), method.getGenericReturnType(), Visibility.PUBLIC)
-                        .withParameter(String.class, "prompt")
-                        .intercept(StubMethod.INSTANCE)
-                        .annotateMethod(userMessageAnnotation)
-                        .annotateParameter(0, vAnnotation);
+                AnnotationDescription memoryIdAnnotation =
+                        AnnotationDescription.Builder.ofType(MemoryId.class).build();
+
+                if (InvocationPlan.memoryIdIndex(method) < 0) {
+                    builder = builder.defineMethod(method.getName(), method.getGenericReturnType(), Visibility.PUBLIC)
+                            .withParameter(String.class, "prompt")
+                            .intercept(StubMethod.INSTANCE)
+                            .annotateMethod(userMessageAnnotation)
+                            .annotateParameter(0, vAnnotation);
+                } else {
+                    builder = builder.defineMethod(method.getName(), method.getGenericReturnType(), Visibility.PUBLIC)
+                            .withParameter(Object.class, "memoryId")
+                            .withParameter(String.class, "prompt")
+                            .intercept(StubMethod.INSTANCE)
+                            .annotateMethod(userMessageAnnotation)
+                            .annotateParameter(0, memoryIdAnnotation)
+                            .annotateParameter(1, vAnnotation);
+                }
             }
         }
 
@@ -64,18 +86,52 @@ public class LangChainJsonResponseStructuringStrategy implements ResponseStructu
     }
 
     @Override
-    public String augmentPromptWithOutputInstructions(String prompt, Method method, ReturnTypeInfo typeInfo) {
+    public String outputInstructions(Method method, ReturnTypeInfo typeInfo) {
         // Native type strategy doesn't modify the prompt as it relies on langchain4j's built-in type handling
-        return prompt;
+        return "";
     }
 
     @Override
     public Object invokeService(Object service, String prompt, Method originalMethod) {
+        return bindService(service, originalMethod).apply(prompt);
+    }
+
+    @Override
+    public Function<String, Object> bindService(Object service, Method originalMethod) {
+        MethodHandle handle = bind(service, originalMethod, String.class);
+        return prompt -> {
+            try {
+                return (Object) handle.invokeExact(prompt);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    @Override
+    public BiFunction<Object, String, Object> bindMemoryService(Object service, Method originalMethod) {
+        MethodHandle handle = bind(service, originalMethod, Object.class, String.class);
+        return (memoryId, prompt) -> {
+            try {
+                return (Object) handle.invokeExact(memoryId, prompt);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    private static MethodHandle bind(Object service, Method originalMethod, Class<?>... parameterTypes) {
         try {
-            return service.getClass()
-                    .getInterfaces()[0]
-                    .getMethod(originalMethod.getName(), String.class)
-                    .invoke(service, prompt);
+            Method modifiedMethod =
+                    service.getClass().getInterfaces()[0].getMethod(originalMethod.getName(), parameterTypes);
+            return MethodHandles.publicLookup()
+                    .unreflect(modifiedMethod)
+                    .bindTo(service)
+                    .asType(MethodType.methodType(Object.class, parameterTypes));
         } catch (ReflectiveOperationException e) {
             throw new RuntimeException(e);
         }
@@ -0,0 +1,15 @@
+package com.example.llmtoolkit.core;
+
+import dev.langchain4j.service.MemoryId;
+import dev.langchain4j.service.TokenStream;
+import dev.langchain4j.service.UserMessage;
+import dev.langchain4j.service.V;
+import dev.langchain4j.service.memory.ChatMemoryAccess;
+
+/**
+ * Streaming counterpart of {@link MemoryStringAnswer}
+ */
+public interface MemoryStreamingStringAnswer extends StreamingStringAnswer, ChatMemoryAccess {
+    @UserMessage("{{raw}}")
+    TokenStream answer(@MemoryId Object memoryId, @V("raw") String input);
+}
@@ -0,0 +1,16 @@
+package com.example.llmtoolkit.core;
+
+import dev.langchain4j.service.MemoryId;
+import dev.langchain4j.service.UserMessage;
+import dev.langchain4j.service.V;
+import dev.langchain4j.service.memory.ChatMemoryAccess;
+
+/**
+ * {@link StringAnswer} of the services that use chat memory: those with a {@link MemoryId} parameter,
+ * whose chat memory comes from the configured chat memory provider, or that extend {@link ChatMemoryAccess}.
+ * langchain4j only builds it when a chat memory or chat memory provider is configured.
+ */
+public interface MemoryStringAnswer extends StringAnswer, ChatMemoryAccess {
+    @UserMessage("{{raw}}")
+    String answer(@MemoryId Object memoryId, @V("raw") String input);
+}
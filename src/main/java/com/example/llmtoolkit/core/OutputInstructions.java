@@ -14,14 +14,37 @@ public class OutputInstructions {
             """
                     .formatted(Cue.class.getSimpleName());
 
+    // The text only depends on the class; ClassValue keeps it without preventing class unloading
+    private static final ClassValue<String> SINGLE_OBJECT_INSTRUCTIONS = new ClassValue<>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            return renderSingleObjectInstructions(type);
+        }
+    };
+
+    private static final ClassValue<String> ARRAY_INSTRUCTIONS = new ClassValue<>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            return renderArrayInstructions(type);
+        }
+    };
+
     public static String singleObjectInstructions(Class<?> clazz) {
+        return SINGLE_OBJECT_INSTRUCTIONS.get(clazz);
+    }
+
+    public static String arrayInstructions(Class<?> clazz) {
+        return ARRAY_INSTRUCTIONS.get(clazz);
+    }
+
+    private static String renderSingleObjectInstructions(Class<?> clazz) {
         return "\nOutput results in the single json object that corresponds to the jackson java bean '"
                 + clazz.getSimpleName() + "':\n\n"
                 + ClassToString.onlyRecords(clazz)
                 + INSTRUCTIONS_FOOTER;
     }
 
-    public static String arrayInstructions(Class<?> clazz) {
+    private static String renderArrayInstructions(Class<?> clazz) {
         return "\n"
                 + "Output results in the json array of elements [{element1}, ...{elementN}], where each element is a json"
                 + " object that corresponds to the jackson java bean '"
@@ -0,0 +1,220 @@
+package com.example.llmtoolkit.core;
+
+import com.example.llmtoolkit.core.annotations.ToolResultFormat;
+import com.example.llmtoolkit.core.annotations.ToolResultView;
+import com.example.llmtoolkit.util.Env;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.agent.tool.ToolSpecifications;
+import dev.langchain4j.model.TokenCountEstimator;
+import dev.langchain4j.model.openai.OpenAiChatModelName;
+import dev.langchain4j.model.openai.OpenAiTokenCountEstimator;
+import dev.langchain4j.service.tool.DefaultToolExecutor;
+import dev.langchain4j.service.tool.ToolExecutor;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tool executor that shrinks tool results before they reach chat memory.
+ *
+ * The result serialized by langchain4j is projected through the method's {@link ToolResultView},
+ * stripped of nulls (and defaults, see {@link ToolResultProjection}) and written by the method's
+ * {@link ToolResultFormat} encoding, or else by the executor's {@link ToolResultEncoder}. Plain text
+ * results are passed through. The bytes saved are logged for every call and summed per encoding in
+ * {@link #encodingStats()}, as are the tokens with {@link #COUNT_TOKENS_VARIABLE} set (counting them
+ * takes milliseconds for a list of vehicles).
+ *
+ * Register with {@code aiServices.tools(ProjectingToolExecutor.forTools(toolObjects...))}.
+ */
+@Slf4j
+public class ProjectingToolExecutor implements ToolExecutor {
+
+    public static final String COUNT_TOKENS_VARIABLE = "GM_TOOL_RESULT_TOKENS";
+    private static final boolean COUNT_TOKENS = Boolean.parseBoolean(Env.get(COUNT_TOKENS_VARIABLE));
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * Sizes of the results of all calls written by one encoder, next to the same results as compact
+     * JSON; tokens are 0 unless counted
+     */
+    public record EncodingStats(long calls, long jsonBytes, long jsonTokens, long encodedBytes, long encodedTokens) {}
+
+    private static final class EncodingCounters {
+        final LongAdder calls = new LongAdder();
+        final LongAdder jsonBytes = new LongAdder();
+        final LongAdder jsonTokens = new LongAdder();
+        final LongAdder encodedBytes = new LongAdder();
+        final LongAdder encodedTokens = new LongAdder();
+    }
+
+    private static final Map<String, EncodingCounters> ENCODING_COUNTERS = new ConcurrentHashMap<>();
+
+    private final String toolName;
+    private final ToolExecutor delegate;
+    private final ToolResultProjection projection;
+    private final ToolResultEncoder encoder;
+
+    ProjectingToolExecutor(
+            String toolName, ToolExecutor delegate, ToolResultProjection projection, ToolResultEncoder encoder) {
+        this.toolName = toolName;
+        this.delegate = delegate;
+        this.projection = projection;
+        this.encoder = encoder;
+    }
+
+    /**
+     * Tool specifications and projecting executors for every {@link Tool} method of the given objects,
+     * encoding results as set by {@link ToolResultEncoding#ENCODING_VARIABLE}
+     */
+    public static Map<ToolSpecification, ToolExecutor> forTools(Object... toolObjects) {
+        return forTools(ToolResultEncoding.fromEnv(), toolObjects);
+    }
+
+    /**
+     * Tool specifications and projecting executors for every {@link Tool} method of the given objects,
+     * encoding results with the given encoder unless the method has a {@link ToolResultFormat}
+     */
+    public static Map<ToolSpecification, ToolExecutor> forTools(ToolResultEncoder encoder, Object... toolObjects) {
+        Map<ToolSpecification, ToolExecutor> tools = new LinkedHashMap<>();
+        Map<String, Method> methodsByName = new LinkedHashMap<>();
+        for (Object toolObject : toolObjects) {
+            for (Method method : toolObject.getClass().getDeclaredMethods()) {
+                if (!method.isAnnotationPresent(Tool.class)) {
+                    continue;
+                }
+                ToolSpecification specification = ToolSpecifications.toolSpecificationFrom(method);
+                Method duplicate = methodsByName.putIfAbsent(specification.name(), method);
+                if (duplicate != null) {
+                    throw new IllegalArgumentException("Tool names must be unique, '" + specification.name()
+                            + "' is declared by " + duplicate + " and " + method);
+                }
+                ToolResultView view = method.getAnnotation(ToolResultView.class);
+                ToolResultFormat format = method.getAnnotation(ToolResultFormat.class);
+                tools.put(
+                        specification,
+                        new ProjectingToolExecutor(
+                                specification.name(),
+                                new DefaultToolExecutor(toolObject, method),
+                                view == null ? ToolResultProjection.NULLS_ONLY : ToolResultProjection.of(view),
+                                format == null ? encoder : format.value()));
+            }
+        }
+        return tools;
+    }
+
+    /**
+     * Sizes per encoder name, summed over all calls since start
+     */
+    public static Map<String, EncodingStats> encodingStats() {
+        Map<String, EncodingStats> stats = new TreeMap<>();
+        ENCODING_COUNTERS.forEach((name, counters) -> stats.put(
+                name,
+                new EncodingStats(
+                        counters.calls.sum(),
+                        counters.jsonBytes.sum(),
+                        counters.jsonTokens.sum(),
+                        counters.encodedBytes.sum(),
+                        counters.encodedTokens.sum())));
+        return stats;
+    }
+
+    @Override
+    public String execute(ToolExecutionRequest request, Object memoryId) {
+        String result = delegate.execute(request, memoryId);
+        if (result == null || !isJsonContainer(result)) {
+            return result;
+        }
+        JsonNode projected;
+        String json;
+        try {
+            projected = projection.apply(OBJECT_MAPPER.readTree(result));
+            json = OBJECT_MAPPER.writeValueAsString(projected);
+        } catch (JsonProcessingException e) {
+            return result;
+        }
+        String encoded = encode(projected, json);
+
+        int before = utf8Length(result);
+        int jsonBytes = utf8Length(json);
+        int encodedBytes = encoded == json ? jsonBytes : utf8Length(encoded);
+        int jsonTokens = COUNT_TOKENS ? Tokens.count(json) : 0;
+        int encodedTokens = !COUNT_TOKENS ? 0 : encoded == json ? jsonTokens : Tokens.count(encoded);
+        EncodingCounters counters = ENCODING_COUNTERS.computeIfAbsent(encoder.name(), name -> new EncodingCounters());
+        counters.calls.increment();
+        counters.jsonBytes.add(jsonBytes);
+        counters.jsonTokens.add(jsonTokens);
+        counters.encodedBytes.add(encodedBytes);
+        counters.encodedTokens.add(encodedTokens);
+        log.info(
+                "Tool {} result as {}: {} -> {} bytes, saved {} ({}%){}",
+                toolName,
+                encoder.name(),
+                before,
+                encodedBytes,
+                before - encodedBytes,
+                before == 0 ? 0 : (before - encodedBytes) * 100 / before,
+                COUNT_TOKENS ? "; " + jsonTokens + " tokens as JSON, " + encodedTokens + " as " + encoder.name() : "");
+        return encoded;
+    }
+
+    /**
+     * The projected result in the tool's encoding, compact JSON if the encoder fails
+     */
+    private String encode(JsonNode projected, String json) {
+        if (encoder == ToolResultEncoding.JSON) {
+            return json;
+        }
+        try {
+            return encoder.encode(projected);
+        } catch (RuntimeException e) {
+            log.warn("Tool {} result could not be encoded as {}, sending JSON", toolName, encoder.name(), e);
+            return json;
+        }
+    }
+
+    private static boolean isJsonContainer(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c == '{' || c == '[';
+            }
+        }
+        return false;
+    }
+
+    private static int utf8Length(String text) {
+        return text.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * Token counts with the tokenizer of the GPT-4.1 family, loaded on first use; characters / 4 when
+     * it cannot be loaded
+     */
+    private static final class Tokens {
+        private static final TokenCountEstimator ESTIMATOR = loadEstimator();
+
+        static int count(String text) {
+            return ESTIMATOR == null ? (text.length() + 3) / 4 : ESTIMATOR.estimateTokenCountInText(text);
+        }
+
+        private static TokenCountEstimator loadEstimator() {
+            try {
+                return new OpenAiTokenCountEstimator(OpenAiChatModelName.GPT_4_1);
+            } catch (RuntimeException | LinkageError e) {
+                log.warn("Token counts are estimated from the length, the tokenizer could not be loaded", e);
+                return null;
+            }
+        }
+    }
+}
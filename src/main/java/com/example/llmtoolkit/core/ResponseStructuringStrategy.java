@@ -3,8 +3,15 @@ package com.example.llmtoolkit.core;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.service.AiServices;
 import java.lang.reflect.Method;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
+/**
+ * How the {@link com.example.llmtoolkit.core.annotations.PT} methods of a service reach the model and
+ * how their answers become the declared return types. Strategies that can also stream answers
+ * implement {@link StreamingResponseStructuringStrategy}.
+ */
 public interface ResponseStructuringStrategy {
 
     /**
@@ -18,9 +25,22 @@ public interface ResponseStructuringStrategy {
     Object invokeService(Object service, String prompt, Method originalMethod);
 
     /**
-     * Prepares the prompt before sending it to the LLM
+     * Resolves the service call for a method once, so that invoking it needs no further lookups
      */
-    String augmentPromptWithOutputInstructions(String prompt, Method method, ReturnTypeInfo typeInfo);
+    default Function<String, Object> bindService(Object service, Method originalMethod) {
+        return prompt -> invokeService(service, prompt, originalMethod);
+    }
+
+    /**
+     * Resolves the service call for a method with a {@link dev.langchain4j.service.MemoryId} parameter;
+     * the call takes the memory id and the prompt
+     */
+    BiFunction<Object, String, Object> bindMemoryService(Object service, Method originalMethod);
+
+    /**
+     * Output instructions appended to every prompt of the method, or an empty string
+     */
+    String outputInstructions(Method method, ReturnTypeInfo typeInfo);
 
     /**
      * Processes the result returned from the LLM service
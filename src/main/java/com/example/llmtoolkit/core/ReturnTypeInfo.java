@@ -3,20 +3,36 @@ package com.example.llmtoolkit.core;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
 
 /**
  * Represents return type information with validation logic
  */
 public class ReturnTypeInfo {
+
+    /**
+     * How the answer is delivered: as a whole, or as partial text while it is generated
+     */
+    public enum Streaming {
+        NONE,
+        PUBLISHER,
+        STREAM,
+        RESPONSE
+    }
+
     private final Class<?> valueType;
     private final boolean isList;
     private final boolean isString;
+    private final Streaming streaming;
 
     private ReturnTypeInfo(Type originalType) {
-        this.valueType = extractValueType(originalType);
-        this.isList = originalType instanceof ParameterizedType
-                && ((ParameterizedType) originalType).getRawType() == List.class;
-        this.isString = originalType == String.class;
+        this.streaming = streamingOf(originalType);
+        Type answerType = answerType(originalType, streaming);
+        this.valueType = extractValueType(answerType);
+        this.isList =
+                answerType instanceof ParameterizedType && ((ParameterizedType) answerType).getRawType() == List.class;
+        this.isString = answerType == String.class;
     }
 
     public static ReturnTypeInfo from(Type type) {
@@ -24,7 +40,34 @@ public class ReturnTypeInfo {
     }
 
     public static void validateType(Type type) {
-        extractValueType(type); // Will throw if invalid
+        Streaming streaming = streamingOf(type);
+        Type answerType = answerType(type, streaming);
+        extractValueType(answerType); // Will throw if invalid
+        if ((streaming == Streaming.PUBLISHER || streaming == Streaming.STREAM) && answerType != String.class) {
+            throw new UnsupportedOperationException(
+                    "Flow.Publisher and Stream return types must emit String, use StreamingResponse<T> for other types");
+        }
+    }
+
+    private static Streaming streamingOf(Type type) {
+        if (type instanceof ParameterizedType paramType) {
+            Type rawType = paramType.getRawType();
+            if (rawType == Flow.Publisher.class) {
+                return Streaming.PUBLISHER;
+            } else if (rawType == Stream.class) {
+                return Streaming.STREAM;
+            } else if (rawType == StreamingResponse.class) {
+                return Streaming.RESPONSE;
+            }
+        }
+        return Streaming.NONE;
+    }
+
+    /**
+     * The type of the complete answer, i.e. the return type without its streaming wrapper
+     */
+    private static Type answerType(Type type, Streaming streaming) {
+        return streaming == Streaming.NONE ? type : ((ParameterizedType) type).getActualTypeArguments()[0];
     }
 
     private static Class<?> extractValueType(Type returnType) {
@@ -40,7 +83,8 @@ public class ReturnTypeInfo {
             }
         }
         throw new UnsupportedOperationException(
-                "Return type must be either a class (e.g., String, CustomClass) or List<Class> (e.g., List<String>). "
+                "Return type must be either a class (e.g., String, CustomClass) or List<Class> (e.g., List<String>), "
+                        + "optionally wrapped in StreamingResponse. "
                         + "Unsupported types include: Map<K,V>, List<List<T>>, List<?>, generic type parameters.");
     }
 
@@ -65,4 +109,12 @@ public class ReturnTypeInfo {
     public boolean isString() {
         return isString;
     }
+
+    public Streaming getStreaming() {
+        return streaming;
+    }
+
+    public boolean isStreaming() {
+        return streaming != Streaming.NONE;
+    }
 }
@@ -0,0 +1,231 @@
+package com.example.llmtoolkit.core;
+
+import com.example.llmtoolkit.util.json.IncrementalJsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.langchain4j.service.TokenStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Handle of a streamed answer, returned by {@link com.example.llmtoolkit.core.annotations.PT} methods
+ * declared as {@code StreamingResponse<T>}.
+ *
+ * Register the callbacks, then call {@link #start()}. Partial text is the raw answer for String
+ * results, and the text of the {@link com.example.llmtoolkit.core.annotations.StreamedText} component
+ * for structured results. Structured answers are parsed by an {@link IncrementalJsonParser} while
+ * they arrive, so the complete answer is bound without parsing it again; the usual conversion is the
+ * fallback when that fails. A response can be started once.
+ */
+public class StreamingResponse<T> {
+    private static final Object END = new Object();
+
+    private final Supplier<TokenStream> tokenStream;
+    private final Function<String, T> converter;
+    private final Function<JsonNode, T> treeConverter;
+    private final String streamedPath;
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private Consumer<String> partialTextHandler = text -> {};
+    private Consumer<T> partialResultHandler;
+    private Consumer<T> completeHandler = result -> {};
+    private Consumer<Throwable> errorHandler = error -> {};
+
+    /**
+     * @param treeConverter binds a parsed answer, null for String results
+     * @param streamedProperty the {@link com.example.llmtoolkit.core.annotations.StreamedText} component, or null
+     */
+    StreamingResponse(
+            Supplier<TokenStream> tokenStream,
+            Function<String, T> converter,
+            Function<JsonNode, T> treeConverter,
+            String streamedProperty) {
+        this.tokenStream = tokenStream;
+        this.converter = converter;
+        this.treeConverter = treeConverter;
+        this.streamedPath = streamedProperty == null ? null : "/" + streamedProperty;
+    }
+
+    public StreamingResponse<T> onPartialText(Consumer<String> handler) {
+        this.partialTextHandler = handler;
+        return this;
+    }
+
+    /**
+     * Structured results only: the answer bound from the fields (or array elements) closed so far,
+     * called each time another one closes. Missing fields are null.
+     */
+    public StreamingResponse<T> onPartialResult(Consumer<T> handler) {
+        this.partialResultHandler = handler;
+        return this;
+    }
+
+    public StreamingResponse<T> onComplete(Consumer<T> handler) {
+        this.completeHandler = handler;
+        return this;
+    }
+
+    public StreamingResponse<T> onError(Consumer<Throwable> handler) {
+        this.errorHandler = handler;
+        return this;
+    }
+
+    /**
+     * Sends the request; the returned future completes with the converted answer
+     */
+    public CompletableFuture<T> start() {
+        if (!started.compareAndSet(false, true)) {
+            throw new IllegalStateException("A streaming response can only be started once");
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        IncrementalJsonParser parser = treeConverter == null ? null : new AnswerListener().parser;
+        Consumer<Throwable> fail = error -> {
+            errorHandler.accept(error);
+            future.completeExceptionally(error);
+        };
+        tokenStream
+                .get()
+                .onPartialResponse(token -> {
+                    if (parser != null) {
+                        parser.feed(token);
+                    }
+                    if (parser == null || streamedPath == null) {
+                        partialTextHandler.accept(token);
+                    }
+                })
+                .onCompleteResponse(response -> {
+                    T result;
+                    try {
+                        result = convert(response.aiMessage().text(), parser);
+                    } catch (RuntimeException e) {
+                        fail.accept(e);
+                        return;
+                    }
+                    completeHandler.accept(result);
+                    future.complete(result);
+                })
+                .onError(fail)
+                .start();
+        return future;
+    }
+
+    private T convert(String answer, IncrementalJsonParser parser) {
+        if (parser != null) {
+            JsonNode tree = parser.finish();
+            if (tree != null) {
+                try {
+                    return treeConverter.apply(tree);
+                } catch (RuntimeException ignored) {
+                    // Fall back to the full conversion, which also accepts YAML
+                }
+            }
+        }
+        return converter.apply(answer);
+    }
+
+    private class AnswerListener implements IncrementalJsonParser.Listener {
+        final IncrementalJsonParser parser = new IncrementalJsonParser(this);
+
+        @Override
+        public void onText(String path, CharSequence text) {
+            if (path.equals(streamedPath)) {
+                partialTextHandler.accept(text.toString());
+            }
+        }
+
+        @Override
+        public void onValue(String path, JsonNode value) {
+            // Fields of the root object or elements of the root array
+            if (partialResultHandler != null && !path.isEmpty() && path.indexOf('/', 1) < 0) {
+                try {
+                    partialResultHandler.accept(treeConverter.apply(parser.snapshot()));
+                } catch (RuntimeException ignored) {
+                    // Not bindable yet
+                }
+            }
+        }
+    }
+
+    /**
+     * Partial text as a publisher, which starts the response when subscribed. Only one subscriber
+     * is supported.
+     */
+    public Flow.Publisher<String> asPublisher() {
+        return subscriber -> {
+            if (started.get()) {
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override
+                    public void request(long n) {}
+
+                    @Override
+                    public void cancel() {}
+                });
+                subscriber.onError(new IllegalStateException("A streaming response can only be started once"));
+                return;
+            }
+            SubmissionPublisher<String> publisher = new SubmissionPublisher<>();
+            publisher.subscribe(subscriber);
+            onPartialText(publisher::submit);
+            onComplete(result -> publisher.close());
+            onError(publisher::closeExceptionally);
+            start();
+        };
+    }
+
+    /**
+     * Starts the response and returns its partial text as a blocking stream; an error of the
+     * response is rethrown by the stream
+     */
+    public Stream<String> asStream() {
+        BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+        onPartialText(queue::add);
+        onComplete(result -> queue.add(END));
+        onError(queue::add);
+        start();
+
+        Iterator<String> texts = new Iterator<>() {
+            private Object next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = queue.take();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrupted while waiting for the answer", e);
+                    }
+                }
+                if (next instanceof RuntimeException error) {
+                    throw error;
+                } else if (next instanceof Throwable error) {
+                    throw new IllegalStateException(error);
+                }
+                return next != END;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String text = (String) next;
+                next = null;
+                return text;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(texts, Spliterator.ORDERED), false);
+    }
+}
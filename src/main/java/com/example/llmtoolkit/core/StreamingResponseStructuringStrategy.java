@@ -0,0 +1,33 @@
+package com.example.llmtoolkit.core;
+
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.service.AiServices;
+import dev.langchain4j.service.TokenStream;
+import java.lang.reflect.Method;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A {@link ResponseStructuringStrategy} that also serves the methods returning a
+ * {@link StreamingResponse}, Flow.Publisher or Stream. Services with such methods can only be
+ * created with a strategy implementing this interface.
+ */
+public interface StreamingResponseStructuringStrategy extends ResponseStructuringStrategy {
+
+    /**
+     * Creates a service implementation for streamed answers, see {@link StreamingResponse}
+     */
+    <T> Object createStreamingService(
+            Class<T> serviceInterface, StreamingChatModel model, Consumer<AiServices<?>> customizer);
+
+    /**
+     * Resolves the streaming service call for a method; the token stream is returned unstarted
+     */
+    Function<String, TokenStream> bindStreamingService(Object streamingService, Method originalMethod);
+
+    /**
+     * Streaming counterpart of {@link #bindMemoryService}
+     */
+    BiFunction<Object, String, TokenStream> bindMemoryStreamingService(Object streamingService, Method originalMethod);
+}
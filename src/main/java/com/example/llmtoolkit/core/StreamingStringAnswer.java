@@ -0,0 +1,13 @@
+package com.example.llmtoolkit.core;
+
+import dev.langchain4j.service.TokenStream;
+import dev.langchain4j.service.UserMessage;
+import dev.langchain4j.service.V;
+
+/**
+ * Streaming counterpart of {@link StringAnswer}, see there for the reason of the annotations.
+ */
+public interface StreamingStringAnswer {
+    @UserMessage("{{raw}}")
+    TokenStream answer(@V("raw") String input);
+}
@@ -0,0 +1,325 @@
+package com.example.llmtoolkit.core;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Header-once encodings of tool results, see {@link ToolResultEncoding#TABLE} and {@link ToolResultEncoding#CSV}.
+ *
+ * A list of records is an array of objects; nested objects become dotted columns such as
+ * {@code vehicle.id}, and a field missing from a record is an empty cell. In a table a record may
+ * not hold arrays (they are written as a list of items instead), in CSV an array is a JSON cell.
+ * Strings that would read as something else are quoted.
+ */
+final class TabularEncoding {
+    private static final String INDENT = "  ";
+
+    private record Table(Set<String> columns, List<Map<String, JsonNode>> rows) {}
+
+    private TabularEncoding() {}
+
+    static String table(JsonNode result) {
+        if (result.isObject() && result.isEmpty()) {
+            return "{}";
+        }
+        StringBuilder out = new StringBuilder();
+        if (result.isObject()) {
+            writeFields(out, result, 0);
+        } else {
+            writeArray(out, null, result, 0);
+        }
+        return stripNewline(out);
+    }
+
+    static String csv(JsonNode result) {
+        StringBuilder out = new StringBuilder();
+        if (result.isObject()) {
+            for (Iterator<Map.Entry<String, JsonNode>> fields = result.fields(); fields.hasNext(); ) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                out.append(csvCell(field.getKey())).append(',');
+                out.append(csvCell(field.getValue())).append('\n');
+            }
+            return stripNewline(out);
+        }
+        Table table = records(result, true);
+        if (table == null) {
+            for (JsonNode element : result) {
+                out.append(csvCell(element)).append('\n');
+            }
+            return stripNewline(out);
+        }
+        out.append(String.join(
+                ",", table.columns().stream().map(TabularEncoding::csvCell).toList()));
+        out.append('\n');
+        for (Map<String, JsonNode> row : table.rows()) {
+            boolean first = true;
+            for (String column : table.columns()) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                JsonNode value = row.get(column);
+                if (value != null) {
+                    out.append(csvCell(value));
+                }
+            }
+            out.append('\n');
+        }
+        return stripNewline(out);
+    }
+
+    // Table
+
+    private static void writeFields(StringBuilder out, JsonNode object, int depth) {
+        for (Iterator<Map.Entry<String, JsonNode>> fields = object.fields(); fields.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String key = tableKey(field.getKey());
+            JsonNode value = field.getValue();
+            if (value.isArray()) {
+                writeArray(out, key, value, depth);
+                continue;
+            }
+            out.append(INDENT.repeat(depth)).append(key).append(':');
+            if (value.isObject() && !value.isEmpty()) {
+                out.append('\n');
+                writeFields(out, value, depth + 1);
+            } else {
+                out.append(' ').append(tableScalar(value)).append('\n');
+            }
+        }
+    }
+
+    /**
+     * {@code key[count]{columns}:} and rows, {@code key[count]: a,b} for scalars, or {@code key[count]:}
+     * and one {@code - item} per element
+     */
+    private static void writeArray(StringBuilder out, String key, JsonNode array, int depth) {
+        out.append(INDENT.repeat(depth));
+        if (key != null) {
+            out.append(key);
+        }
+        out.append('[').append(array.size()).append(']');
+        Table table = records(array, false);
+        if (table != null) {
+            out.append('{');
+            out.append(String.join(
+                    ",", table.columns().stream().map(TabularEncoding::tableKey).toList()));
+            out.append("}:\n");
+            for (Map<String, JsonNode> row : table.rows()) {
+                out.append(INDENT.repeat(depth + 1));
+                boolean first = true;
+                for (String column : table.columns()) {
+                    if (!first) {
+                        out.append(',');
+                    }
+                    first = false;
+                    JsonNode value = row.get(column);
+                    if (value != null) {
+                        out.append(tableScalar(value));
+                    }
+                }
+                out.append('\n');
+            }
+        } else if (allScalars(array)) {
+            out.append(':');
+            boolean first = true;
+            for (JsonNode element : array) {
+                out.append(first ? " " : ",").append(tableScalar(element));
+                first = false;
+            }
+            out.append('\n');
+        } else {
+            out.append(":\n");
+            for (JsonNode element : array) {
+                writeItem(out, element, depth + 1);
+            }
+        }
+    }
+
+    /**
+     * A container item is written two levels deeper, then the end of its first indent becomes the dash
+     */
+    private static void writeItem(StringBuilder out, JsonNode element, int depth) {
+        int start = out.length();
+        if (element.isObject() && !element.isEmpty()) {
+            writeFields(out, element, depth + 1);
+        } else if (element.isArray()) {
+            writeArray(out, null, element, depth + 1);
+        } else {
+            out.append(INDENT.repeat(depth + 1)).append(tableScalar(element)).append('\n');
+        }
+        out.setCharAt(start + INDENT.length() * (depth + 1) - 2, '-');
+    }
+
+    private static boolean allScalars(JsonNode array) {
+        for (JsonNode element : array) {
+            if (element.isContainerNode()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String tableKey(String key) {
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < ' ' || ":,\"\\[]{}".indexOf(c) >= 0) {
+                return quote(key);
+            }
+        }
+        return key.isEmpty() || hasOuterSpace(key) ? quote(key) : key;
+    }
+
+    private static String tableScalar(JsonNode value) {
+        if (value.isObject()) {
+            return "{}";
+        }
+        String text = value.asText();
+        if (!value.isTextual()) {
+            return text;
+        }
+        if (text.isEmpty()
+                || hasOuterSpace(text)
+                || text.equalsIgnoreCase("true")
+                || text.equalsIgnoreCase("false")
+                || text.equalsIgnoreCase("null")
+                || isNumber(text)
+                || text.charAt(0) == '['
+                || text.charAt(0) == '{'
+                || text.charAt(0) == '-') {
+            return quote(text);
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < ' ' || c == ',' || c == '"' || c == '\\') {
+                return quote(text);
+            }
+        }
+        return text;
+    }
+
+    private static String quote(String text) {
+        StringBuilder quoted = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> {
+                    if (c < ' ') {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static boolean isNumber(String text) {
+        int i = text.charAt(0) == '-' || text.charAt(0) == '+' ? 1 : 0;
+        boolean digits = false;
+        boolean dot = false;
+        boolean exponent = false;
+        for (; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits = true;
+            } else if (c == '.' && !dot && !exponent) {
+                dot = true;
+            } else if ((c == 'e' || c == 'E') && digits && !exponent) {
+                exponent = true;
+                digits = false;
+                if (i + 1 < text.length() && (text.charAt(i + 1) == '-' || text.charAt(i + 1) == '+')) {
+                    i++;
+                }
+            } else {
+                return false;
+            }
+        }
+        return digits;
+    }
+
+    // CSV
+
+    private static String csvCell(JsonNode value) {
+        if (value.isNull() || value.isMissingNode()) {
+            return "";
+        }
+        String text = value.isContainerNode() ? value.toString() : value.asText();
+        return value.isTextual() && text.isEmpty() ? "\"\"" : csvCell(text);
+    }
+
+    private static String csvCell(String text) {
+        boolean quote = hasOuterSpace(text);
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        return quote ? "\"" + text.replace("\"", "\"\"") + "\"" : text;
+    }
+
+    // Records
+
+    /**
+     * The array as a list of records, or null when it is empty or holds anything but suitable objects
+     */
+    private static Table records(JsonNode array, boolean arrayCells) {
+        if (array.isEmpty()) {
+            return null;
+        }
+        Set<String> columns = new LinkedHashSet<>();
+        List<Map<String, JsonNode>> rows = new ArrayList<>(array.size());
+        for (JsonNode element : array) {
+            Map<String, JsonNode> row = new LinkedHashMap<>();
+            if (!element.isObject() || !flatten(element, "", arrayCells, row)) {
+                return null;
+            }
+            columns.addAll(row.keySet());
+            rows.add(row);
+        }
+        return new Table(columns, rows);
+    }
+
+    private static boolean flatten(JsonNode object, String prefix, boolean arrayCells, Map<String, JsonNode> row) {
+        for (Iterator<Map.Entry<String, JsonNode>> fields = object.fields(); fields.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String key = field.getKey();
+            JsonNode value = field.getValue();
+            // Dotted keys and empty objects would not read back
+            if (key.indexOf('.') >= 0 || (value.isObject() && value.isEmpty())) {
+                return false;
+            }
+            if (value.isObject()) {
+                if (!flatten(value, prefix + key + ".", arrayCells, row)) {
+                    return false;
+                }
+            } else if (value.isArray() && !arrayCells) {
+                return false;
+            } else {
+                row.put(prefix + key, value);
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasOuterSpace(String text) {
+        return !text.isEmpty()
+                && (Character.isWhitespace(text.charAt(0)) || Character.isWhitespace(text.charAt(text.length() - 1)));
+    }
+
+    private static String stripNewline(StringBuilder out) {
+        int length = out.length();
+        return length > 0 && out.charAt(length - 1) == '\n' ? out.substring(0, length - 1) : out.toString();
+    }
+}
@@ -20,4 +20,14 @@ public interface TemplateProcessor {
      * @throws IllegalArgumentException if parameters are invalid
      */
     String preparePrompt(Method method, Object[] args);
+
+    /**
+     * Renders a template with parameters already resolved, without inspecting the method again
+     *
+     * @param templatePath Template to render
+     * @param parameterNames Template parameter name of each argument, null for arguments not passed
+     * @param args Method invocation arguments, may be null when there are none
+     * @return Processed template as string
+     */
+    String render(String templatePath, String[] parameterNames, Object[] args);
 }
@@ -2,9 +2,14 @@ package com.example.llmtoolkit.core;
 
 import com.example.llmtoolkit.core.annotations.PT;
 import com.example.llmtoolkit.util.Do;
+import dev.langchain4j.memory.ChatMemory;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.service.AiServices;
+import dev.langchain4j.service.memory.ChatMemoryAccess;
 import java.lang.reflect.*;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import lombok.Builder;
@@ -17,6 +22,12 @@ public class TemplatedLLMServiceFactory {
     @NonNull
     private final ChatModel model;
 
+    /**
+     * Model of the {@link PT} methods returning a {@link StreamingResponse}, Flow.Publisher or Stream;
+     * optional when the services have none
+     */
+    private final StreamingChatModel streamingModel;
+
     @NonNull
     private final TemplateProcessor templateProcessor;
 
@@ -27,6 +38,11 @@ public class TemplatedLLMServiceFactory {
     @Builder.Default
     private ResponseStructuringStrategy serviceStrategy = new JacksonSourceResponseStructuringStrategy();
 
+    /**
+     * Validates the interface and compiles the plan of each {@link PT} method, which renders its
+     * output instructions; their schema text is cached per class, so creating the services at startup
+     * is the warm-up and the first requests do not pay for the rendering
+     */
     @SuppressWarnings("unchecked")
     public <T> T create(Class<T> serviceInterface) {
         if (!serviceInterface.isInterface()) {
@@ -36,11 +52,40 @@ public class TemplatedLLMServiceFactory {
         validateInterface(serviceInterface);
 
         Object service = serviceStrategy.createService(serviceInterface, model, aiServiceCustomizer);
+        Object streamingService = streamingModel != null && hasStreamingMethods(serviceInterface)
+                ? ((StreamingResponseStructuringStrategy) serviceStrategy)
+                        .createStreamingService(serviceInterface, streamingModel, aiServiceCustomizer)
+                : null;
 
         return (T) Proxy.newProxyInstance(
                 serviceInterface.getClassLoader(),
                 new Class<?>[] {serviceInterface},
-                new ServiceInvocationHandler(service));
+                new ServiceInvocationHandler(
+                        compilePlans(serviceInterface, service, streamingService), service, streamingService));
+    }
+
+    /**
+     * Plans keyed by the interface methods, which are the Method objects the proxy passes to the handler
+     */
+    private Map<Method, InvocationPlan> compilePlans(
+            Class<?> serviceInterface, Object service, Object streamingService) {
+        Map<Method, InvocationPlan> plans = new HashMap<>();
+        for (Method method : serviceInterface.getMethods()) {
+            if (method.isAnnotationPresent(PT.class)) {
+                plans.put(method, InvocationPlan.compile(method, service, streamingService, serviceStrategy));
+            }
+        }
+        return Map.copyOf(plans);
+    }
+
+    private static boolean hasStreamingMethods(Class<?> serviceInterface) {
+        for (Method method : serviceInterface.getMethods()) {
+            if (method.isAnnotationPresent(PT.class)
+                    && ReturnTypeInfo.from(method.getGenericReturnType()).isStreaming()) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private <T> void validateInterface(Class<T> serviceInterface) {
@@ -53,14 +98,28 @@ public class TemplatedLLMServiceFactory {
 
     private void validateMethod(Method method) {
         ReturnTypeInfo.validateType(method.getGenericReturnType());
+        if (ReturnTypeInfo.from(method.getGenericReturnType()).isStreaming()
+                && !(serviceStrategy instanceof StreamingResponseStructuringStrategy)) {
+            throw new UnsupportedOperationException("Method " + method.getName() + " returns a streamed answer, but "
+                    + serviceStrategy.getClass().getSimpleName() + " does not implement "
+                    + StreamingResponseStructuringStrategy.class.getSimpleName());
+        }
         templateProcessor.validateTemplate(method);
     }
 
+    /**
+     * Handles the {@link PT} methods, and the {@link ChatMemoryAccess} methods of interfaces extending
+     * it, which reach the chat memories the services resolved through the chat memory provider
+     */
     private class ServiceInvocationHandler implements InvocationHandler {
+        private final Map<Method, InvocationPlan> plans;
         private final Object service;
+        private final Object streamingService;
 
-        public ServiceInvocationHandler(Object service) {
+        public ServiceInvocationHandler(Map<Method, InvocationPlan> plans, Object service, Object streamingService) {
+            this.plans = plans;
             this.service = service;
+            this.streamingService = streamingService;
         }
 
         @Override
@@ -68,19 +127,31 @@ public class TemplatedLLMServiceFactory {
             if (method.getDeclaringClass() == Object.class) {
                 return method.invoke(this, args);
             }
+            if (method.getDeclaringClass() == ChatMemoryAccess.class) {
+                return accessChatMemory(method, args[0]);
+            }
 
-            String templatePrompt = templateProcessor.preparePrompt(method, args);
-            ReturnTypeInfo typeInfo = ReturnTypeInfo.from(method.getGenericReturnType());
+            InvocationPlan plan = plans.get(method);
+            if (plan == null) {
+                throw new IllegalStateException("Method must be annotated with @" + PT.class.getSimpleName());
+            }
 
-            final String processedPrompt =
-                    serviceStrategy.augmentPromptWithOutputInstructions(templatePrompt, method, typeInfo);
+            final Object memoryId = plan.memoryId(args);
+            final String processedPrompt = plan.preparePrompt(templateProcessor, args);
 
             Do printPrompt = Do.once(() -> printPrompt(processedPrompt), isToPrintPrompt);
 
-            Object rawResult = withPrintOnError(
-                    () -> serviceStrategy.invokeService(service, processedPrompt, method), printPrompt);
+            if (plan.isStreaming()) {
+                return plan.stream(memoryId, processedPrompt, result -> {
+                    if (isToPrintAnswer && result != null) {
+                        printAnswer(result.toString());
+                    }
+                });
+            }
+
+            Object rawResult = withPrintOnError(() -> plan.invokeService(memoryId, processedPrompt), printPrompt);
 
-            final Object processedResult = serviceStrategy.convertResult(rawResult, typeInfo);
+            final Object processedResult = plan.convertResult(rawResult);
 
             Do printAnswer = Do.once(
                     () -> {
@@ -93,6 +164,24 @@ public class TemplatedLLMServiceFactory {
             return withPrintOnError(() -> processedResult, printPrompt, printAnswer);
         }
 
+        /**
+         * The streaming service keeps chat memories of its own, so both services are evicted
+         */
+        private Object accessChatMemory(Method method, Object memoryId) {
+            ChatMemoryAccess access = (ChatMemoryAccess) service;
+            ChatMemoryAccess streamingAccess =
+                    streamingService instanceof ChatMemoryAccess memoryAccess ? memoryAccess : null;
+            if (method.getName().equals("evictChatMemory")) {
+                boolean evicted = access.evictChatMemory(memoryId);
+                if (streamingAccess != null) {
+                    evicted |= streamingAccess.evictChatMemory(memoryId);
+                }
+                return evicted;
+            }
+            ChatMemory memory = access.getChatMemory(memoryId);
+            return memory != null || streamingAccess == null ? memory : streamingAccess.getChatMemory(memoryId);
+        }
+
         private <T> T withPrintOnError(Supplier<T> action, Do... printActions) {
             try {
                 return action.get();
@@ -0,0 +1,19 @@
+package com.example.llmtoolkit.core;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Writes a projected tool result (a JSON object or array) as the text sent to the LLM.
+ *
+ * The built-in encoders are the {@link ToolResultEncoding} constants; pass another implementation to
+ * {@link ProjectingToolExecutor#forTools(ToolResultEncoder, Object...)} to use it for all tools.
+ */
+public interface ToolResultEncoder {
+
+    /**
+     * Name the sizes of the encoded results are reported under
+     */
+    String name();
+
+    String encode(JsonNode result);
+}
@@ -0,0 +1,74 @@
+package com.example.llmtoolkit.core;
+
+import com.example.llmtoolkit.util.Env;
+import com.example.llmtoolkit.util.json.SerObject;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Built-in tool result encoders, selected per tool with
+ * {@link com.example.llmtoolkit.core.annotations.ToolResultFormat} or for all tools with
+ * {@link #ENCODING_VARIABLE}. JSON repeats every key in every element of a list, the other encodings
+ * trade that for a format the LLM reads as easily.
+ */
+public enum ToolResultEncoding implements ToolResultEncoder {
+    /**
+     * Compact JSON
+     */
+    JSON {
+        @Override
+        public String encode(JsonNode result) {
+            try {
+                return OBJECT_MAPPER.writeValueAsString(result);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    },
+    /**
+     * Block YAML without line folding, written by {@link SerObject}
+     */
+    YAML {
+        @Override
+        public String encode(JsonNode result) {
+            return SerObject.from(result).toYaml(Integer.MAX_VALUE);
+        }
+    },
+    /**
+     * Indented key/value lines like YAML, with lists of records written as a table: the field names
+     * once in a {@code [count]{field,...}:} header, then one comma separated row per record, see
+     * {@link TabularEncoding}
+     */
+    TABLE {
+        @Override
+        public String encode(JsonNode result) {
+            return TabularEncoding.table(result);
+        }
+    },
+    /**
+     * CSV rows: a header and one row per record for lists of records, field and value rows for an
+     * object, see {@link TabularEncoding}
+     */
+    CSV {
+        @Override
+        public String encode(JsonNode result) {
+            return TabularEncoding.csv(result);
+        }
+    };
+
+    /**
+     * Name of the encoding used for tools without {@link com.example.llmtoolkit.core.annotations.ToolResultFormat},
+     * JSON when not set
+     */
+    public static final String ENCODING_VARIABLE = "GM_TOOL_RESULT_ENCODING";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    static ToolResultEncoding fromEnv() {
+        String encoding = Env.get(ENCODING_VARIABLE);
+        return encoding == null || encoding.isBlank()
+                ? JSON
+                : valueOf(encoding.strip().toUpperCase());
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.llmtoolkit.core;
+
+import com.example.llmtoolkit.core.annotations.ToolResultView;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Field selection and default removal for a tool result tree, compiled once per tool method from
+ * its {@link ToolResultView}.
+ *
+ * Nulls are always dropped from objects. With omitDefaults, which views opt into, zero numbers, empty
+ * strings and empty arrays or objects are dropped as well; false flags are kept, because a missing
+ * flag reads as unknown rather than as no. Array elements are never dropped, their position may matter.
+ */
+final class ToolResultProjection {
+
+    static final ToolResultProjection NULLS_ONLY = new ToolResultProjection(Fields.ALL, false);
+
+    private final Fields fields;
+    private final boolean omitDefaults;
+
+    private ToolResultProjection(Fields fields, boolean omitDefaults) {
+        this.fields = fields;
+        this.omitDefaults = omitDefaults;
+    }
+
+    static ToolResultProjection of(ToolResultView view) {
+        Fields fields = new Fields();
+        if (view.value() != Record.class) {
+            addView(fields, view.value(), new HashSet<>());
+        }
+        for (String path : view.fields()) {
+            Fields node = fields;
+            for (String name : path.split("\\.")) {
+                node = node.child(name);
+            }
+            node.whole = true;
+        }
+        return new ToolResultProjection(fields.children.isEmpty() ? Fields.ALL : fields, view.omitDefaults());
+    }
+
+    /**
+     * Projects the tree in place and returns it
+     */
+    JsonNode apply(JsonNode result) {
+        project(result, fields);
+        return result;
+    }
+
+    private void project(JsonNode node, Fields fields) {
+        if (node.isArray()) {
+            for (JsonNode element : node) {
+                project(element, fields);
+            }
+            return;
+        }
+        if (!node.isObject()) {
+            return;
+        }
+        Iterator<Map.Entry<String, JsonNode>> properties = node.properties().iterator();
+        while (properties.hasNext()) {
+            Map.Entry<String, JsonNode> property = properties.next();
+            Fields selected = fields.select(property.getKey());
+            if (selected == null) {
+                properties.remove();
+                continue;
+            }
+            project(property.getValue(), selected);
+            if (isOmitted(property.getValue())) {
+                properties.remove();
+            }
+        }
+    }
+
+    private boolean isOmitted(JsonNode value) {
+        if (value.isNull()) {
+            return true;
+        }
+        if (!omitDefaults) {
+            return false;
+        }
+        if (value.isNumber()) {
+            return value.doubleValue() == 0;
+        }
+        if (value.isTextual()) {
+            return value.textValue().isEmpty();
+        }
+        return value.isContainerNode() && value.isEmpty();
+    }
+
+    private static void addView(Fields fields, Class<?> view, Set<Class<?>> visiting) {
+        visiting.add(view);
+        for (RecordComponent component : view.getRecordComponents()) {
+            Fields child = fields.child(component.getName());
+            Class<?> nested = nestedRecord(component.getGenericType());
+            if (nested != null && !visiting.contains(nested)) {
+                addView(child, nested, visiting);
+            } else {
+                child.whole = true;
+            }
+        }
+        visiting.remove(view);
+    }
+
+    private static Class<?> nestedRecord(Type type) {
+        if (type instanceof Class<?> clazz) {
+            Class<?> element = clazz.isArray() ? clazz.getComponentType() : clazz;
+            return element.isRecord() ? element : null;
+        }
+        if (type instanceof ParameterizedType parameterized
+                && parameterized.getRawType() instanceof Class<?> raw
+                && Collection.class.isAssignableFrom(raw)
+                && parameterized.getActualTypeArguments()[0] instanceof Class<?> element
+                && element.isRecord()) {
+            return element;
+        }
+        return null;
+    }
+
+    /**
+     * Selected field names with their own selections; a node without children keeps everything
+     */
+    private static class Fields {
+        static final Fields ALL = new Fields();
+
+        final Map<String, Fields> children = new LinkedHashMap<>();
+        boolean whole;
+
+        Fields child(String name) {
+            return children.computeIfAbsent(name, k -> new Fields());
+        }
+
+        Fields select(String name) {
+            if (whole || children.isEmpty()) {
+                return ALL;
+            }
+            return children.get(name);
+        }
+    }
+}
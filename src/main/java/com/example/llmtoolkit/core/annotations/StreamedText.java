@@ -0,0 +1,14 @@
+package com.example.llmtoolkit.core.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the String record component whose text is emitted as partial text while a structured answer
+ * is streamed. Without it, the raw answer text is emitted.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.RECORD_COMPONENT)
+public @interface StreamedText {}
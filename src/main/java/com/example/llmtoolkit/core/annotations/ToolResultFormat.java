@@ -0,0 +1,17 @@
+package com.example.llmtoolkit.core.annotations;
+
+import com.example.llmtoolkit.core.ToolResultEncoding;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Encoding of the result of a tool method, applied after its {@link ToolResultView}. Overrides the
+ * encoder given to {@link com.example.llmtoolkit.core.ProjectingToolExecutor}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ToolResultFormat {
+    ToolResultEncoding value();
+}
@@ -0,0 +1,28 @@
+package com.example.llmtoolkit.core.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Projection applied to the result of a tool method before it is sent to the LLM.
+ *
+ * The kept fields come from a view record, whose components (and the components of nested record
+ * or list-of-record components) name the fields to keep, and/or from dotted paths in {@link #fields()}.
+ * Arrays are transparent in paths, so {@code "vehicles.id"} keeps the id of every vehicle.
+ * Without a view or fields the whole result is kept.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ToolResultView {
+    Class<? extends Record> value() default Record.class;
+
+    String[] fields() default {};
+
+    /**
+     * Also drop zero numbers, empty strings and empty collections, not only nulls. Only for views
+     * whose zeros mean absent: a zero towing capacity, MPG or down payment is a value the LLM needs.
+     */
+    boolean omitDefaults() default false;
+}
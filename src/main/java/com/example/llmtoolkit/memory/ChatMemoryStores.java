@@ -0,0 +1,54 @@
+package com.example.llmtoolkit.memory;
+
+import com.example.llmtoolkit.util.Env;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import dev.langchain4j.store.memory.chat.InMemoryChatMemoryStore;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * The chat memory store selected by {@link #STORE_VARIABLE}: {@code memory}, the default, keeps the
+ * messages on the heap of this process, which suits tests and single-node runs; {@code log} keeps them
+ * in a {@link SegmentLogChatMemoryStore} in {@link #DIR_VARIABLE} ({@code chat-memory} by default).
+ * A shared backend, such as a Redis-compatible one, is another {@link ChatMemoryStore} selected here.
+ */
+public final class ChatMemoryStores {
+
+    public static final String STORE_VARIABLE = "GM_CHAT_MEMORY_STORE";
+    public static final String DIR_VARIABLE = "GM_CHAT_MEMORY_DIR";
+    private static final String DEFAULT_DIR = "chat-memory";
+
+    private ChatMemoryStores() {}
+
+    /**
+     * The store selected by {@link #STORE_VARIABLE}: a new {@link InMemoryChatMemoryStore} for
+     * {@code memory}, so that its messages go with its owner, and the process-wide log, opened on first
+     * use, for {@code log}
+     */
+    public static ChatMemoryStore fromEnv() {
+        String store = Env.get(STORE_VARIABLE);
+        return switch (store == null || store.isBlank()
+                ? "memory"
+                : store.strip().toLowerCase()) {
+            case "memory" -> new InMemoryChatMemoryStore();
+            case "log" -> SharedLog.STORE;
+            default ->
+                throw new IllegalArgumentException("Unknown chat memory store " + store + ", expected memory or log");
+        };
+    }
+
+    private static final class SharedLog {
+        static final ChatMemoryStore STORE = openLog();
+    }
+
+    private static ChatMemoryStore openLog() {
+        String dir = Env.get(DIR_VARIABLE);
+        Path directory = Path.of(dir == null || dir.isBlank() ? DEFAULT_DIR : dir.strip());
+        try {
+            return SegmentLogChatMemoryStore.open(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open chat memory log " + directory, e);
+        }
+    }
+}
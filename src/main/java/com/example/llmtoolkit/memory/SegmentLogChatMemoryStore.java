@@ -0,0 +1,633 @@
+package com.example.llmtoolkit.memory;
+
+import com.example.llmtoolkit.util.Env;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageDeserializer;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link ChatMemoryStore} on a local append-only log, so conversations survive restarts and a
+ * directory can be opened by another node once this one has closed it.
+ *
+ * Each update is one record: the messages added since the previous update, after dropping the oldest
+ * ones the memory window evicted. Any other change, and every {@link #CHECKPOINT_RECORDS}th record of a
+ * session, writes all its messages instead, which bounds the records read to load a session. An
+ * in-heap index holds the location of each session's records since its last full record; sessions
+ * are read back from the memory-mapped segments, and recently used ones are also kept decoded.
+ *
+ * Records reach the page cache when they are written and are forced to disk every
+ * {@link #FSYNC_MILLIS_VARIABLE} milliseconds (100 by default): a crash of the process loses nothing,
+ * a crash of the host at most that interval. The log is split into segments of
+ * {@link #SEGMENT_BYTES_VARIABLE} bytes (64 MiB by default). Once less than half of the closed
+ * segments is still in use, their sessions are written again as full records and the segments are
+ * deleted, oldest first. Opening a directory replays its segments and cuts off a torn last record.
+ *
+ * Layout of a segment, a sequence of big-endian records:
+ * <pre>
+ * int body length, int CRC-32 of the body
+ * body: byte kind, short session id length, session id UTF-8, then per kind
+ *       UPDATE  int number of oldest messages dropped, JSON of the added messages
+ *       REPLACE JSON of all messages
+ *       DELETE  nothing
+ * </pre>
+ * The JSON is that of {@link ChatMessageSerializer}.
+ */
+@Slf4j
+public final class SegmentLogChatMemoryStore implements ChatMemoryStore, AutoCloseable {
+
+    public static final String SEGMENT_BYTES_VARIABLE = "GM_CHAT_MEMORY_SEGMENT_BYTES";
+    public static final String FSYNC_MILLIS_VARIABLE = "GM_CHAT_MEMORY_FSYNC_MILLIS";
+    private static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+    private static final long DEFAULT_FSYNC_MILLIS = 100;
+
+    static final int CHECKPOINT_RECORDS = 64;
+    private static final long CACHED_MESSAGES = 1 << 20;
+
+    private static final byte UPDATE = 1;
+    private static final byte REPLACE = 2;
+    private static final byte DELETE = 3;
+    private static final int HEADER_BYTES = 8;
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final List<Location> NO_RECORDS = List.of();
+
+    /**
+     * Counts since the store was opened, and the current size of the log
+     */
+    public record LogStats(
+            long sessions,
+            long segments,
+            long bytes,
+            long liveBytes,
+            long updates,
+            long fullRecords,
+            long loads,
+            long fsyncs,
+            long compactions) {}
+
+    private record Location(Segment segment, long offset, int length) {
+        long bytes() {
+            return HEADER_BYTES + length;
+        }
+    }
+
+    /**
+     * The messages of a session and the records they were read from
+     */
+    private record Loaded(List<Location> records, List<ChatMessage> messages) {}
+
+    private static final class Segment {
+        final long id;
+        final Path path;
+        final FileChannel channel;
+        final AtomicLong liveBytes = new AtomicLong();
+        final ReentrantLock mapping = new ReentrantLock();
+        volatile long size;
+        volatile MappedByteBuffer mapped;
+
+        Segment(long id, Path path, FileChannel channel, long size) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.size = size;
+        }
+
+        /**
+         * The bytes at the offset, mapping the segment again when it has grown past the mapped part
+         */
+        ByteBuffer read(long offset, int length) throws IOException {
+            MappedByteBuffer buffer = mapped;
+            if (buffer == null || buffer.capacity() < offset + length) {
+                mapping.lock();
+                try {
+                    buffer = mapped;
+                    if (buffer == null || buffer.capacity() < offset + length) {
+                        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                        mapped = buffer;
+                    }
+                } finally {
+                    mapping.unlock();
+                }
+            }
+            return buffer.slice((int) offset, length);
+        }
+    }
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final Map<String, List<Location>> index = new ConcurrentHashMap<>();
+    private final Cache<String, Loaded> decoded = Caffeine.newBuilder()
+            .maximumWeight(CACHED_MESSAGES)
+            .weigher((String id, Loaded loaded) -> loaded.messages().size() + 1)
+            .build();
+    private final ScheduledExecutorService background;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private volatile Segment active;
+
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder fullRecords = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder fsyncs = new LongAdder();
+    private final LongAdder compactions = new LongAdder();
+
+    private SegmentLogChatMemoryStore(Path directory, long segmentBytes, long fsyncMillis) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = Math.min(segmentBytes, Integer.MAX_VALUE);
+        Files.createDirectories(directory);
+        this.lockChannel =
+                FileChannel.open(directory.resolve("LOCK"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock fileLock;
+        try {
+            fileLock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            fileLock = null;
+        }
+        this.lock = fileLock;
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Chat memory log is already open: " + directory);
+        }
+        recover();
+        this.background = Executors.newScheduledThreadPool(
+                2, Thread.ofPlatform().daemon().name("chat-memory-log-", 0).factory());
+        background.scheduleWithFixedDelay(this::flushQuietly, fsyncMillis, fsyncMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens the log in the directory, creating it when missing, with the sizes from the environment
+     */
+    public static SegmentLogChatMemoryStore open(Path directory) throws IOException {
+        return open(
+                directory,
+                longFromEnv(SEGMENT_BYTES_VARIABLE, DEFAULT_SEGMENT_BYTES),
+                longFromEnv(FSYNC_MILLIS_VARIABLE, DEFAULT_FSYNC_MILLIS));
+    }
+
+    public static SegmentLogChatMemoryStore open(Path directory, long segmentBytes, long fsyncMillis)
+            throws IOException {
+        return new SegmentLogChatMemoryStore(directory, segmentBytes, fsyncMillis);
+    }
+
+    // ChatMemoryStore
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        return new ArrayList<>(load(memoryId.toString()).messages());
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        String sessionId = memoryId.toString();
+        List<ChatMessage> next = List.copyOf(messages);
+        Loaded current = load(sessionId);
+        writeLock.lock();
+        try {
+            if (current.records() != index.getOrDefault(sessionId, NO_RECORDS)) {
+                // Changed since it was loaded
+                current = read(sessionId);
+            }
+            List<ChatMessage> previous = current.messages();
+            int dropped = droppedPrefix(previous, next);
+            List<Location> records;
+            if (dropped == 0 && previous.size() == next.size()) {
+                return;
+            } else if ((dropped == previous.size() && !previous.isEmpty())
+                    || current.records().size() >= CHECKPOINT_RECORDS) {
+                records = replace(sessionId, next);
+            } else {
+                records = new ArrayList<>(current.records());
+                records.add(append(UPDATE, sessionId, dropped, next.subList(previous.size() - dropped, next.size())));
+                records = List.copyOf(records);
+                index.put(sessionId, records);
+                updates.increment();
+            }
+            decoded.put(sessionId, new Loaded(records, next));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write chat memory of " + sessionId, e);
+        } finally {
+            writeLock.unlock();
+        }
+        compactIfWorthIt();
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        String sessionId = memoryId.toString();
+        writeLock.lock();
+        try {
+            List<Location> records = index.remove(sessionId);
+            if (records != null) {
+                release(records);
+                append(DELETE, sessionId, 0, null);
+            }
+            decoded.invalidate(sessionId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete chat memory of " + sessionId, e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * The fewest oldest messages of previous to drop so that the rest starts next; all of them when
+     * next does not continue any part of previous
+     */
+    static int droppedPrefix(List<ChatMessage> previous, List<ChatMessage> next) {
+        for (int dropped = 0; dropped <= previous.size(); dropped++) {
+            int kept = previous.size() - dropped;
+            if (kept > next.size() || (kept > 0 && !previous.get(dropped).equals(next.get(0)))) {
+                continue;
+            }
+            if (previous.subList(dropped, previous.size()).equals(next.subList(0, kept))) {
+                return dropped;
+            }
+        }
+        return previous.size();
+    }
+
+    // Reading
+
+    private Loaded load(String sessionId) {
+        Loaded loaded = decoded.getIfPresent(sessionId);
+        if (loaded == null) {
+            try {
+                loaded = read(sessionId);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read chat memory of " + sessionId, e);
+            }
+            decoded.put(sessionId, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Replays the records of the session from the mapped segments. Reads take no lock: when a
+     * compaction has moved the records and closed their segment meanwhile, they are read again from
+     * where the index now has them.
+     */
+    private Loaded read(String sessionId) throws IOException {
+        while (true) {
+            List<Location> records = index.getOrDefault(sessionId, NO_RECORDS);
+            try {
+                return read(records);
+            } catch (ClosedChannelException e) {
+                if (index.getOrDefault(sessionId, NO_RECORDS) == records) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private Loaded read(List<Location> records) throws IOException {
+        List<ChatMessage> messages = new ArrayList<>();
+        for (Location location : records) {
+            ByteBuffer body = location.segment().read(location.offset() + HEADER_BYTES, location.length());
+            byte kind = body.get();
+            body.position(body.position() + 2 + Short.toUnsignedInt(body.getShort(1)));
+            if (kind == UPDATE) {
+                int dropped = body.getInt();
+                messages.subList(0, Math.min(dropped, messages.size())).clear();
+            } else {
+                messages.clear();
+            }
+            messages.addAll(ChatMessageDeserializer.messagesFromJson(
+                    StandardCharsets.UTF_8.decode(body).toString()));
+        }
+        loads.increment();
+        return new Loaded(records, List.copyOf(messages));
+    }
+
+    // Writing, under the write lock
+
+    private List<Location> replace(String sessionId, List<ChatMessage> messages) throws IOException {
+        Location location = append(REPLACE, sessionId, 0, messages);
+        List<Location> previous = index.put(sessionId, List.of(location));
+        if (previous != null) {
+            release(previous);
+        }
+        fullRecords.increment();
+        return List.of(location);
+    }
+
+    private static void release(List<Location> records) {
+        for (Location location : records) {
+            location.segment().liveBytes.addAndGet(-location.bytes());
+        }
+    }
+
+    /**
+     * Appends a record; UPDATE and REPLACE records count as live
+     */
+    private Location append(byte kind, String sessionId, int dropped, List<ChatMessage> messages) throws IOException {
+        byte[] id = sessionId.getBytes(StandardCharsets.UTF_8);
+        if (id.length > 0xFFFF) {
+            throw new IllegalArgumentException("Session id too long: " + id.length + " bytes");
+        }
+        byte[] json = messages == null
+                ? new byte[0]
+                : ChatMessageSerializer.messagesToJson(messages).getBytes(StandardCharsets.UTF_8);
+        int length = 1 + 2 + id.length + (kind == UPDATE ? 4 : 0) + json.length;
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + length);
+        record.position(HEADER_BYTES);
+        record.put(kind).putShort((short) id.length).put(id);
+        if (kind == UPDATE) {
+            record.putInt(dropped);
+        }
+        record.put(json);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_BYTES, length);
+        record.putInt(0, length).putInt(4, (int) crc.getValue());
+        record.flip();
+
+        Segment segment = active;
+        if (segment.size > 0 && segment.size + record.remaining() > segmentBytes) {
+            segment = roll();
+        }
+        long offset = segment.size;
+        while (record.hasRemaining()) {
+            segment.channel.write(record, offset + record.position());
+        }
+        segment.size = offset + record.limit();
+        dirty.set(true);
+        Location location = new Location(segment, offset, length);
+        if (kind != DELETE) {
+            segment.liveBytes.addAndGet(location.bytes());
+        }
+        return location;
+    }
+
+    private Segment roll() throws IOException {
+        active.channel.force(false);
+        Segment next = createSegment(active.id + 1);
+        segments.add(next);
+        active = next;
+        return next;
+    }
+
+    private Segment createSegment(long id) throws IOException {
+        Path path = directory.resolve(String.format("%016d%s", id, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(
+                path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(id, path, channel, 0);
+    }
+
+    // Durability
+
+    /**
+     * Forces the records written so far to disk
+     */
+    public void flush() throws IOException {
+        if (dirty.getAndSet(false)) {
+            active.channel.force(false);
+            fsyncs.increment();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            dirty.set(true);
+            log.warn("Cannot force chat memory log to disk: {}", e.getMessage());
+        }
+    }
+
+    // Compaction
+
+    private void compactIfWorthIt() {
+        long bytes = 0;
+        long live = 0;
+        for (Segment segment : segments) {
+            if (segment != active) {
+                bytes += segment.size;
+                live += segment.liveBytes.get();
+            }
+        }
+        if (bytes > 0 && live * 2 < bytes && compacting.compareAndSet(false, true)) {
+            background.execute(() -> {
+                try {
+                    compact();
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Chat memory log compaction failed: {}", e.getMessage());
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes the sessions that still have records in closed segments as full records, then deletes the
+     * closed segments without live records, oldest first. Stopping at the first segment still in use
+     * keeps the delete records that older segments need. A segment is only closed once no session has
+     * records in it, so a read of its former records finds them moved. Compactions run one at a time,
+     * a call waits for the one in progress.
+     */
+    public void compact() throws IOException {
+        compactionLock.lock();
+        try {
+            compactSegments();
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    private void compactSegments() throws IOException {
+        List<Segment> closed = new ArrayList<>(segments);
+        closed.remove(active);
+        if (closed.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, List<Location>> session : index.entrySet()) {
+            if (session.getValue().stream().noneMatch(location -> closed.contains(location.segment()))) {
+                continue;
+            }
+            String sessionId = session.getKey();
+            Loaded loaded = load(sessionId);
+            writeLock.lock();
+            try {
+                // Sessions changed meanwhile are left for the next compaction
+                if (index.get(sessionId) == loaded.records()) {
+                    decoded.put(sessionId, new Loaded(replace(sessionId, loaded.messages()), loaded.messages()));
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        flush();
+        for (Segment segment : closed) {
+            if (segment.liveBytes.get() > 0) {
+                break;
+            }
+            segments.remove(segment);
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+        }
+        compactions.increment();
+    }
+
+    // Recovery
+
+    private void recover() throws IOException {
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        for (int i = 0; i < paths.size(); i++) {
+            Path path = paths.get(i);
+            String name = path.getFileName().toString();
+            long id = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Segment segment = new Segment(id, path, channel, channel.size());
+            segments.add(segment);
+            long end = replay(segment);
+            if (end < segment.size) {
+                if (i < paths.size() - 1) {
+                    throw new IOException("Corrupt chat memory record at " + end + " in " + path);
+                }
+                log.warn("Dropping {} bytes of a torn record at the end of {}", segment.size - end, path);
+                channel.truncate(end);
+                segment.size = end;
+                segment.mapped = null;
+            }
+        }
+        active = segments.isEmpty() ? createSegment(1) : segments.getLast();
+        if (segments.isEmpty()) {
+            segments.add(active);
+        }
+    }
+
+    /**
+     * Indexes the valid records of the segment, returns where they end
+     */
+    private long replay(Segment segment) throws IOException {
+        long offset = 0;
+        while (offset + HEADER_BYTES <= segment.size) {
+            ByteBuffer header = segment.read(offset, HEADER_BYTES);
+            int length = header.getInt(0);
+            if (length < 3 || offset + HEADER_BYTES + length > segment.size) {
+                break;
+            }
+            ByteBuffer body = segment.read(offset + HEADER_BYTES, length);
+            CRC32 crc = new CRC32();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != header.getInt(4)) {
+                break;
+            }
+            byte kind = body.get(0);
+            byte[] id = new byte[Short.toUnsignedInt(body.getShort(1))];
+            body.get(3, id);
+            String sessionId = new String(id, StandardCharsets.UTF_8);
+            Location location = new Location(segment, offset, length);
+            switch (kind) {
+                case UPDATE -> {
+                    List<Location> records = new ArrayList<>(index.getOrDefault(sessionId, NO_RECORDS));
+                    records.add(location);
+                    index.put(sessionId, List.copyOf(records));
+                    segment.liveBytes.addAndGet(location.bytes());
+                }
+                case REPLACE -> {
+                    List<Location> previous = index.put(sessionId, List.of(location));
+                    if (previous != null) {
+                        release(previous);
+                    }
+                    segment.liveBytes.addAndGet(location.bytes());
+                }
+                case DELETE -> {
+                    List<Location> previous = index.remove(sessionId);
+                    if (previous != null) {
+                        release(previous);
+                    }
+                }
+                default -> throw new IOException("Unknown chat memory record kind " + kind + " in " + segment.path);
+            }
+            offset += location.bytes();
+        }
+        return offset;
+    }
+
+    public LogStats stats() {
+        long bytes = 0;
+        long live = 0;
+        for (Segment segment : segments) {
+            bytes += segment.size;
+            live += segment.liveBytes.get();
+        }
+        return new LogStats(
+                index.size(),
+                segments.size(),
+                bytes,
+                live,
+                updates.sum(),
+                fullRecords.sum(),
+                loads.sum(),
+                fsyncs.sum(),
+                compactions.sum());
+    }
+
+    /**
+     * Stops the background work, forces the log to disk and closes it
+     */
+    @Override
+    public void close() throws IOException {
+        background.shutdown();
+        try {
+            background.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeLock.lock();
+        try {
+            flush();
+            for (Segment segment : segments) {
+                segment.channel.close();
+            }
+            lock.release();
+            lockChannel.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static long longFromEnv(String variable, long defaultValue) {
+        String value = Env.get(variable);
+        return value == null || value.isBlank() ? defaultValue : Long.parseLong(value.strip());
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.llmtoolkit.util;
 
+import com.example.llmtoolkit.core.annotations.StreamedText;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.*;
 import java.util.*;
@@ -15,8 +16,18 @@ public class ClassToString {
     private static final String[] RECORD_GENERATED_METHODS = {"toString", "equals", "hashCode"};
     private static final String VALUE_METHOD = "value";
 
+    private static final ClassValue<String> ONLY_RECORDS = new ClassValue<>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            return ClassToString.toString(type, false, false);
+        }
+    };
+
+    /**
+     * Rendered once per class, the type graph of a class does not change while it is loaded
+     */
     public static String onlyRecords(Class<?> clazz) {
-        return toString(clazz, false, false);
+        return ONLY_RECORDS.get(clazz);
     }
 
     public static String toString(Class<?> clazz, boolean printMethods, boolean qualifyNestedClassNames) {
@@ -175,7 +186,10 @@ public class ClassToString {
         Set<Annotation> allAnnotations = collectRecordComponentAnnotations(component);
 
         for (Annotation annotation : allAnnotations) {
-            sb.append(formatAnnotation(annotation)).append(" ");
+            // Streaming markers are for the toolkit, not for the LLM
+            if (!(annotation instanceof StreamedText)) {
+                sb.append(formatAnnotation(annotation)).append(" ");
+            }
         }
 
         Type type = component.getGenericType();
@@ -0,0 +1,432 @@
+package com.example.llmtoolkit.util.json;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ContainerNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Push parser for JSON answers that arrive in chunks, building the tree while the text streams in.
+ *
+ * Tolerates the defects {@link JSONRepair} fixes: text around the value (such as markdown fences),
+ * duplicate and trailing commas, missing commas and colons, single quotes, unquoted keys and values,
+ * ellipses in arrays, and unclosed strings and containers at the end; the tree is the one of
+ * {@link JSONRepair}. Values are reported to the {@link Listener} as
+ * soon as they close, string values also while they are read; {@link #snapshot()} is the partial
+ * tree so far. Parsing stops when the first top-level object or array closes.
+ *
+ * An instance parses one answer and is not thread safe.
+ */
+public class IncrementalJsonParser {
+
+    /**
+     * Callbacks with the JSON Pointer of the value, e.g. {@code /vehicles/0/model}
+     */
+    public interface Listener {
+        /**
+         * Next part of the string value being read
+         */
+        default void onText(String path, CharSequence text) {}
+
+        /**
+         * A value closed; containers are reported after their content
+         */
+        default void onValue(String path, JsonNode value) {}
+    }
+
+    private static final Listener NO_LISTENER = new Listener() {};
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+    private static final String EMPTY_KEY_PLACEHOLDER = "empty_placeholder";
+
+    private enum Expect {
+        KEY,
+        COLON,
+        VALUE,
+        COMMA
+    }
+
+    private enum Token {
+        NONE,
+        STRING,
+        BARE
+    }
+
+    private static final class Frame {
+        final ContainerNode<?> node;
+        final String path;
+        Expect expect;
+        String key;
+        int size;
+
+        Frame(ContainerNode<?> node, String path) {
+            this.node = node;
+            this.path = path;
+            this.expect = node.isObject() ? Expect.KEY : Expect.VALUE;
+        }
+
+        String childPath() {
+            return path + "/" + (node.isObject() ? escape(key) : String.valueOf(size));
+        }
+    }
+
+    private final Listener listener;
+    private final Deque<Frame> stack = new ArrayDeque<>();
+    private ContainerNode<?> root;
+    private boolean complete;
+
+    private Token token = Token.NONE;
+    private boolean tokenIsKey;
+    private String tokenPath;
+    private char quote;
+    private boolean escaped;
+    private int unicodeDigits;
+    private int unicodeValue;
+    private final StringBuilder text = new StringBuilder();
+    private int reportedLength;
+
+    public IncrementalJsonParser() {
+        this(NO_LISTENER);
+    }
+
+    public IncrementalJsonParser(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Parses a complete answer, returns null when it holds no object or array
+     */
+    public static JsonNode parse(CharSequence answer) {
+        return new IncrementalJsonParser().feed(answer).finish();
+    }
+
+    public IncrementalJsonParser feed(CharSequence chunk) {
+        for (int i = 0; i < chunk.length() && !complete; i++) {
+            accept(chunk.charAt(i));
+        }
+        reportText();
+        return this;
+    }
+
+    /**
+     * Closes whatever is still open and returns the root, or null when no object or array was found
+     */
+    public JsonNode finish() {
+        if (token == Token.STRING) {
+            endString();
+        } else if (token == Token.BARE) {
+            endBare();
+        }
+        while (!stack.isEmpty()) {
+            pop();
+        }
+        return root;
+    }
+
+    /**
+     * Whether the top-level value has closed; later input is ignored
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Copy of the tree parsed so far: open containers hold their closed values, the value being read is left out
+     */
+    public JsonNode snapshot() {
+        return root == null ? null : root.deepCopy();
+    }
+
+    private void accept(char c) {
+        switch (token) {
+            case STRING -> acceptInString(c);
+            case BARE -> acceptInBare(c);
+            case NONE -> acceptStructural(c);
+        }
+    }
+
+    private void acceptStructural(char c) {
+        if (stack.isEmpty()) {
+            // Text before the value, e.g. a markdown fence
+            if (c == '{' || c == '[') {
+                open(c);
+            }
+            return;
+        }
+        if (Character.isWhitespace(c)) {
+            return;
+        }
+        if (c == '}' || c == ']') {
+            close(c);
+            return;
+        }
+        Frame frame = stack.peek();
+        switch (frame.expect) {
+            case KEY -> {
+                if (isQuote(c)) {
+                    startString(c, true);
+                } else if (c == ':') {
+                    frame.key = EMPTY_KEY_PLACEHOLDER;
+                    frame.expect = Expect.VALUE;
+                } else if (c != ',' && c != '{' && c != '[') {
+                    startBare(c, true);
+                }
+            }
+            case COLON -> {
+                frame.expect = Expect.VALUE;
+                if (c != ':') {
+                    acceptStructural(c);
+                }
+            }
+            case VALUE -> {
+                if (c != ',') {
+                    startValue(c);
+                } else if (frame.node.isObject()) {
+                    addValue(NODES.textNode(""));
+                    frame.expect = Expect.KEY;
+                }
+            }
+            case COMMA -> {
+                frame.expect = frame.node.isObject() ? Expect.KEY : Expect.VALUE;
+                if (c != ',') {
+                    acceptStructural(c);
+                }
+            }
+        }
+    }
+
+    private void startValue(char c) {
+        if (c == '{' || c == '[') {
+            open(c);
+        } else if (isQuote(c)) {
+            startString(c, false);
+        } else {
+            startBare(c, false);
+        }
+    }
+
+    private void open(char c) {
+        ContainerNode<?> node = c == '{' ? NODES.objectNode() : NODES.arrayNode();
+        String path;
+        if (stack.isEmpty()) {
+            root = node;
+            path = "";
+        } else {
+            Frame parent = stack.peek();
+            path = parent.childPath();
+            attach(parent, node);
+        }
+        stack.push(new Frame(node, path));
+    }
+
+    /**
+     * Closes the innermost container of the bracket's kind with everything opened inside it; a
+     * bracket without a matching open container is ignored
+     */
+    private void close(char c) {
+        boolean object = c == '}';
+        boolean matched = false;
+        for (Frame frame : stack) {
+            if (frame.node.isObject() == object) {
+                matched = true;
+                break;
+            }
+        }
+        if (!matched) {
+            return;
+        }
+        Frame closed;
+        do {
+            closed = pop();
+        } while (closed.node.isObject() != object);
+    }
+
+    private Frame pop() {
+        Frame frame = stack.peek();
+        if (frame.node.isObject() && frame.key != null) {
+            // A key without a value, as JSONRepair does
+            addValue(NODES.textNode(""));
+        }
+        stack.pop();
+        listener.onValue(frame.path, frame.node);
+        if (stack.isEmpty()) {
+            complete = true;
+        }
+        return frame;
+    }
+
+    private void attach(Frame frame, JsonNode value) {
+        if (frame.node instanceof ObjectNode object) {
+            object.set(frame.key, value);
+            frame.key = null;
+        } else {
+            ((ArrayNode) frame.node).add(value);
+        }
+        frame.size++;
+        frame.expect = Expect.COMMA;
+    }
+
+    private void addValue(JsonNode value) {
+        Frame frame = stack.peek();
+        String path = frame.childPath();
+        attach(frame, value);
+        listener.onValue(path, value);
+    }
+
+    // Strings
+
+    private void startString(char quoteChar, boolean isKey) {
+        token = Token.STRING;
+        tokenIsKey = isKey;
+        tokenPath = isKey ? null : stack.peek().childPath();
+        quote = quoteChar;
+        text.setLength(0);
+        reportedLength = 0;
+    }
+
+    private void acceptInString(char c) {
+        if (unicodeDigits > 0) {
+            unicodeValue = unicodeValue * 16 + Math.max(0, Character.digit(c, 16));
+            if (--unicodeDigits == 0) {
+                text.append((char) unicodeValue);
+            }
+        } else if (escaped) {
+            escaped = false;
+            switch (c) {
+                case 'u' -> {
+                    unicodeDigits = 4;
+                    unicodeValue = 0;
+                }
+                case 'n' -> text.append('\n');
+                case 't' -> text.append('\t');
+                case 'r' -> text.append('\r');
+                case 'b' -> text.append('\b');
+                case 'f' -> text.append('\f');
+                default -> text.append(c);
+            }
+        } else if (c == '\\') {
+            escaped = true;
+        } else if (c == quote) {
+            endString();
+        } else {
+            text.append(c);
+        }
+    }
+
+    private void endString() {
+        reportText();
+        token = Token.NONE;
+        escaped = false;
+        unicodeDigits = 0;
+        String value = text.toString();
+        if (tokenIsKey) {
+            key(value);
+        } else {
+            addValue(NODES.textNode(value));
+        }
+    }
+
+    private void reportText() {
+        if (token == Token.STRING && !tokenIsKey && text.length() > reportedLength) {
+            listener.onText(tokenPath, text.subSequence(reportedLength, text.length()));
+            reportedLength = text.length();
+        }
+    }
+
+    // Unquoted keys, literals, numbers and unquoted text
+
+    private void startBare(char c, boolean isKey) {
+        token = Token.BARE;
+        tokenIsKey = isKey;
+        text.setLength(0);
+        text.append(c);
+    }
+
+    private void acceptInBare(char c) {
+        // A value may contain spaces, unless it is a number or literal followed by a missing comma
+        boolean end = tokenIsKey
+                ? c == ':' || c == ',' || c == '}' || Character.isWhitespace(c)
+                : c == ','
+                        || c == '}'
+                        || c == ']'
+                        || c == '\n'
+                        || c == '\r'
+                        || isQuote(c)
+                        || (Character.isWhitespace(c)
+                                && !literal(text.toString()).isTextual());
+        if (!end) {
+            text.append(c);
+            return;
+        }
+        endBare();
+        acceptStructural(c);
+    }
+
+    private void endBare() {
+        token = Token.NONE;
+        String value = text.toString().strip();
+        Frame frame = stack.peek();
+        if (tokenIsKey) {
+            key(value);
+        } else if (value.equals("...") && frame.node.isArray()) {
+            // An ellipsis for elements left out, which JSONRepair drops
+            frame.expect = Expect.COMMA;
+        } else {
+            addValue(literal(value));
+        }
+    }
+
+    private void key(String key) {
+        Frame frame = stack.peek();
+        frame.key = key.isEmpty() ? EMPTY_KEY_PLACEHOLDER : key;
+        frame.expect = Expect.COLON;
+    }
+
+    private static JsonNode literal(String value) {
+        if (value.equalsIgnoreCase("true")) {
+            return NODES.booleanNode(true);
+        } else if (value.equalsIgnoreCase("false")) {
+            return NODES.booleanNode(false);
+        } else if (value.equalsIgnoreCase("null")) {
+            return NODES.nullNode();
+        }
+        if (isNumber(value)) {
+            try {
+                if (value.indexOf('.') < 0 && value.indexOf('e') < 0 && value.indexOf('E') < 0) {
+                    long number = Long.parseLong(value);
+                    return number == (int) number ? NODES.numberNode((int) number) : NODES.numberNode(number);
+                }
+                return NODES.numberNode(Double.parseDouble(value));
+            } catch (NumberFormatException e) {
+                // Too long for a long or not a number, kept as text as JSONRepair does
+            }
+        }
+        return NODES.textNode(value);
+    }
+
+    private static boolean isNumber(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        boolean digit = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digit = true;
+            } else if (c != '-' && c != '+' && c != '.' && c != 'e' && c != 'E') {
+                return false;
+            }
+        }
+        return digit;
+    }
+
+    private static boolean isQuote(char c) {
+        return c == '"' || c == '\'';
+    }
+
+    private static String escape(String key) {
+        return key.replace("~", "~0").replace("/", "~1");
+    }
+}
@@ -1,23 +1,31 @@
 package com.example.llmtoolkit.util.json;
 
-import static com.fasterxml.jackson.core.json.JsonWriteFeature.ESCAPE_NON_ASCII;
-
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
+/**
+ * Best-effort repair of malformed JSON from LLM answers.
+ *
+ * The input is copied once into a char array, where duplicate and trailing commas are removed in
+ * place. The parser walks it with a primitive cursor and writes the repaired value straight to a
+ * Jackson generator: a string writer for {@link #repairJSON}, or a {@link TokenBuffer} that can be
+ * bound without printing and parsing the JSON again for {@link #repairToTokens}. Scalars are
+ * collected in a reused char buffer. The output is the one of the former tree-building
+ * implementation: when an object repeats a key, whose value then replaces the first one in place,
+ * the answer is re-read as a tree to keep that order, for the string as well as for the tokens.
+ */
 public class JSONRepair {
     private static final String NULL_STRING = "null";
-    private static final String EMPTY_STRING = "";
     private static final String MARKDOWN_JSON_PREFIX = "```json";
-
-    // Regex patterns
-    private static final String DUPLICATE_COMMAS_PATTERN = ",\\s*,";
-    private static final String TRAILING_OBJECT_COMMA_PATTERN = ",\\s*}";
-    private static final String TRAILING_ARRAY_COMMA_PATTERN = ",\\s*]";
+    private static final String EMPTY_KEY_PLACEHOLDER = "empty_placeholder";
 
     // Common characters
     private static final char OBJECT_START = '{';
@@ -30,184 +38,326 @@ public class JSONRepair {
     private static final char COLON = ':';
     private static final char ESCAPE_CHAR = '\\';
 
-    private static final Map<Character, Character> ESCAPE_CHARS = Map.of(
-            'n', '\n',
-            't', '\t',
-            'r', '\r',
-            'b', '\b',
-            'f', '\f',
-            '\\', '\\');
+    private static final int NONE = -1;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper(JSON_FACTORY);
 
     public static String repairJSON(String src) {
         if (src == null) {
             throw new IllegalArgumentException("Input cannot be null");
         }
         try {
-            String cleaned = cleanupCommas(src.trim());
-            String unwrapped = removeMarkdownWrapper(cleaned);
+            JSONParser parser = JSONParser.of(src);
+            StringWriter out = new StringWriter(src.length() + 16);
+            try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+                parser.parseRoot(generator, true);
+            } catch (DuplicateKeyException e) {
+                return OBJECT_MAPPER.writeValueAsString(repairToTree(src));
+            }
+            return out.toString();
+        } catch (Exception e) {
+            throw new RuntimeException("Repair JSON error: " + e.getMessage(), e);
+        }
+    }
 
-            JSONParser jp = new JSONParser(unwrapped);
-            Object result = jp.parseJSON();
-            return jsonMarshal(result);
+    /**
+     * The repaired JSON as tokens, ready for {@code mapper.readValue(tokens.asParser(), type)}. As in
+     * {@link #repairJSON}, a repeated key is replaced through a tree, since records cannot be bound
+     * from an object that repeats a creator property.
+     */
+    public static TokenBuffer repairToTokens(String src) {
+        if (src == null) {
+            throw new IllegalArgumentException("Input cannot be null");
+        }
+        try {
+            TokenBuffer tokens = new TokenBuffer(OBJECT_MAPPER, false);
+            try {
+                JSONParser.of(src).parseRoot(tokens, true);
+            } catch (DuplicateKeyException e) {
+                tokens = new TokenBuffer(OBJECT_MAPPER, false);
+                OBJECT_MAPPER.writeTree(tokens, repairToTree(src));
+            }
+            return tokens;
         } catch (Exception e) {
             throw new RuntimeException("Repair JSON error: " + e.getMessage(), e);
         }
     }
 
-    private static String cleanupCommas(String input) {
-        return input.replaceAll(DUPLICATE_COMMAS_PATTERN, ",")
-                .replaceAll(TRAILING_OBJECT_COMMA_PATTERN, "}")
-                .replaceAll(TRAILING_ARRAY_COMMA_PATTERN, "]");
+    /**
+     * The repaired JSON as a tree, where a repeated key keeps its first position with its last value
+     */
+    private static JsonNode repairToTree(String src) throws IOException {
+        TokenBuffer tokens = new TokenBuffer(OBJECT_MAPPER, false);
+        JSONParser.of(src).parseRoot(tokens, false);
+        return OBJECT_MAPPER.readTree(tokens.asParser());
+    }
+
+    /**
+     * The trimmed input with duplicate and trailing commas removed, like the regular expressions
+     * ",\s*," then ",\s*}" then ",\s*]" applied in turn; returns the new length
+     */
+    private static int cleanupCommas(char[] text, int length) {
+        length = removeCommaBefore(text, length, COMMA);
+        length = removeCommaBefore(text, length, OBJECT_END);
+        return removeCommaBefore(text, length, ARRAY_END);
     }
 
-    private static String removeMarkdownWrapper(String input) {
-        if (input.startsWith(MARKDOWN_JSON_PREFIX)) {
-            return input.substring(MARKDOWN_JSON_PREFIX.length()).trim();
+    private static int removeCommaBefore(char[] text, int length, char target) {
+        int write = 0;
+        int read = 0;
+        while (read < length) {
+            char c = text[read];
+            if (c == COMMA) {
+                int next = read + 1;
+                while (next < length && isRegexWhitespace(text[next])) {
+                    next++;
+                }
+                if (next < length && text[next] == target) {
+                    text[write++] = target;
+                    read = next + 1;
+                    continue;
+                }
+            }
+            text[write++] = c;
+            read++;
         }
-        return input;
+        return write;
     }
 
-    private static String jsonMarshal(Object obj) throws JsonProcessingException {
-        if (obj == null) {
-            return NULL_STRING;
+    private static boolean startsWith(char[] text, int length, String prefix) {
+        if (length < prefix.length()) {
+            return false;
         }
-        ObjectMapper mapper = createObjectMapper();
-        return mapper.writeValueAsString(obj);
+        for (int i = 0; i < prefix.length(); i++) {
+            if (text[i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    private static ObjectMapper createObjectMapper() {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.configure(ESCAPE_NON_ASCII.mappedFeature(), false);
-        return mapper;
+    private static boolean isRegexWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    private static final class DuplicateKeyException extends RuntimeException {
+        DuplicateKeyException() {
+            super("Duplicate key", null, false, false);
+        }
     }
 
     private static class JSONParser {
-        private final String container;
+        // Markers
+        private static final byte OBJECT_KEY = 1;
+        private static final byte OBJECT_VALUE = 2;
+        private static final byte ARRAY = 3;
+
+        // Kinds of parsed values; containers are written while they are parsed
+        private static final int CONTAINER = 0;
+        private static final int TEXT = 1;
+        private static final int NULL = 2;
+        private static final int TRUE = 3;
+        private static final int FALSE = 4;
+        private static final int LONG = 5;
+        private static final int DOUBLE = 6;
+
+        private final char[] container;
+        private final int start;
+        private final int end;
         private int index;
-        private final List<String> marker;
 
-        public JSONParser(String in) {
-            this.container = in;
-            this.index = 0;
-            this.marker = new ArrayList<>();
+        private byte[] markers = new byte[16];
+        private int markerCount;
+
+        private char[] text = new char[64];
+        private int textLength;
+        private long longValue;
+        private double doubleValue;
+
+        private JsonGenerator out;
+        private boolean checkDuplicateKeys;
+        private final List<String> keys = new ArrayList<>();
+
+        private JSONParser(char[] container, int start, int end) {
+            this.container = container;
+            this.start = start;
+            this.index = start;
+            this.end = end;
         }
 
-        public Object parseJSON() {
-            skipWhitespaces();
-            Character c = peek(0);
-            if (c == null) {
-                return EMPTY_STRING;
+        static JSONParser of(String src) {
+            int from = 0;
+            int to = src.length();
+            while (from < to && src.charAt(from) <= ' ') {
+                from++;
             }
+            while (to > from && src.charAt(to - 1) <= ' ') {
+                to--;
+            }
+            char[] container = new char[to - from];
+            src.getChars(from, to, container, 0);
+            int length = cleanupCommas(container, container.length);
+
+            int start = 0;
+            if (startsWith(container, length, MARKDOWN_JSON_PREFIX)) {
+                start = MARKDOWN_JSON_PREFIX.length();
+                while (start < length && container[start] <= ' ') {
+                    start++;
+                }
+                while (length > start && container[length - 1] <= ' ') {
+                    length--;
+                }
+            }
+            return new JSONParser(container, start, length);
+        }
 
-            boolean isInMarkers = !marker.isEmpty();
+        void parseRoot(JsonGenerator generator, boolean checkDuplicateKeys) throws IOException {
+            this.out = generator;
+            this.checkDuplicateKeys = checkDuplicateKeys;
+            int kind = parseJSON();
+            if (kind != CONTAINER) {
+                // Without markers only containers are parsed, anything else is the empty string
+                out.writeString("");
+            }
+        }
 
-            if (c == OBJECT_START) {
-                advance();
-                return parseObject();
-            } else if (c == ARRAY_START) {
-                advance();
-                return parseArray();
-            } else if (c == OBJECT_END || c == ARRAY_END) {
-                return EMPTY_STRING;
-            } else if (isInMarkers && (isQuote(c) || Character.isLetter(c))) {
-                if (isNullStart(c)) {
-                    Object nullValue = parseNull();
-                    if (nullValue == null) {
-                        return null;
+        private int parseJSON() throws IOException {
+            while (true) {
+                skipWhitespaces();
+                int c = peek(0);
+                if (c == NONE) {
+                    return emptyText();
+                }
+
+                boolean isInMarkers = markerCount > 0;
+
+                if (c == OBJECT_START) {
+                    advance();
+                    parseObject();
+                    return CONTAINER;
+                } else if (c == ARRAY_START) {
+                    advance();
+                    parseArray();
+                    return CONTAINER;
+                } else if (c == OBJECT_END || c == ARRAY_END) {
+                    return emptyText();
+                } else if (isInMarkers && (isQuote(c) || Character.isLetter(c))) {
+                    if (isNullStart(c) && parseNull()) {
+                        return NULL;
                     }
+                    parseString();
+                    return parseLiteral();
+                } else if (isInMarkers && (Character.isDigit(c) || c == '-' || c == '.')) {
+                    return parseNumber();
                 }
-                String value = parseString().toString();
-                return parseLiteral(value);
-            } else if (isInMarkers && (Character.isDigit(c) || c == '-' || c == '.')) {
-                return parseNumber();
-            } else if (isInMarkers && isNullStart(c)) {
-                return parseNull();
+
+                advance();
             }
+        }
 
-            advance();
-            return parseJSON();
+        private void write(int kind) throws IOException {
+            switch (kind) {
+                case TEXT -> out.writeString(text, 0, textLength);
+                case NULL -> out.writeNull();
+                case TRUE -> out.writeBoolean(true);
+                case FALSE -> out.writeBoolean(false);
+                case LONG -> out.writeNumber(longValue);
+                case DOUBLE -> out.writeNumber(doubleValue);
+                default -> {}
+            }
         }
 
-        private Object parseLiteral(String value) {
-            if (value.equalsIgnoreCase("true")) {
-                return Boolean.TRUE;
-            } else if (value.equalsIgnoreCase("false")) {
-                return Boolean.FALSE;
-            } else if (value.equalsIgnoreCase("null")) {
-                return null;
+        private int emptyText() {
+            textLength = 0;
+            return TEXT;
+        }
+
+        private int parseLiteral() {
+            if (textEqualsIgnoreCase("true")) {
+                return TRUE;
+            } else if (textEqualsIgnoreCase("false")) {
+                return FALSE;
+            } else if (textEqualsIgnoreCase(NULL_STRING)) {
+                return NULL;
             }
-            return value;
+            return TEXT;
         }
 
-        private boolean isQuote(char c) {
+        private boolean isQuote(int c) {
             return c == DOUBLE_QUOTE || c == SINGLE_QUOTE;
         }
 
-        private boolean isNullStart(Character c) {
+        private boolean isNullStart(int c) {
             return c == 'n' || c == 'N';
         }
 
-        private Object parseNull() {
-            if (container == null || index >= container.length()) {
-                return EMPTY_STRING;
+        /**
+         * Consumes a case-insensitive null, if there is one
+         */
+        private boolean parseNull() {
+            if (index + NULL_STRING.length() > end) {
+                return false;
             }
-            String remaining = container.substring(index).toLowerCase();
-            if (remaining.startsWith(NULL_STRING)) {
-                index += 4;
-                return null;
+            for (int i = 0; i < NULL_STRING.length(); i++) {
+                if (Character.toLowerCase(container[index + i]) != NULL_STRING.charAt(i)) {
+                    return false;
+                }
             }
-            return EMPTY_STRING;
+            index += NULL_STRING.length();
+            return true;
         }
 
-        private Map<String, Object> parseObject() {
-            Map<String, Object> result = new LinkedHashMap<>();
-            Character c = peek(0);
+        private void parseObject() throws IOException {
+            out.writeStartObject();
+            int keysStart = keys.size();
+            int c = peek(0);
 
-            while (c != null && c != OBJECT_END) {
+            while (c != NONE && c != OBJECT_END) {
                 skipWhitespaces();
 
                 c = peek(0);
-                if (c != null && c == COLON) {
+                if (c == COLON) {
                     advance();
                 }
 
-                setMarker("object_key");
+                setMarker(OBJECT_KEY);
                 skipWhitespaces();
 
                 String key = parseObjectKey();
                 if (key.isEmpty()) {
-                    key = "empty_placeholder";
+                    key = EMPTY_KEY_PLACEHOLDER;
                 }
+                writeKey(key, keysStart);
 
                 skipWhitespaces();
                 c = peek(0);
 
-                if (c != null && c == OBJECT_END) {
-                    result.put(key, EMPTY_STRING);
+                if (c == OBJECT_END) {
+                    out.writeString("");
                     continue;
                 }
 
-                if (c != null && c == COLON) {
+                if (c == COLON) {
                     advance();
                 }
 
                 skipWhitespaces();
                 c = peek(0);
 
-                if (c == null) {
-                    result.put(key, EMPTY_STRING);
+                if (c == NONE) {
+                    out.writeString("");
                     break;
                 }
 
                 resetMarker();
-                setMarker("object_value");
-                Object value = parseJSON();
+                setMarker(OBJECT_VALUE);
+                write(parseJSON());
 
                 resetMarker();
-                result.put(key, value);
 
                 c = peek(0);
-                if (c != null && (c == COMMA || isQuote(c))) {
+                if (c == COMMA || isQuote(c)) {
                     advance();
                 }
 
@@ -215,89 +365,108 @@ public class JSONRepair {
                 c = peek(0);
             }
 
-            if (c != null) {
+            if (c != NONE) {
                 advance();
             }
-            return result;
+            keys.subList(keysStart, keys.size()).clear();
+            out.writeEndObject();
+        }
+
+        private void writeKey(String key, int keysStart) throws IOException {
+            if (checkDuplicateKeys) {
+                for (int i = keysStart; i < keys.size(); i++) {
+                    if (keys.get(i).equals(key)) {
+                        throw new DuplicateKeyException();
+                    }
+                }
+                keys.add(key);
+            }
+            out.writeFieldName(key);
         }
 
         private String parseObjectKey() {
-            String key = EMPTY_STRING;
-            Character c = peek(0);
+            int c = peek(0);
+            textLength = 0;
 
-            while (key.isEmpty() && c != null) {
+            while (textLength == 0 && c != NONE) {
                 int currentIndex = index;
-                Object parsedString = parseString();
-                key = parsedString.toString();
+                parseString();
 
                 c = peek(0);
-                if (key.isEmpty() && c != null && (c == COLON || c == COMMA || c == OBJECT_END)) {
+                if (textLength == 0 && (c == COLON || c == COMMA || c == OBJECT_END)) {
                     break;
-                } else if (key.isEmpty() && index == currentIndex) {
+                } else if (textLength == 0 && index == currentIndex) {
                     advance();
                 }
             }
 
-            return key;
+            return new String(text, 0, textLength);
         }
 
-        private List<Object> parseArray() {
-            List<Object> result = new ArrayList<>();
-            Character c = peek(0);
-            setMarker("array");
+        private void parseArray() throws IOException {
+            out.writeStartArray();
+            int c = peek(0);
+            setMarker(ARRAY);
 
-            while (c != null && c != ARRAY_END) {
+            while (c != NONE && c != ARRAY_END) {
+                int iterationStart = index;
                 skipWhitespaces();
-                Object value = parseJSON();
-
-                if (value == null) {
-                    result.add(null);
-                } else if (!value.equals(EMPTY_STRING)) {
-                    Character prevC = peek(-1);
-                    if (!value.equals("...") || prevC == null || prevC != '.') {
-                        result.add(value);
+                int kind = parseJSON();
+
+                if (kind != TEXT || textLength > 0) {
+                    int prevC = peek(-1);
+                    if (kind != TEXT || !textEquals("...") || prevC == NONE || prevC != '.') {
+                        write(kind);
                     }
                 }
 
                 c = peek(0);
-                while (c != null && (Character.isWhitespace(c) || c == COMMA)) {
+                while (c != NONE && (Character.isWhitespace(c) || c == COMMA)) {
                     advance();
                     c = peek(0);
                 }
 
-                if (getMarker() != null && getMarker().equals("object_value") && c != null && c == OBJECT_END) {
+                if (getMarker() == OBJECT_VALUE && c == OBJECT_END) {
                     break;
                 }
+                if (index == iterationStart) {
+                    // A closing bracket of the wrong kind: skipped, the former implementation never returned here
+                    advance();
+                    c = peek(0);
+                }
             }
 
             c = peek(0);
-            if (c != null && c != ARRAY_END) {
+            if (c != NONE && c != ARRAY_END) {
                 index--;
             }
 
             advance();
             resetMarker();
-            return result;
+            out.writeEndArray();
         }
 
-        private Object parseString() {
-            StringBuilder result = new StringBuilder();
-            Character c = peek(0);
+        /**
+         * Reads a quoted or bare string into the text buffer
+         */
+        private void parseString() {
+            textLength = 0;
+            int c = peek(0);
 
-            if (c == null) {
-                return EMPTY_STRING;
+            if (c == NONE) {
+                return;
             }
 
             boolean isQuoted = isQuote(c);
-            char quote = isQuoted ? c : DOUBLE_QUOTE;
+            int quote = isQuoted ? c : DOUBLE_QUOTE;
 
             if (isQuoted) {
                 advance();
             }
 
-            while ((c = peek(0)) != null) {
-                Character prev = peek(-1);
-                if (isQuoted && c == quote && (prev == null || prev != ESCAPE_CHAR)) {
+            while ((c = peek(0)) != NONE) {
+                int prev = peek(-1);
+                if (isQuoted && c == quote && (prev == NONE || prev != ESCAPE_CHAR)) {
                     advance();
                     break;
                 }
@@ -310,69 +479,117 @@ public class JSONRepair {
 
                 if (c == ESCAPE_CHAR) {
                     advance();
-                    Character next = peek(0);
-                    if (next != null) {
-                        handleEscapeSequence(result, next);
+                    int next = peek(0);
+                    if (next != NONE) {
+                        handleEscapeSequence((char) next);
                     }
                 } else {
-                    result.append(c);
+                    append((char) c);
                     advance();
                 }
             }
-
-            return result.toString();
         }
 
-        private void handleEscapeSequence(StringBuilder result, char next) {
-            if (ESCAPE_CHARS.containsKey(next)) {
-                result.append(ESCAPE_CHARS.get(next));
-            } else if (next == 'u') {
-                result.append("\\u");
-                advance();
-                for (int i = 0; i < 4; i++) {
-                    Character hex = peek(0);
-                    if (hex != null) {
-                        result.append(hex);
-                        advance();
+        private void handleEscapeSequence(char next) {
+            switch (next) {
+                case 'n' -> append('\n');
+                case 't' -> append('\t');
+                case 'r' -> append('\r');
+                case 'b' -> append('\b');
+                case 'f' -> append('\f');
+                case '\\' -> append('\\');
+                case 'u' -> {
+                    append('\\');
+                    append('u');
+                    advance();
+                    for (int i = 0; i < 4; i++) {
+                        int hex = peek(0);
+                        if (hex != NONE) {
+                            append((char) hex);
+                            advance();
+                        }
                     }
                 }
-            } else {
-                result.append(next);
+                default -> append(next);
             }
             advance();
         }
 
-        private Object parseNumber() {
-            StringBuilder result = new StringBuilder();
-            Character c;
+        private int parseNumber() {
+            textLength = 0;
+            int c;
+            boolean decimal = false;
 
-            while ((c = peek(0)) != null) {
+            while ((c = peek(0)) != NONE) {
                 if (Character.isDigit(c) || c == '-' || c == '.' || c == 'e' || c == 'E' || c == '+') {
-                    result.append(c);
+                    decimal |= c == '.' || c == 'e' || c == 'E';
+                    append((char) c);
                     advance();
                 } else {
                     break;
                 }
             }
 
-            String numStr = result.toString();
+            String numStr = new String(text, 0, textLength);
             try {
-                if (numStr.contains(".") || numStr.toLowerCase().contains("e")) {
-                    return Double.parseDouble(numStr);
+                if (decimal) {
+                    doubleValue = Double.parseDouble(numStr);
+                    return DOUBLE;
                 } else {
-                    return Long.parseLong(numStr);
+                    longValue = Long.parseLong(numStr);
+                    return LONG;
                 }
             } catch (NumberFormatException e) {
-                return numStr;
+                return TEXT;
+            }
+        }
+
+        private void append(char c) {
+            if (textLength == text.length) {
+                text = Arrays.copyOf(text, textLength * 2);
+            }
+            text[textLength++] = c;
+        }
+
+        private boolean textEquals(String value) {
+            if (textLength != value.length()) {
+                return false;
+            }
+            for (int i = 0; i < textLength; i++) {
+                if (text[i] != value.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Same comparison as {@link String#equalsIgnoreCase}
+         */
+        private boolean textEqualsIgnoreCase(String value) {
+            if (textLength != value.length()) {
+                return false;
+            }
+            for (int i = 0; i < textLength; i++) {
+                char a = text[i];
+                char b = value.charAt(i);
+                if (a != b) {
+                    char upperA = Character.toUpperCase(a);
+                    char upperB = Character.toUpperCase(b);
+                    if (upperA != upperB && Character.toLowerCase(upperA) != Character.toLowerCase(upperB)) {
+                        return false;
+                    }
+                }
             }
+            return true;
         }
 
-        private Character peek(int offset) {
+        private int peek(int offset) {
             int targetIndex = index + offset;
-            if (container == null || targetIndex < 0 || targetIndex >= container.length()) {
-                return null;
+            if (targetIndex < start || targetIndex >= end) {
+                return NONE;
             }
-            return container.charAt(targetIndex);
+            return container[targetIndex];
         }
 
         private void advance() {
@@ -380,27 +597,28 @@ public class JSONRepair {
         }
 
         private void skipWhitespaces() {
-            Character c = peek(0);
-            while (c != null && Character.isWhitespace(c)) {
+            int c = peek(0);
+            while (c != NONE && Character.isWhitespace(c)) {
                 advance();
                 c = peek(0);
             }
         }
 
-        private void setMarker(String in) {
-            if (in != null && !in.isEmpty()) {
-                marker.add(in);
+        private void setMarker(byte marker) {
+            if (markerCount == markers.length) {
+                markers = Arrays.copyOf(markers, markerCount * 2);
             }
+            markers[markerCount++] = marker;
         }
 
         private void resetMarker() {
-            if (!marker.isEmpty()) {
-                marker.remove(marker.size() - 1);
+            if (markerCount > 0) {
+                markerCount--;
             }
         }
 
-        private String getMarker() {
-            return !marker.isEmpty() ? marker.get(marker.size() - 1) : null;
+        private byte getMarker() {
+            return markerCount > 0 ? markers[markerCount - 1] : 0;
         }
     }
 }
@@ -4,18 +4,18 @@ import static com.fasterxml.jackson.core.json.JsonReadFeature.ALLOW_TRAILING_COM
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.fasterxml.jackson.dataformat.yaml.YAMLGenerator;
-import java.util.LinkedHashMap;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 import org.springframework.util.StringUtils;
-import org.yaml.snakeyaml.DumperOptions;
-import org.yaml.snakeyaml.Yaml;
 
 public class JsonUtils {
 
@@ -28,53 +28,150 @@ public class JsonUtils {
             .enable(SerializationFeature.INDENT_OUTPUT)
             .setSerializationInclusion(JsonInclude.Include.NON_NULL);
 
+    private static final int YAML_INDENT = 4;
+
+    private static final String MARKDOWN_JSON_FENCE = "```json";
+    private static final String MARKDOWN_FENCE = "```";
+    private static final List<String> MARKDOWN_YAML_FENCES = List.of("```yaml", "```yml");
+
+    /**
+     * Parser that produced a parse result, see {@link #parsePathCounts()}
+     */
+    public enum ParsePath {
+        YAML,
+        JSON,
+        REPAIRED_JSON
+    }
+
+    private static final Map<ParsePath, LongAdder> PARSE_PATH_COUNTS = new EnumMap<>(ParsePath.class);
+
+    static {
+        for (ParsePath path : ParsePath.values()) {
+            PARSE_PATH_COUNTS.put(path, new LongAdder());
+        }
+    }
+
     public static <T> T parseJsonOrYamlObject(String inputString, Class<T> clazz) {
+        return parseJsonOrYaml(
+                inputString,
+                JSON_OBJECT_MAPPER.constructType(clazz),
+                json -> "Cannot parse json to class " + clazz.getName() + " json: \n" + json);
+    }
 
-        // First attempt: Parse as YAML
-        try {
-            return YAML_OBJECT_MAPPER.readValue(inputString, clazz);
-        } catch (JsonProcessingException ignored) {
+    public static <T> List<T> parseJsonOrYamlArray(String inputString, Class<T> clazz) {
+        return parseJsonOrYaml(
+                inputString,
+                JSON_OBJECT_MAPPER.getTypeFactory().constructCollectionType(List.class, clazz),
+                json -> "Cannot parse json array to class " + clazz.getName() + " input: \n" + inputString);
+    }
+
+    /**
+     * Number of parse results per parser since startup
+     */
+    public static Map<ParsePath, Long> parsePathCounts() {
+        Map<ParsePath, Long> counts = new EnumMap<>(ParsePath.class);
+        PARSE_PATH_COUNTS.forEach((path, count) -> counts.put(path, count.sum()));
+        return counts;
+    }
+
+    /**
+     * Sniffs the format first, so that JSON answers (the common case) do not pay for a failed YAML
+     * parse: JSON goes to the JSON parser, then to the repaired JSON, with YAML as the last resort;
+     * YAML keeps the original order of YAML, JSON, repaired JSON. The repaired JSON is bound from
+     * the repair's tokens, it is never printed and parsed again.
+     */
+    private static <T> T parseJsonOrYaml(String inputString, JavaType type, Function<String, String> failureMessage) {
+        String yaml = yamlPayload(inputString);
+
+        if (yaml != null) {
+            try {
+                return counted(ParsePath.YAML, YAML_OBJECT_MAPPER.readValue(yaml, type));
+            } catch (JsonProcessingException ignored) {
+            }
         }
 
-        // Second attempt: Parse JSON
         String json = trimJson(inputString);
         try {
-            return JSON_OBJECT_MAPPER.readValue(json, clazz);
+            return counted(ParsePath.JSON, JSON_OBJECT_MAPPER.readValue(json, type));
         } catch (JsonProcessingException ignored) {
         }
 
-        // Third attempt: Repair and parse JSON
         try {
-            return JSON_OBJECT_MAPPER.readValue(JSONRepair.repairJSON(json), clazz);
+            return counted(
+                    ParsePath.REPAIRED_JSON,
+                    JSON_OBJECT_MAPPER.readValue(JSONRepair.repairToTokens(json).asParser(), type));
         } catch (Exception e) {
-            throw new RuntimeException("Cannot parse json to class " + clazz.getName() + " json: \n" + json, e);
+            if (yaml == null) {
+                try {
+                    return counted(ParsePath.YAML, YAML_OBJECT_MAPPER.readValue(inputString, type));
+                } catch (JsonProcessingException ignored) {
+                }
+            }
+            throw new RuntimeException(failureMessage.apply(json), e);
         }
     }
 
-    public static <T> List<T> parseJsonOrYamlArray(String inputString, Class<T> clazz) {
-        // First attempt: Parse as YAML
-        try {
-            return YAML_OBJECT_MAPPER.readValue(
-                    inputString, YAML_OBJECT_MAPPER.getTypeFactory().constructCollectionType(List.class, clazz));
-        } catch (JsonProcessingException ignored) {
-        }
+    private static <T> T counted(ParsePath path, T result) {
+        PARSE_PATH_COUNTS.get(path).increment();
+        return result;
+    }
 
-        // Second attempt: Parse JSON
-        String json = trimJson(inputString);
-        try {
-            return JSON_OBJECT_MAPPER.readValue(
-                    json, JSON_OBJECT_MAPPER.getTypeFactory().constructCollectionType(List.class, clazz));
-        } catch (JsonProcessingException ignored) {
+    /**
+     * The text to parse as YAML, or null when the answer looks like JSON: it starts with '{' or '[',
+     * or it contains a ```json block. A ```yaml block is unwrapped; otherwise the answer counts as
+     * YAML when its first line is a document marker, a list item or a key.
+     */
+    static String yamlPayload(String input) {
+        int start = 0;
+        while (start < input.length() && Character.isWhitespace(input.charAt(start))) {
+            start++;
+        }
+        if (start == input.length()) {
+            return input;
+        }
+        char first = input.charAt(start);
+        if (first == '{' || first == '[' || input.contains(MARKDOWN_JSON_FENCE)) {
+            return null;
         }
+        for (String fence : MARKDOWN_YAML_FENCES) {
+            if (input.startsWith(fence, start)) {
+                int from = start + fence.length();
+                int to = input.indexOf(MARKDOWN_FENCE, from);
+                return input.substring(from, to < 0 ? input.length() : to);
+            }
+        }
+        if (input.startsWith("---", start) || input.startsWith("- ", start)) {
+            return input;
+        }
+        for (int i = start; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c == '\n' || c == '{' || c == '[') {
+                return null;
+            }
+            if (c == ':' && (i + 1 == input.length() || Character.isWhitespace(input.charAt(i + 1)))) {
+                return input;
+            }
+        }
+        return null;
+    }
 
-        // Third attempt: Repair and parse JSON
+    /**
+     * Binds an already parsed tree, such as the result of {@link IncrementalJsonParser}. The tree is
+     * read as tokens by the deserializer, without buffering a copy of it first as convertValue does.
+     */
+    public static <T> T convertJsonObject(JsonNode tree, Class<T> clazz) {
+        return bindTree(tree, JSON_OBJECT_MAPPER.constructType(clazz));
+    }
+
+    public static <T> List<T> convertJsonArray(JsonNode tree, Class<T> clazz) {
+        return bindTree(tree, JSON_OBJECT_MAPPER.getTypeFactory().constructCollectionType(List.class, clazz));
+    }
+
+    private static <T> T bindTree(JsonNode tree, JavaType type) {
         try {
-            return JSON_OBJECT_MAPPER.readValue(
-                    JSONRepair.repairJSON(json),
-                    JSON_OBJECT_MAPPER.getTypeFactory().constructCollectionType(List.class, clazz));
-        } catch (Exception e) {
-            throw new RuntimeException(
-                    "Cannot parse json array to class " + clazz.getName() + " input: \n" + inputString, e);
+            return JSON_OBJECT_MAPPER.treeToValue(tree, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
         }
     }
 
@@ -94,80 +191,105 @@ public class JsonUtils {
         }
     }
 
+    /**
+     * The JSON part of an answer: the outermost object or array, inside the ```json block if there is one.
+     *
+     * One scan that balances brackets outside of strings, so the cost stays linear however many
+     * brackets the answer contains. When the value does not close (a truncated answer), the text from
+     * its first bracket to the last closing bracket of the same kind is returned for repair; without
+     * any bracket, the trimmed text.
+     */
     public static String trimJson(String input) {
         if (!StringUtils.hasText(input)) return "";
-        input = getMarkdownBlockIfPresent(input);
-        return extractJson(input);
-    }
-
-    private static String getMarkdownBlockIfPresent(String input) {
-        Pattern markdownPattern = Pattern.compile("```json\\s*(.*?)\\s*```", Pattern.DOTALL);
-        Matcher markdownMatcher = markdownPattern.matcher(input);
 
-        if (markdownMatcher.find()) {
-            return markdownMatcher.group(1);
+        int from = 0;
+        int to = input.length();
+        int fence = input.indexOf(MARKDOWN_JSON_FENCE);
+        if (fence >= 0) {
+            int fenceEnd = input.indexOf(MARKDOWN_FENCE, fence + MARKDOWN_JSON_FENCE.length());
+            if (fenceEnd >= 0) {
+                from = fence + MARKDOWN_JSON_FENCE.length();
+                to = fenceEnd;
+            }
         }
-        return input;
-    }
 
-    private static String extractJson(String input) {
-        String arrayPattern = "\\[.*](?!.*])";
-        String objectPattern = "\\{.*}(?!.*})";
-
-        int objectStart = input.indexOf('{');
-        int arrayStart = input.indexOf('[');
+        int start = -1;
+        for (int i = from; i < to; i++) {
+            char c = input.charAt(i);
+            if (c == '{' || c == '[') {
+                start = i;
+                break;
+            }
+        }
+        if (start < 0) {
+            return input.substring(from, to).trim();
+        }
 
-        if (objectStart == -1 && arrayStart == -1) {
-            return input.trim();
+        // The value may run past the closing fence when a string contains ```
+        int end = balancedEnd(input, start);
+        if (end >= 0) {
+            return input.substring(start, end + 1);
         }
 
-        Pattern pattern;
-        if (objectStart == -1) pattern = Pattern.compile(arrayPattern, Pattern.DOTALL);
-        else if (arrayStart == -1) pattern = Pattern.compile(objectPattern, Pattern.DOTALL);
-        else
-            pattern = objectStart < arrayStart
-                    ? Pattern.compile(objectPattern, Pattern.DOTALL)
-                    : Pattern.compile(arrayPattern, Pattern.DOTALL);
+        char close = input.charAt(start) == '{' ? '}' : ']';
+        int lastClose = input.lastIndexOf(close, to - 1);
+        return lastClose > start
+                ? input.substring(start, lastClose + 1).trim()
+                : input.substring(from, to).trim();
+    }
 
-        Matcher matcher = pattern.matcher(input);
-        String longest = "";
-        while (matcher.find()) {
-            String match = matcher.group();
-            if (match.length() > longest.length()) {
-                longest = match;
+    /**
+     * Index of the bracket closing the one at start, or -1; brackets inside strings do not count.
+     * As in {@link JSONRepair}, a single quote opens a string where a key or value starts, so the
+     * apostrophe of unquoted text does not.
+     */
+    private static int balancedEnd(String input, int start) {
+        int depth = 0;
+        char quote = 0;
+        char previous = 0;
+        for (int i = start; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (quote != 0) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"'
+                    || (c == '\'' && (previous == '{' || previous == '[' || previous == ',' || previous == ':'))) {
+                quote = c;
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if ((c == '}' || c == ']') && --depth == 0) {
+                return i;
+            }
+            if (!Character.isWhitespace(c)) {
+                previous = c;
             }
         }
-        return longest.isEmpty() ? input.trim() : longest.trim();
+        return -1;
     }
 
     /*
      * Much better output than direct YAML printing
      * Honors width parameter
+     *
+     * The object is turned into a tree once, as it would be printed to JSON (so null fields are left
+     * out), and {@link YamlWriter} writes the tree as SnakeYAML would dump it.
      */
-    static String convertJsonToYaml(String json, int width) {
-
-        try {
-            ObjectMapper jsonMapper = new ObjectMapper();
-            JsonNode jsonNode = jsonMapper.readTree(json);
-
-            DumperOptions options = new DumperOptions();
-            options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
-            options.setDefaultScalarStyle(DumperOptions.ScalarStyle.PLAIN);
-            options.setIndent(4);
-            options.setWidth(width);
-
-            if (jsonNode.isObject()) {
-                var map = jsonMapper.convertValue(jsonNode, LinkedHashMap.class);
-                return new Yaml(options).dump(map);
-            } else if (jsonNode.isArray()) {
-                var list = jsonMapper.convertValue(jsonNode, List.class);
-                return new Yaml(options).dump(list);
-            } else {
-                throw new IllegalArgumentException("Input JSON must be an object or array");
-            }
-        } catch (JsonProcessingException | IllegalArgumentException e) {
-            throw new RuntimeException(e);
+    static String formatYaml(Object value, int width) {
+        JsonNode tree = JSON_OBJECT_MAPPER.valueToTree(value);
+        if (!tree.isContainerNode()) {
+            throw new IllegalArgumentException("Input JSON must be an object or array");
         }
+        return YamlWriter.write(tree, YAML_INDENT, width);
+    }
+
+    /**
+     * Whether both values print to the same JSON tree, see {@link SerObject#VERIFY_YAML_VARIABLE}
+     */
+    static boolean sameTree(Object value, Object other) {
+        return JSON_OBJECT_MAPPER.valueToTree(value).equals(JSON_OBJECT_MAPPER.valueToTree(other));
     }
 
     @SuppressWarnings("unused")
@@ -1,13 +1,14 @@
 package com.example.llmtoolkit.util.json;
 
 import static com.example.llmtoolkit.util.json.SerObject.DEFAULT_YAML_WIDTH;
+import static com.example.llmtoolkit.util.json.SerObject.VERIFY_YAML;
 
 import java.util.List;
 
 /**
- * Serializes arrays to/from JSON and YAML with format validation.
- * Ensures round-trip consistency by verifying that re-parsing the serialized output
- * produces identical results.
+ * Serializes arrays to/from JSON and YAML.
+ * YAML is written straight from the list; with {@link SerObject#VERIFY_YAML_VARIABLE} set, it is
+ * parsed back and compared to the list as JSON trees.
  *
  * @param <T> type of elements in the array
  */
@@ -45,10 +46,10 @@ public class SerArray<T> {
     }
 
     public String toYaml(int width) {
-        String serializedJson = toJson();
-        String yaml = JsonUtils.convertJsonToYaml(serializedJson, width);
-        String reSerializedJson = SerArray.from(yaml, clazz).toJson();
-        if (!serializedJson.equals(reSerializedJson)) throw new RuntimeException();
+        String yaml = JsonUtils.formatYaml(array, width);
+        if (VERIFY_YAML && !JsonUtils.sameTree(array, SerArray.from(yaml, clazz).toArray())) {
+            throw new RuntimeException("YAML does not read back as the same list of " + clazz.getName() + ":\n" + yaml);
+        }
         return yaml;
     }
 }
@@ -1,14 +1,18 @@
 package com.example.llmtoolkit.util.json;
 
+import com.example.llmtoolkit.util.Env;
+
 /**
- * Serializes objects to/from JSON and YAML with format validation.
- * Ensures round-trip consistency by verifying that re-parsing the serialized output
- * produces identical results.
+ * Serializes objects to/from JSON and YAML.
+ * YAML is written straight from the object; with {@link #VERIFY_YAML_VARIABLE} set, it is parsed
+ * back and compared to the object as JSON trees.
  *
  * @param <T> type of the wrapped object
  */
 public class SerObject<T> {
+    public static final String VERIFY_YAML_VARIABLE = "GM_VERIFY_YAML";
     static final int DEFAULT_YAML_WIDTH = 120;
+    static final boolean VERIFY_YAML = Boolean.parseBoolean(Env.get(VERIFY_YAML_VARIABLE));
 
     private final T object;
     private final Class<T> clazz;
@@ -45,10 +49,11 @@ public class SerObject<T> {
     }
 
     public String toYaml(int width) {
-        String serializedJson = toJson();
-        String yaml = JsonUtils.convertJsonToYaml(serializedJson, width);
-        String reSerializedJson = SerObject.from(yaml, clazz).toJson();
-        if (!serializedJson.equals(reSerializedJson)) throw new RuntimeException();
+        String yaml = JsonUtils.formatYaml(object, width);
+        if (VERIFY_YAML
+                && !JsonUtils.sameTree(object, SerObject.from(yaml, clazz).toObject())) {
+            throw new RuntimeException("YAML does not read back as the same " + clazz.getName() + ":\n" + yaml);
+        }
         return yaml;
     }
 }
@@ -0,0 +1,144 @@
+package com.example.llmtoolkit.util.json;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Map;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.emitter.Emitter;
+import org.yaml.snakeyaml.events.DocumentEndEvent;
+import org.yaml.snakeyaml.events.DocumentStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.ImplicitTuple;
+import org.yaml.snakeyaml.events.MappingEndEvent;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.events.SequenceEndEvent;
+import org.yaml.snakeyaml.events.SequenceStartEvent;
+import org.yaml.snakeyaml.events.StreamEndEvent;
+import org.yaml.snakeyaml.events.StreamStartEvent;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+/**
+ * Block-style YAML written straight from a JSON tree.
+ *
+ * The tree is sent to SnakeYAML's emitter as the events its serializer produces for the same maps
+ * and lists, represented with block flow style and plain default scalars, so the output is the one
+ * SnakeYAML dumps without building its node graph first. The one difference: text with
+ * non-printable characters, which SnakeYAML represents as !!binary, is sent as text and the
+ * emitter double-quotes it. Double-quoted text indented beyond the width is folded as SnakeYAML
+ * folds it, which can read back with a stray backslash; {@link SerObject#VERIFY_YAML_VARIABLE}
+ * reports such output.
+ */
+final class YamlWriter {
+    private static final Resolver RESOLVER = new Resolver();
+
+    private final Emitter emitter;
+
+    private YamlWriter(StringWriter out, int indent, int width) {
+        DumperOptions options = new DumperOptions();
+        options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+        options.setDefaultScalarStyle(DumperOptions.ScalarStyle.PLAIN);
+        options.setIndent(indent);
+        options.setWidth(width);
+        this.emitter = new Emitter(out, options);
+    }
+
+    static String write(JsonNode root, int indent, int width) {
+        StringWriter out = new StringWriter();
+        YamlWriter writer = new YamlWriter(out, indent, width);
+        writer.emit(new StreamStartEvent(null, null));
+        writer.emit(new DocumentStartEvent(null, null, false, null, null));
+        writer.node(root);
+        writer.emit(new DocumentEndEvent(null, null, false));
+        writer.emit(new StreamEndEvent(null, null));
+        return out.toString();
+    }
+
+    private void node(JsonNode node) {
+        if (node.isObject()) {
+            emit(new MappingStartEvent(null, Tag.MAP.getValue(), true, null, null, DumperOptions.FlowStyle.BLOCK));
+            for (Iterator<Map.Entry<String, JsonNode>> fields = node.fields(); fields.hasNext(); ) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                text(field.getKey());
+                node(field.getValue());
+            }
+            emit(new MappingEndEvent(null, null));
+        } else if (node.isArray()) {
+            emit(new SequenceStartEvent(null, Tag.SEQ.getValue(), true, null, null, DumperOptions.FlowStyle.BLOCK));
+            for (JsonNode element : node) {
+                node(element);
+            }
+            emit(new SequenceEndEvent(null, null));
+        } else {
+            scalar(node);
+        }
+    }
+
+    // Scalars, represented as SnakeYAML represents the equivalent Java values
+
+    private void scalar(JsonNode node) {
+        if (node.isTextual()) {
+            text(node.textValue());
+        } else if (node.isIntegralNumber()) {
+            scalar(node.numberValue().toString(), Tag.INT, DumperOptions.ScalarStyle.PLAIN);
+        } else if (node.isNumber()) {
+            // A float or BigDecimal reads back from JSON as the double of its text
+            double number = node.isDouble() ? node.doubleValue() : Double.parseDouble(node.asText());
+            String value;
+            if (Double.isNaN(number)) {
+                value = ".NaN";
+            } else if (Double.isInfinite(number)) {
+                value = number > 0 ? ".inf" : "-.inf";
+            } else {
+                value = Double.toString(number);
+            }
+            scalar(value, Tag.FLOAT, DumperOptions.ScalarStyle.PLAIN);
+        } else if (node.isBoolean()) {
+            scalar(node.booleanValue() ? "true" : "false", Tag.BOOL, DumperOptions.ScalarStyle.PLAIN);
+        } else if (node.isNull() || node.isMissingNode()) {
+            scalar("null", Tag.NULL, DumperOptions.ScalarStyle.PLAIN);
+        } else {
+            text(node.asText());
+        }
+    }
+
+    private void text(String value) {
+        // Multiline text asks for the literal style, as in SnakeYAML's representer
+        scalar(
+                value,
+                Tag.STR,
+                isMultiline(value) ? DumperOptions.ScalarStyle.LITERAL : DumperOptions.ScalarStyle.PLAIN);
+    }
+
+    private void scalar(String value, Tag tag, DumperOptions.ScalarStyle style) {
+        // The tag is left out where it resolves from the plain or the quoted value, as the serializer does
+        ImplicitTuple implicit = new ImplicitTuple(
+                tag.equals(RESOLVER.resolve(NodeId.scalar, value, true)),
+                tag.equals(RESOLVER.resolve(NodeId.scalar, value, false)));
+        emit(new ScalarEvent(null, tag.getValue(), implicit, value, null, null, style));
+    }
+
+    private static boolean isMultiline(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\n' || c == 0x85 || c == 0x2028 || c == 0x2029) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void emit(Event event) {
+        try {
+            emitter.emit(event);
+        } catch (IOException e) {
+            // A StringWriter does not throw
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.agents;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.agents.CommonRequirements.VehicleInfo;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CatalogFileTest {
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+    private byte[] bytes;
+
+    @BeforeEach
+    void writeMockCatalog() throws IOException {
+        file = directory.resolve("vehicles.gmcat");
+        CatalogFile.write(file, MockVehicleData.VEHICLES, MockVehicleData.DEALERS, MockVehicleData.FINANCING_RATES);
+        bytes = Files.readAllBytes(file);
+    }
+
+    @Test
+    void readsBackWhatWasWritten() throws IOException {
+        CatalogFile.Contents contents = CatalogFile.open(file);
+        assertEquals(MockVehicleData.VEHICLES, materialize(contents));
+        assertEquals(MockVehicleData.DEALERS, contents.dealers());
+        assertEquals(MockVehicleData.FINANCING_RATES, contents.financingRates());
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Files.write(file, "{\"vehicles\": []}".getBytes());
+        IOException e = assertThrows(IOException.class, () -> CatalogFile.open(file));
+        assertTrue(e.getMessage().contains("Not a vehicle catalog file"), e::getMessage);
+        assertTrue(e.getMessage().contains(file.toString()), e::getMessage);
+    }
+
+    @Test
+    void rejectsOtherFormatVersions() throws IOException {
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(4, 2);
+        Files.write(file, bytes);
+        IOException e = assertThrows(IOException.class, () -> CatalogFile.open(file));
+        assertTrue(e.getMessage().contains("format version 2"), e::getMessage);
+    }
+
+    @Test
+    void rejectsTruncatedFiles() throws IOException {
+        for (int length = 0; length < bytes.length; length += length < 64 ? 1 : 61) {
+            Files.write(file, Arrays.copyOf(bytes, length));
+            assertThrows(IOException.class, () -> CatalogFile.open(file), "Truncated to " + length + " bytes");
+        }
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        IOException e = assertThrows(IOException.class, () -> CatalogFile.open(file));
+        assertTrue(e.getMessage().contains("truncated"), e::getMessage);
+    }
+
+    @Test
+    void corruptBytesFailWithAnIOExceptionOrStillRead() throws IOException {
+        Random random = new Random(7);
+        for (int i = 0; i < 2_000; i++) {
+            byte[] corrupt = bytes.clone();
+            for (int flips = random.nextInt(1, 4); flips > 0; flips--) {
+                corrupt[random.nextInt(corrupt.length)] ^= (byte) (1 << random.nextInt(8));
+            }
+            Files.write(file, corrupt);
+            try {
+                materialize(CatalogFile.open(file));
+            } catch (IOException e) {
+                // Rejected
+            }
+        }
+    }
+
+    private static List<VehicleInfo> materialize(CatalogFile.Contents contents) {
+        List<VehicleInfo> vehicles = new ArrayList<>();
+        for (int row = 0; row < contents.vehicles().size(); row++) {
+            vehicles.add(contents.vehicles().vehicle(row));
+        }
+        return vehicles;
+    }
+}
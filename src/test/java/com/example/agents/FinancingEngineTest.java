@@ -0,0 +1,100 @@
+package com.example.agents;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.example.agents.CommonRequirements.CreditTierFinancing;
+import com.example.agents.CommonRequirements.FinancingGrid;
+import com.example.agents.CommonRequirements.FinancingOption;
+import com.example.agents.CommonRequirements.VehicleInfo;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class FinancingEngineTest {
+
+    private static final double CENT = 0.005;
+
+    private final ToolsImpl tools = new ToolsImpl();
+
+    @Test
+    void zeroRateSplitsThePrincipalEvenly() {
+        assertEquals(1_000.0, FinancingEngine.monthlyPayment(36_000, 0, 36), 1e-9);
+        FinancingEngine.Schedule schedule = FinancingEngine.schedule(36_000, 0, 36);
+        for (int month = 0; month < 36; month++) {
+            assertEquals(0, schedule.interest[month]);
+            assertEquals(1_000.0, schedule.principal[month], 1e-9);
+        }
+    }
+
+    @Test
+    void paymentMatchesTheAnnuityFormula() {
+        double monthlyRate = 6.9 / 100 / 12;
+        double growth = Math.pow(1 + monthlyRate, 60);
+        assertEquals(
+                40_000 * monthlyRate * growth / (growth - 1), FinancingEngine.monthlyPayment(40_000, 6.9, 60), 1e-9);
+    }
+
+    @Test
+    void scheduleEndsWithNothingLeft() {
+        for (double rate : new double[] {0, 2.9, 7.9, 14.9, 24.9}) {
+            for (int term : FinancingEngine.STANDARD_TERMS) {
+                FinancingEngine.Schedule schedule = FinancingEngine.schedule(48_250.75, rate, term);
+                assertEquals(0, schedule.balance[term - 1], 1e-9);
+                double paid = Arrays.stream(schedule.principal).sum();
+                assertEquals(48_250.75, paid, 1e-6);
+                // The last month pays off what is left, which is the level payment up to rounding
+                for (int month = 0; month < term; month++) {
+                    assertEquals(
+                            schedule.monthlyPayment,
+                            schedule.interest[month] + schedule.principal[month],
+                            1e-6,
+                            "month " + month + " at " + rate + "% over " + term);
+                }
+            }
+        }
+    }
+
+    @Test
+    void gridAgreesWithSingleFinancingCalculations() {
+        VehicleInfo vehicle = MockVehicleData.VEHICLES.getFirst();
+        List<Double> downs = List.of(0.0, 5_000.0, vehicle.price() / 3, vehicle.price() + 1_000);
+        FinancingGrid grid = tools.calculateFinancingGrid(vehicle.id(), downs, null);
+        assertEquals(MockVehicleData.FINANCING_RATES.size(), grid.creditTiers().size());
+        for (CreditTierFinancing tier : grid.creditTiers()) {
+            for (int down = 0; down < downs.size(); down++) {
+                for (int term = 0; term < grid.termMonths().size(); term++) {
+                    FinancingOption single = tools.calculateFinancing(
+                            vehicle.id(), downs.get(down), grid.termMonths().get(term), tier.creditScore());
+                    assertEquals(tier.interestRate(), single.interestRate());
+                    assertEquals(
+                            single.monthlyPayment(),
+                            tier.monthlyPayments().get(down).get(term),
+                            CENT);
+                }
+            }
+        }
+    }
+
+    @Test
+    void downPaymentAboveThePriceFinancesNothing() {
+        VehicleInfo vehicle = MockVehicleData.VEHICLES.getFirst();
+        FinancingOption single = tools.calculateFinancing(vehicle.id(), vehicle.price() + 1_000, 60, "good");
+        assertEquals(0, single.monthlyPayment());
+        assertEquals(
+                0,
+                tools.calculateAmortizationSchedule(vehicle.id(), vehicle.price() + 1_000, 60, "good")
+                        .monthlyPayment());
+    }
+
+    @Test
+    void rejectsMissingDownPayments() {
+        VehicleInfo vehicle = MockVehicleData.VEHICLES.getFirst();
+        List<Double> downs = Arrays.asList(1_000.0, null);
+        IllegalArgumentException e = assertThrows(
+                IllegalArgumentException.class, () -> tools.calculateFinancingGrid(vehicle.id(), downs, "good"));
+        assertEquals("Down payments must be amounts, got [1000.0, null]", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> CachingTools.shared()
+                .calculateFinancingGrid(vehicle.id(), downs, "good"));
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.agents;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import com.example.agents.CommonRequirements.SearchCriteria;
+import com.example.agents.CommonRequirements.VehicleCategory;
+import com.example.agents.CommonRequirements.VehicleInfo;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Inventory searches against the filter loop that answered them before the index, on random criteria
+ * over {@link MockVehicleData}
+ */
+class InventoryIndexTest {
+
+    private static final int SEARCHES = 20_000;
+
+    private final ToolsImpl tools = new ToolsImpl();
+
+    @Test
+    void matchesTheFilterLoop() {
+        Random random = new Random(42);
+        int nonEmpty = 0;
+        for (int i = 0; i < SEARCHES; i++) {
+            SearchCriteria criteria = randomCriteria(random);
+            List<VehicleInfo> expected = filter(criteria);
+            assertEquals(expected, tools.searchVehicleInventory(criteria), criteria::toString);
+            nonEmpty += expected.isEmpty() ? 0 : 1;
+        }
+        // The criteria are not so narrow that nothing matches
+        assertFalse(nonEmpty < SEARCHES / 10);
+    }
+
+    @Test
+    void categoryIgnoresTheOtherCriteria() {
+        SearchCriteria criteria =
+                new SearchCriteria(VehicleCategory.SUV, 1_000_000.0, 1.0, 500, "Hydrogen", List.of("no such feature"));
+        List<VehicleInfo> found = tools.searchVehicleInventory(criteria);
+        assertFalse(found.isEmpty());
+        assertEquals(filter(criteria), found);
+    }
+
+    @Test
+    void noCriteriaFindsEveryVehicle() {
+        SearchCriteria criteria = new SearchCriteria(null, null, null, null, null, null);
+        assertEquals(MockVehicleData.VEHICLES, tools.searchVehicleInventory(criteria));
+        assertEquals(
+                MockVehicleData.VEHICLES,
+                tools.searchVehicleInventory(new SearchCriteria(null, null, null, null, null, List.of())));
+    }
+
+    @Test
+    void boundsAreInclusive() {
+        for (VehicleInfo vehicle : MockVehicleData.VEHICLES) {
+            int avgMpg = (vehicle.mpgCity() + vehicle.mpgHighway()) / 2;
+            SearchCriteria criteria =
+                    new SearchCriteria(null, vehicle.price(), vehicle.price(), avgMpg, vehicle.fuelType(), null);
+            List<VehicleInfo> found = tools.searchVehicleInventory(criteria);
+            assertEquals(filter(criteria), found);
+            assertFalse(found.isEmpty(), vehicle::id);
+        }
+    }
+
+    private static SearchCriteria randomCriteria(Random random) {
+        List<VehicleInfo> vehicles = MockVehicleData.VEHICLES;
+        VehicleInfo sample = vehicles.get(random.nextInt(vehicles.size()));
+        VehicleCategory category = random.nextInt(5) == 0
+                ? VehicleCategory.values()[random.nextInt(VehicleCategory.values().length)]
+                : null;
+        Double minPrice = random.nextBoolean() ? sample.price() * (0.5 + random.nextDouble()) : null;
+        Double maxPrice = random.nextBoolean() ? sample.price() * (0.8 + random.nextDouble()) : null;
+        Integer minMpg = random.nextInt(3) == 0 ? random.nextInt(10, 60) : null;
+        String fuelType = null;
+        if (random.nextInt(3) == 0) {
+            fuelType = random.nextBoolean() ? sample.fuelType().toUpperCase(Locale.ROOT) : sample.fuelType();
+        } else if (random.nextInt(20) == 0) {
+            fuelType = "Hydrogen";
+        }
+        List<String> requiredFeatures = null;
+        if (random.nextBoolean()) {
+            List<String> features = Stream.concat(
+                            sample.safetyFeatures().stream(), sample.infotainmentFeatures().stream())
+                    .toList();
+            requiredFeatures = new ArrayList<>();
+            for (int count = random.nextInt(3); count > 0 && !features.isEmpty(); count--) {
+                requiredFeatures.add(fragment(random, features.get(random.nextInt(features.size()))));
+            }
+        }
+        return new SearchCriteria(category, minPrice, maxPrice, minMpg, fuelType, requiredFeatures);
+    }
+
+    /**
+     * Part of the feature, in a random case, sometimes with a letter no feature has there
+     */
+    private static String fragment(Random random, String feature) {
+        int start = random.nextInt(feature.length());
+        int end = random.nextInt(start, feature.length()) + 1;
+        String fragment = feature.substring(start, end);
+        if (random.nextInt(10) == 0) {
+            fragment += "æ";
+        }
+        return random.nextBoolean() ? fragment.toUpperCase(Locale.ROOT) : fragment.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The filter loop of the search before the index
+     */
+    private static List<VehicleInfo> filter(SearchCriteria criteria) {
+        return MockVehicleData.VEHICLES.stream()
+                .filter(vehicle -> {
+                    if (criteria.category() != null) {
+                        VehicleCategory vehicleCategory = VehicleCategory.fromString(vehicle.category());
+                        if (vehicleCategory == criteria.category()) {
+                            return true;
+                        }
+                        String searchedCategory = criteria.category().getDisplayName();
+                        return vehicle.category().toLowerCase().contains(searchedCategory.toLowerCase());
+                    }
+                    if (criteria.minPrice() != null && vehicle.price() < criteria.minPrice()) {
+                        return false;
+                    }
+                    if (criteria.maxPrice() != null && vehicle.price() > criteria.maxPrice()) {
+                        return false;
+                    }
+                    if (criteria.minMpg() != null) {
+                        int avgMpg = (vehicle.mpgCity() + vehicle.mpgHighway()) / 2;
+                        if (avgMpg < criteria.minMpg()) {
+                            return false;
+                        }
+                    }
+                    if (criteria.fuelType() != null && !vehicle.fuelType().equalsIgnoreCase(criteria.fuelType())) {
+                        return false;
+                    }
+                    if (criteria.requiredFeatures() != null
+                            && !criteria.requiredFeatures().isEmpty()) {
+                        List<String> allFeatures = new ArrayList<>();
+                        allFeatures.addAll(vehicle.safetyFeatures());
+                        allFeatures.addAll(vehicle.infotainmentFeatures());
+                        for (String required : criteria.requiredFeatures()) {
+                            boolean hasFeature = allFeatures.stream()
+                                    .anyMatch(feature -> feature.toLowerCase().contains(required.toLowerCase()));
+                            if (!hasFeature) {
+                                return false;
+                            }
+                        }
+                    }
+                    return true;
+                })
+                .toList();
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.agents;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the scalar and vectorized {@link SelectionKernel}s on synthetic catalogs of 10k, 100k
+ * and 1M vehicles. It lives with the tests so it stays out of the jar; build the test classes with the
+ * {@code vector} Maven profile and run it on the test classpath with
+ * {@code --add-modules jdk.incubator.vector}, otherwise only the scalar kernel is available.
+ */
+public class SelectionKernelBenchmark {
+
+    private static final int[] SIZES = {10_000, 100_000, 1_000_000};
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURED_ROUNDS = 200;
+
+    public static void main(String[] args) {
+        SelectionKernel scalar = new ScalarSelectionKernel();
+        SelectionKernel best = SelectionKernel.create();
+        System.out.println("Kernels: " + scalar.name() + " vs " + best.name());
+
+        Random random = new Random(42);
+        for (int size : SIZES) {
+            Columns columns = new Columns(
+                    DoubleBuffer.wrap(random.doubles(size, 20_000, 120_000).toArray()),
+                    IntBuffer.wrap(random.ints(size, 10, 40).toArray()),
+                    IntBuffer.wrap(random.ints(size, 14, 50).toArray()),
+                    random.ints(size, 0, 3).toArray());
+
+            // Price between 30k and 60k, at least 20 MPG, first fuel type
+            long[] expected = run(scalar, columns);
+            long[] actual = run(best, columns);
+            long[] actualDirect = run(best, columns.direct());
+            if (!Arrays.equals(expected, actual) || !Arrays.equals(expected, actualDirect)) {
+                throw new IllegalStateException(best.name() + " selected different rows at " + size + " vehicles");
+            }
+
+            double scalarMicros = measure(scalar, columns);
+            double bestMicros = measure(best, columns);
+            System.out.printf(
+                    "%,10d vehicles: %s %10.1f us, %s %10.1f us, speedup %.2fx%n",
+                    size, scalar.name(), scalarMicros, best.name(), bestMicros, scalarMicros / bestMicros);
+        }
+    }
+
+    private record Columns(DoubleBuffer prices, IntBuffer mpgCity, IntBuffer mpgHighway, int[] fuelIds) {
+        /**
+         * Same columns in off-heap buffers without a backing array, like those of a mapped catalog file
+         */
+        Columns direct() {
+            ByteBuffer priceBytes = ByteBuffer.allocateDirect(prices.capacity() * Double.BYTES);
+            ByteBuffer cityBytes = ByteBuffer.allocateDirect(mpgCity.capacity() * Integer.BYTES);
+            ByteBuffer highwayBytes = ByteBuffer.allocateDirect(mpgHighway.capacity() * Integer.BYTES);
+            return new Columns(
+                    priceBytes.asDoubleBuffer().put(0, prices, 0, prices.capacity()),
+                    cityBytes.asIntBuffer().put(0, mpgCity, 0, mpgCity.capacity()),
+                    highwayBytes.asIntBuffer().put(0, mpgHighway, 0, mpgHighway.capacity()),
+                    fuelIds);
+        }
+    }
+
+    private static long[] run(SelectionKernel kernel, Columns columns) {
+        int rows = columns.fuelIds().length;
+        long[] mask = new long[(rows + 63) / 64];
+        kernel.select(
+                columns.prices(),
+                columns.mpgCity(),
+                columns.mpgHighway(),
+                columns.fuelIds(),
+                rows,
+                30_000,
+                60_000,
+                20,
+                0,
+                mask);
+        return mask;
+    }
+
+    /**
+     * Median time of one selection in microseconds
+     */
+    private static double measure(SelectionKernel kernel, Columns columns) {
+        long checksum = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            checksum += run(kernel, columns)[0];
+        }
+        long[] nanos = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            checksum += run(kernel, columns)[0];
+            nanos[i] = System.nanoTime() - start;
+        }
+        if (checksum == 42) {
+            System.out.println(); // Keeps the results observable to the JIT
+        }
+        Arrays.sort(nanos);
+        return nanos[nanos.length / 2] / 1_000.0;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.agents;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.agents.CommonRequirements.VehicleInfo;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class VehicleColumnsTest {
+
+    @Test
+    void materializesTheVehiclesTheyWereBuiltFrom() {
+        VehicleColumns columns = VehicleColumns.from(MockVehicleData.VEHICLES);
+        assertEquals(MockVehicleData.VEHICLES.size(), columns.size());
+        for (int row = 0; row < columns.size(); row++) {
+            assertEquals(MockVehicleData.VEHICLES.get(row), columns.vehicle(row));
+        }
+    }
+
+    @Test
+    void keepsNullLists() {
+        VehicleInfo vehicle = with(MockVehicleData.VEHICLES.getFirst(), "safetyFeatures", null);
+        assertNull(VehicleColumns.from(List.of(vehicle)).vehicle(0).safetyFeatures());
+    }
+
+    @Test
+    void rejectsNullListElements() {
+        List<String> features =
+                new ArrayList<>(MockVehicleData.VEHICLES.getFirst().infotainmentFeatures());
+        features.add(null);
+        VehicleInfo vehicle = with(MockVehicleData.VEHICLES.getFirst(), "infotainmentFeatures", features);
+        IllegalArgumentException e =
+                assertThrows(IllegalArgumentException.class, () -> VehicleColumns.from(List.of(vehicle)));
+        assertTrue(e.getMessage().contains(vehicle.id()), e::getMessage);
+        assertTrue(e.getMessage().contains("infotainmentFeatures"), e::getMessage);
+    }
+
+    /**
+     * A copy of the vehicle with the named component set to the value
+     */
+    private static VehicleInfo with(VehicleInfo vehicle, String component, Object value) {
+        RecordComponent[] components = VehicleInfo.class.getRecordComponents();
+        Object[] values = new Object[components.length];
+        try {
+            for (int i = 0; i < components.length; i++) {
+                values[i] = components[i].getName().equals(component)
+                        ? value
+                        : components[i].getAccessor().invoke(vehicle);
+            }
+            return VehicleInfo.class
+                    .getDeclaredConstructor(Arrays.stream(components)
+                            .map(RecordComponent::getType)
+                            .toArray(Class<?>[]::new))
+                    .newInstance(values);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
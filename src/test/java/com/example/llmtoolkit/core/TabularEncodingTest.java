@@ -0,0 +1,176 @@
+package com.example.llmtoolkit.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+class TabularEncodingTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String RECORDS =
+            """
+            [{"id": "v1", "price": 1, "dealer": {"id": "d1", "city": "Detroit, \\"MI\\""}},
+             {"id": "v2", "awd": true, "dealer": {"id": "d2"}}]""";
+
+    private static final String LOOK_ALIKES =
+            """
+            {"bool": "true", "int": "12", "exp": "-1e5", "null": "Null", "empty": "", "space": " x",
+             "comma": "a,b", "quote": "say \\"hi\\"", "dash": "- dash", "flow": "[x]", "break": "line\\nbreak",
+             "text": "12abc", "version": "1.5.2", "number": 12, "missing": null, "false": false}""";
+
+    private static final String ARRAYS_IN_RECORDS =
+            """
+            [{"id": "v1", "features": ["AWD", "Heated, seats"]}, {"id": "v2", "features": []}]""";
+
+    @Test
+    void recordsShareOneHeader() throws Exception {
+        assertEquals(
+                """
+                [2]{id,price,dealer.id,dealer.city,awd}:
+                  v1,1,d1,"Detroit, \\"MI\\"",
+                  v2,,d2,,true""",
+                TabularEncoding.table(json(RECORDS)));
+        assertEquals(
+                """
+                id,price,dealer.id,dealer.city,awd
+                v1,1,d1,"Detroit, ""MI""\",
+                v2,,d2,,true""",
+                TabularEncoding.csv(json(RECORDS)));
+    }
+
+    @Test
+    void quotesStringsThatReadAsSomethingElse() throws Exception {
+        assertEquals(
+                """
+                bool: "true"
+                int: "12"
+                exp: "-1e5"
+                null: "Null"
+                empty: ""
+                space: " x"
+                comma: "a,b"
+                quote: "say \\"hi\\""
+                dash: "- dash"
+                flow: "[x]"
+                break: "line\\nbreak"
+                text: 12abc
+                version: 1.5.2
+                number: 12
+                missing: null
+                false: false""",
+                TabularEncoding.table(json(LOOK_ALIKES)));
+        // A CSV cell has no type; it is quoted for its separators only, and an empty string is not a null
+        assertEquals(
+                """
+                bool,true
+                int,12
+                exp,-1e5
+                null,Null
+                empty,""
+                space," x"
+                comma,"a,b"
+                quote,"say ""hi\"""
+                dash,- dash
+                flow,[x]
+                break,"line
+                break"
+                text,12abc
+                version,1.5.2
+                number,12
+                missing,
+                false,false""",
+                TabularEncoding.csv(json(LOOK_ALIKES)));
+    }
+
+    @Test
+    void recordsWithArraysAreListedInATableAndJsonCellsInCsv() throws Exception {
+        assertEquals(
+                """
+                [2]:
+                  - id: v1
+                    features[2]: AWD,"Heated, seats"
+                  - id: v2
+                    features[0]:""",
+                TabularEncoding.table(json(ARRAYS_IN_RECORDS)));
+        assertEquals(
+                """
+                id,features
+                v1,"[""AWD"",""Heated, seats""]"
+                v2,[]""",
+                TabularEncoding.csv(json(ARRAYS_IN_RECORDS)));
+    }
+
+    @Test
+    void dashesTheFirstLineOfEachItem() throws Exception {
+        JsonNode result = json(
+                """
+                {"items": [[1, 2], [{"a": 1}], "x", {"a": {"b": 1}, "c": [3]}, {}, []],
+                 "key:with,comma": {"inner": "v"}, "empty": {}}""");
+        assertEquals(
+                """
+                items[6]:
+                  - [2]: 1,2
+                  - [1]{a}:
+                      1
+                  - x
+                  - a:
+                      b: 1
+                    c[1]: 3
+                  - {}
+                  - [0]:
+                "key:with,comma":
+                  inner: v
+                empty: {}""",
+                TabularEncoding.table(result));
+        assertEquals(
+                """
+                items,"[[1,2],[{""a"":1}],""x"",{""a"":{""b"":1},""c"":[3]},{},[]]"
+                "key:with,comma","{""inner"":""v""}"
+                empty,{}""",
+                TabularEncoding.csv(result));
+    }
+
+    @Test
+    void objectsThatWouldNotReadBackAreNotRecords() throws Exception {
+        // A dotted key would read back as a nested object
+        JsonNode dotted = json("[{\"a.b\": 1}, {\"a\": {\"b\": 2}}]");
+        assertEquals(
+                """
+                [2]:
+                  - a.b: 1
+                  - a:
+                      b: 2""",
+                TabularEncoding.table(dotted));
+        assertEquals(
+                """
+                "{""a.b"":1}"
+                "{""a"":{""b"":2}}\"""", TabularEncoding.csv(dotted));
+    }
+
+    @Test
+    void writesMixedArraysAndEmptyResults() throws Exception {
+        JsonNode mixed = json("[1, \"two, three\", null, \"\", [4]]");
+        assertEquals(
+                """
+                [5]:
+                  - 1
+                  - "two, three"
+                  - null
+                  - ""
+                  - [1]: 4""",
+                TabularEncoding.table(mixed));
+        assertEquals("1\n\"two, three\"\n\n\"\"\n[4]", TabularEncoding.csv(mixed));
+        assertEquals("{}", TabularEncoding.table(json("{}")));
+        assertEquals("[0]:", TabularEncoding.table(json("[]")));
+        assertEquals("", TabularEncoding.csv(json("{}")));
+        assertEquals("", TabularEncoding.csv(json("[]")));
+    }
+
+    private static JsonNode json(String json) throws JsonProcessingException {
+        return MAPPER.readTree(json);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.llmtoolkit.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.example.llmtoolkit.core.annotations.ToolResultView;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ToolResultProjectionTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String VEHICLE =
+            """
+            {"id": "v1", "model": "Bolt", "mpgCity": 0, "maxTowingCapacity": 0, "price": 26500.0,
+             "trim": "", "range": null, "awd": false, "features": [], "dealers": [{"id": "d1", "name": null}]}""";
+
+    record Summary(String id, int mpgCity, List<Dealer> dealers) {}
+
+    record Dealer(String id) {}
+
+    @ToolResultView
+    void detail() {}
+
+    @ToolResultView(omitDefaults = true)
+    void withoutDefaults() {}
+
+    @ToolResultView(Summary.class)
+    void summary() {}
+
+    @ToolResultView(fields = {"id", "dealers.name"})
+    void paths() {}
+
+    @Test
+    void keepsZerosUnlessTheViewOptsIn() throws Exception {
+        assertEquals(
+                json(
+                        """
+                        {"id": "v1", "model": "Bolt", "mpgCity": 0, "maxTowingCapacity": 0, "price": 26500.0,
+                         "trim": "", "awd": false, "features": [], "dealers": [{"id": "d1"}]}"""),
+                project("detail"));
+        assertEquals(
+                json(
+                        """
+                        {"id": "v1", "model": "Bolt", "price": 26500.0, "awd": false, "dealers": [{"id": "d1"}]}"""),
+                project("withoutDefaults"));
+    }
+
+    @Test
+    void keepsTheFieldsOfTheView() throws Exception {
+        assertEquals(json("{\"id\": \"v1\", \"mpgCity\": 0, \"dealers\": [{\"id\": \"d1\"}]}"), project("summary"));
+        assertEquals(json("{\"id\": \"v1\", \"dealers\": [{}]}"), project("paths"));
+    }
+
+    private static JsonNode project(String method) throws Exception {
+        ToolResultView view =
+                ToolResultProjectionTest.class.getDeclaredMethod(method).getAnnotation(ToolResultView.class);
+        return ToolResultProjection.of(view).apply(json(VEHICLE));
+    }
+
+    private static JsonNode json(String json) throws JsonProcessingException {
+        return MAPPER.readTree(json);
+    }
+}
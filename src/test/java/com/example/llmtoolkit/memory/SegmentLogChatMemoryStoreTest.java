@@ -0,0 +1,200 @@
+package com.example.llmtoolkit.memory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Sessions written through a memory window, as the agents' chat memories do, read back live and after
+ * reopening the directory
+ */
+class SegmentLogChatMemoryStoreTest {
+
+    private static final long SEGMENT_BYTES = 4096;
+    private static final long FSYNC_MILLIS = 10;
+    private static final int WINDOW = 6;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reopensAfterLiveUse() throws IOException {
+        Map<String, List<ChatMessage>> expected = new HashMap<>();
+        try (SegmentLogChatMemoryStore store = open()) {
+            for (int turn = 0; turn < 40; turn++) {
+                for (String session : List.of("a", "b", "c")) {
+                    converse(store, expected, session, turn);
+                }
+            }
+            store.updateMessages("b", List.of(UserMessage.from("started over")));
+            expected.put("b", List.of(UserMessage.from("started over")));
+            store.deleteMessages("c");
+            expected.remove("c");
+            assertStored(store, expected);
+            assertTrue(store.stats().segments() > 1);
+        }
+        try (SegmentLogChatMemoryStore store = open()) {
+            assertStored(store, expected);
+            assertEquals(List.of(), store.getMessages("c"));
+            converse(store, expected, "a", 40);
+            assertStored(store, expected);
+        }
+        try (SegmentLogChatMemoryStore store = open()) {
+            assertStored(store, expected);
+        }
+    }
+
+    @Test
+    void reopensAfterCompaction() throws IOException {
+        Map<String, List<ChatMessage>> expected = new HashMap<>();
+        try (SegmentLogChatMemoryStore store = open()) {
+            for (int turn = 0; turn < 60; turn++) {
+                for (int session = 0; session < 8; session++) {
+                    converse(store, expected, "session-" + session, turn);
+                }
+            }
+            for (int session = 0; session < 4; session++) {
+                store.deleteMessages("session-" + session);
+                expected.remove("session-" + session);
+            }
+            long segments = store.stats().segments();
+            store.compact();
+            assertTrue(store.stats().segments() < segments);
+            assertTrue(store.stats().compactions() > 0);
+            assertStored(store, expected);
+        }
+        try (SegmentLogChatMemoryStore store = open()) {
+            assertStored(store, expected);
+            assertEquals(List.of(), store.getMessages("session-0"));
+            store.compact();
+            assertStored(store, expected);
+        }
+        try (SegmentLogChatMemoryStore store = open()) {
+            assertStored(store, expected);
+        }
+    }
+
+    @Test
+    void concurrentCompactionsKeepTheSessions() throws Exception {
+        Map<String, List<ChatMessage>> expected = new HashMap<>();
+        try (SegmentLogChatMemoryStore store = open()) {
+            List<Throwable> failures = new CopyOnWriteArrayList<>();
+            List<Thread> compactors = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                Thread compactor = new Thread(() -> {
+                    try {
+                        for (int run = 0; run < 50; run++) {
+                            store.compact();
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        failures.add(e);
+                    }
+                });
+                compactor.start();
+                compactors.add(compactor);
+            }
+            for (int turn = 0; turn < 60; turn++) {
+                for (int session = 0; session < 8; session++) {
+                    converse(store, expected, "session-" + session, turn);
+                }
+            }
+            for (Thread compactor : compactors) {
+                compactor.join();
+            }
+            assertEquals(List.of(), failures);
+            store.compact();
+            assertStored(store, expected);
+        }
+        try (SegmentLogChatMemoryStore store = open()) {
+            assertStored(store, expected);
+        }
+    }
+
+    @Test
+    void reopensAfterTruncatedTail() throws IOException {
+        Map<String, List<ChatMessage>> expected = new HashMap<>();
+        List<ChatMessage> beforeLast;
+        try (SegmentLogChatMemoryStore store = open()) {
+            for (int turn = 0; turn < 20; turn++) {
+                converse(store, expected, "a", turn);
+                converse(store, expected, "b", turn);
+            }
+            beforeLast = store.getMessages("a");
+            converse(store, expected, "a", 20);
+            // The last record is then the update of a
+            assertEquals(0, store.stats().compactions());
+        }
+        Path last;
+        try (Stream<Path> files = Files.list(directory)) {
+            last = files.filter(path -> path.toString().endsWith(".log"))
+                    .sorted()
+                    .toList()
+                    .getLast();
+        }
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        expected.put("a", beforeLast);
+        try (SegmentLogChatMemoryStore store = open()) {
+            assertStored(store, expected);
+            converse(store, expected, "a", 21);
+            assertStored(store, expected);
+        }
+        try (SegmentLogChatMemoryStore store = open()) {
+            assertStored(store, expected);
+        }
+    }
+
+    @Test
+    void findsTheMessagesFromBeforeTheWindowDropsThem() {
+        List<ChatMessage> previous = List.of(UserMessage.from("1"), AiMessage.from("2"), UserMessage.from("3"));
+        assertEquals(
+                0,
+                SegmentLogChatMemoryStore.droppedPrefix(
+                        previous, List.of(UserMessage.from("1"), AiMessage.from("2"), UserMessage.from("3"))));
+        assertEquals(
+                1,
+                SegmentLogChatMemoryStore.droppedPrefix(
+                        previous, List.of(AiMessage.from("2"), UserMessage.from("3"), AiMessage.from("4"))));
+        assertEquals(3, SegmentLogChatMemoryStore.droppedPrefix(previous, List.of(UserMessage.from("other"))));
+    }
+
+    private SegmentLogChatMemoryStore open() throws IOException {
+        return SegmentLogChatMemoryStore.open(directory, SEGMENT_BYTES, FSYNC_MILLIS);
+    }
+
+    /**
+     * One turn of the session: a question and its answer, keeping the last messages of the window
+     */
+    private static void converse(
+            SegmentLogChatMemoryStore store, Map<String, List<ChatMessage>> expected, String session, int turn) {
+        List<ChatMessage> messages = new ArrayList<>(store.getMessages(session));
+        messages.add(UserMessage.from(session + " asks " + turn));
+        messages.add(AiMessage.from(session + " is answered " + turn));
+        List<ChatMessage> window =
+                List.copyOf(messages.subList(Math.max(0, messages.size() - WINDOW), messages.size()));
+        store.updateMessages(session, window);
+        expected.put(session, window);
+    }
+
+    private static void assertStored(SegmentLogChatMemoryStore store, Map<String, List<ChatMessage>> expected) {
+        expected.forEach((session, messages) -> assertEquals(messages, store.getMessages(session), session));
+        assertEquals(expected.size(), store.stats().sessions());
+    }
+}
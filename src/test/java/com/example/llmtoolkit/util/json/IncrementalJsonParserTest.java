@@ -0,0 +1,168 @@
+package com.example.llmtoolkit.util.json;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The {@link RepairCorpus} fed whole, char by char and in random chunks
+ */
+class IncrementalJsonParserTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * An answer for a record with a {@link com.example.llmtoolkit.core.annotations.StreamedText}
+     * component, as StreamingResponse listens to it
+     */
+    private static final String ANSWER =
+            """
+            ```json
+            {"response": "The Tahoe tows \\"8,400 lbs\\",\\nthe Équinox {less}: \\u2713",
+             'overallCustomerPsychologicalState': 'decisive', howAnswerAccommodatesThat: short answer}
+            ```""";
+
+    private static final String STREAMED_PATH = "/response";
+
+    @Test
+    void buildsTheTreeOfTheRepair() throws Exception {
+        for (String[] entry : RepairCorpus.CORPUS) {
+            JsonNode parsed = IncrementalJsonParser.parse(entry[0]);
+            if (entry[1].equals("\"\"")) {
+                // No container, where the repair answers the empty string
+                assertNull(parsed, entry[0]);
+            } else {
+                assertEquals(MAPPER.readTree(entry[1]), parsed, entry[0]);
+            }
+        }
+    }
+
+    @Test
+    void chunksDoNotChangeTheTreeOrTheEvents() {
+        Random random = new Random(11);
+        for (String[] entry : RepairCorpus.CORPUS) {
+            Recorder whole = Recorder.feed(List.of(entry[0]));
+            assertEquals(whole, Recorder.feed(chunks(entry[0], random, 1)), entry[0]);
+            for (int i = 0; i < 20; i++) {
+                assertEquals(whole, Recorder.feed(chunks(entry[0], random, 8)), entry[0]);
+            }
+        }
+    }
+
+    @Test
+    void streamsTheTextOfAStringWhileItIsRead() throws Exception {
+        Random random = new Random(5);
+        JsonNode expected = MAPPER.readTree(
+                """
+                {"response": "The Tahoe tows \\"8,400 lbs\\",\\nthe Équinox {less}: ✓",
+                 "overallCustomerPsychologicalState": "decisive", "howAnswerAccommodatesThat": "short answer"}""");
+        for (int maxChunk : new int[] {1, 3, 16, ANSWER.length()}) {
+            Recorder recorder = Recorder.feed(chunks(ANSWER, random, maxChunk));
+            assertEquals(expected, recorder.tree);
+            assertEquals(expected.get("response").asText(), recorder.text(STREAMED_PATH));
+            assertNull(recorder.text("/howAnswerAccommodatesThat"), "Unquoted text is not streamed");
+            assertEquals(
+                    List.of(STREAMED_PATH, "/overallCustomerPsychologicalState", "/howAnswerAccommodatesThat", ""),
+                    recorder.valuePaths);
+            assertEquals(expected.get("response"), recorder.values.get(STREAMED_PATH));
+        }
+    }
+
+    @Test
+    void streamedTextArrivesBeforeTheAnswerCloses() {
+        List<String> parts = new ArrayList<>();
+        IncrementalJsonParser parser = new IncrementalJsonParser(new IncrementalJsonParser.Listener() {
+            @Override
+            public void onText(String path, CharSequence text) {
+                parts.add(path + ":" + text);
+            }
+        });
+        parser.feed("{\"response\": \"Hel");
+        assertEquals(List.of("/response:Hel"), parts);
+        assertEquals(MAPPER.createObjectNode(), parser.snapshot(), "The string being read is left out");
+        parser.feed("lo\\");
+        parser.feed("n wor");
+        assertEquals(List.of("/response:Hel", "/response:lo", "/response:\n wor"), parts);
+        parser.feed("ld\", \"next\": [");
+        assertFalse(parser.isComplete());
+        assertEquals("Hello\n world", parser.snapshot().get("response").asText());
+        parser.feed("]} trailing text {\"ignored\": 1}");
+        assertTrue(parser.isComplete());
+        assertEquals(List.of("/response:Hel", "/response:lo", "/response:\n wor", "/response:ld"), parts);
+        assertEquals(2, parser.finish().size());
+    }
+
+    private static List<String> chunks(String input, Random random, int maxChunk) {
+        List<String> chunks = new ArrayList<>();
+        for (int start = 0; start < input.length(); ) {
+            int end = Math.min(input.length(), start + random.nextInt(1, maxChunk + 1));
+            chunks.add(input.substring(start, end));
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * The tree and the listener calls, with the text of each path joined
+     */
+    private static final class Recorder implements IncrementalJsonParser.Listener {
+        final Map<String, StringBuilder> texts = new LinkedHashMap<>();
+        final Map<String, JsonNode> values = new LinkedHashMap<>();
+        final List<String> valuePaths = new ArrayList<>();
+        JsonNode tree;
+
+        static Recorder feed(List<String> chunks) {
+            Recorder recorder = new Recorder();
+            IncrementalJsonParser parser = new IncrementalJsonParser(recorder);
+            chunks.forEach(parser::feed);
+            recorder.tree = parser.finish();
+            return recorder;
+        }
+
+        @Override
+        public void onText(String path, CharSequence text) {
+            texts.computeIfAbsent(path, key -> new StringBuilder()).append(text);
+        }
+
+        @Override
+        public void onValue(String path, JsonNode value) {
+            valuePaths.add(path);
+            values.put(path, value.deepCopy());
+        }
+
+        String text(String path) {
+            StringBuilder text = texts.get(path);
+            return text == null ? null : text.toString();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Recorder recorder
+                    && String.valueOf(texts).equals(String.valueOf(recorder.texts))
+                    && values.equals(recorder.values)
+                    && valuePaths.equals(recorder.valuePaths)
+                    && Objects.equals(tree, recorder.tree);
+        }
+
+        @Override
+        public int hashCode() {
+            return valuePaths.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "texts " + texts + ", values " + valuePaths + ", tree " + tree;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.llmtoolkit.util.json;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The {@link RepairCorpus}, which the char array parser must reproduce, and the mismatched brackets
+ * the former implementation never returned from
+ */
+class JSONRepairTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    record Vehicle(String id, List<String> features) {}
+
+    @Test
+    void repairsTheCorpusLikeTheFormerImplementation() {
+        for (String[] entry : RepairCorpus.CORPUS) {
+            assertEquals(entry[1], JSONRepair.repairJSON(entry[0]), entry[0]);
+        }
+    }
+
+    @Test
+    void tokensHoldTheRepairedJson() throws Exception {
+        for (String[] entry : RepairCorpus.CORPUS) {
+            JsonNode tokens =
+                    MAPPER.readTree(JSONRepair.repairToTokens(entry[0]).asParser());
+            assertEquals(entry[1], MAPPER.writeValueAsString(tokens), entry[0]);
+        }
+    }
+
+    @Test
+    void skipsClosingBracketsOfTheWrongKind() {
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertEquals("{\"a\":[1,2]}", JSONRepair.repairJSON("{\"a\": [1, 2}"));
+            assertEquals("[1,2]", JSONRepair.repairJSON("[1, 2}"));
+            assertEquals("{\"a\":[{\"b\":1}]}", JSONRepair.repairJSON("{\"a\": [{\"b\": 1}}"));
+            assertEquals(
+                    "{\"a\":[1,2]}",
+                    MAPPER.writeValueAsString(MAPPER.readTree(
+                            JSONRepair.repairToTokens("{\"a\": [1, 2}").asParser())));
+        });
+    }
+
+    @Test
+    void repeatedKeyKeepsItsFirstPositionWithTheLastValue() {
+        assertEquals("{\"a\":3,\"b\":2}", JSONRepair.repairJSON("{\"a\": 1, \"b\": 2, \"a\": 3}"));
+        assertEquals(
+                "{\"a\":{\"x\":2},\"b\":[{\"k\":2}]}",
+                JSONRepair.repairJSON("{\"a\": {\"x\": 1, \"x\": 2}, \"b\": [{\"k\": 1, \"k\": 2}]}"));
+    }
+
+    @Test
+    void repeatedKeyBindsTheLastValueFromTokens() throws Exception {
+        Map<?, ?> map = MAPPER.readValue(
+                JSONRepair.repairToTokens("{\"a\": 1, \"b\": 2, \"a\": 3}").asParser(), Map.class);
+        // Integers are written as longs
+        assertEquals(Map.of("a", 3L, "b", 2L), map);
+
+        // A record cannot be bound from an object that repeats one of its components
+        String answer = "{id: v1, features: [AWD], \"id\": \"v2\"";
+        assertEquals(
+                new Vehicle("v2", List.of("AWD")),
+                MAPPER.readValue(JSONRepair.repairToTokens(answer).asParser(), Vehicle.class));
+        assertEquals(
+                "{\"id\":\"v2\",\"features\":[\"AWD\"]}",
+                MAPPER.writeValueAsString(
+                        MAPPER.readTree(JSONRepair.repairToTokens(answer).asParser())));
+    }
+
+    @Test
+    void bindsRepairedTokensIntoRecords() throws Exception {
+        String answer =
+                "```json\n[{'id': 'v1', 'features': ['AWD', 'Heated seats',]}, {\"id\": \"v2\", \"features\": [";
+        List<Vehicle> vehicles = MAPPER.readValue(
+                JSONRepair.repairToTokens(answer).asParser(),
+                MAPPER.getTypeFactory().constructCollectionType(List.class, Vehicle.class));
+        assertEquals(
+                List.of(new Vehicle("v1", List.of("AWD", "Heated seats")), new Vehicle("v2", List.of())), vehicles);
+    }
+}
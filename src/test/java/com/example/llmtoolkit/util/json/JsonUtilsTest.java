@@ -0,0 +1,106 @@
+package com.example.llmtoolkit.util.json;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.example.llmtoolkit.util.json.JsonUtils.ParsePath;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class JsonUtilsTest {
+
+    record Item(String a, int b) {}
+
+    private static final Item ITEM = new Item("x", 1);
+
+    @Test
+    void trimsTextAroundTheValue() {
+        assertEquals("{\"a\": [1, {\"b\": 2}]}", JsonUtils.trimJson("Here it is: {\"a\": [1, {\"b\": 2}]} Done {x}."));
+        assertEquals("[1, 2]", JsonUtils.trimJson("\n  [1, 2]\n"));
+        assertEquals("plain text", JsonUtils.trimJson("  plain text \n"));
+        assertEquals("", JsonUtils.trimJson(" \n"));
+        assertEquals("", JsonUtils.trimJson(null));
+    }
+
+    @Test
+    void takesTheValueOfTheJsonFence() {
+        assertEquals("[1, 2]", JsonUtils.trimJson("[0]\n```json\n[1, 2]\n```\nAnd {\"c\": 3}"));
+        assertEquals("not json", JsonUtils.trimJson("```json\n not json \n```"));
+        // A fence inside a string does not end the value
+        assertEquals("{\"a\": \"```\"}", JsonUtils.trimJson("```json\n{\"a\": \"```\"}\n```"));
+    }
+
+    @Test
+    void truncatedValueRunsToTheLastClosingBracket() {
+        assertEquals("{\"a\": [1, 2", JsonUtils.trimJson("{\"a\": [1, 2"));
+        assertEquals("{\"a\": {\"b\": 1}", JsonUtils.trimJson("{\"a\": {\"b\": 1}, \"c\": [2"));
+        assertEquals("[{\"a\": 1}, [2]]", JsonUtils.trimJson("```json\n[{\"a\": 1}, [2]]"));
+    }
+
+    @Test
+    void bracketsInStringsDoNotCount() {
+        assertEquals("{\"a\": \"x}y\"}", JsonUtils.trimJson("{\"a\": \"x}y\"} and}"));
+        assertEquals("{\"a\": \"\\\"}\"}", JsonUtils.trimJson("{\"a\": \"\\\"}\"} and}"));
+        assertEquals("{'a': 'x}y'}", JsonUtils.trimJson("{'a': 'x}y'} and}"));
+        assertEquals("['x]', 'it\\'s ]']", JsonUtils.trimJson("['x]', 'it\\'s ]'] and]"));
+        assertEquals("{\"a\": \"it's }\"}", JsonUtils.trimJson("{\"a\": \"it's }\"} and}"));
+        // The apostrophe of unquoted text does not open a string
+        assertEquals("{a: don't [stop], b: 1}", JsonUtils.trimJson("{a: don't [stop], b: 1} and}"));
+    }
+
+    @Test
+    void repairsTheTrimmedValue() {
+        assertEquals(Map.of("a", "x}y"), JsonUtils.parseJsonOrYamlObject("Sure: {'a': 'x}y'} and}", Map.class));
+        assertEquals(List.of(1, 2), JsonUtils.parseJsonOrYamlArray("```json\n[1, 2,\n", Integer.class));
+    }
+
+    @Test
+    void jsonIsNotSniffedAsYaml() {
+        assertNull(JsonUtils.yamlPayload("{\"a\": \"x\", \"b\": 1}"));
+        assertNull(JsonUtils.yamlPayload("\n  [{\"a\": \"x\"}]"));
+        assertNull(JsonUtils.yamlPayload("Here you go:\n```json\n{\"a\": \"x\"}\n```"));
+        // Prose before the value, on its first line
+        assertNull(JsonUtils.yamlPayload("The item {\"a\": \"x\", \"b\": 1}"));
+        assertNull(JsonUtils.yamlPayload("Sure, here is the item\n{\"a\": \"x\"}"));
+        assertNull(JsonUtils.yamlPayload("Time 12:30 was {\"a\": \"x\"}"));
+    }
+
+    @Test
+    void yamlIsSniffed() {
+        assertEquals("\na: x\nb: 1\n", JsonUtils.yamlPayload("```yaml\na: x\nb: 1\n```\nMore text"));
+        assertEquals("\na: x\n", JsonUtils.yamlPayload("  ```yml\na: x\n"));
+        assertEquals("a: x\nb: 1", JsonUtils.yamlPayload("a: x\nb: 1"));
+        assertEquals("---\na: x", JsonUtils.yamlPayload("---\na: x"));
+        assertEquals("- a: x\n", JsonUtils.yamlPayload("- a: x\n"));
+        assertEquals("a:\n  - 1", JsonUtils.yamlPayload("a:\n  - 1"));
+        // Prose with a colon reads as a key; the parsers after YAML still get it
+        assertEquals("Here it is: {\"a\": \"x\"}", JsonUtils.yamlPayload("Here it is: {\"a\": \"x\"}"));
+    }
+
+    @Test
+    void countsTheParserThatBoundTheAnswer() {
+        assertParsedBy(ParsePath.JSON, "{\"a\": \"x\", \"b\": 1}");
+        assertParsedBy(ParsePath.JSON, "Here you go:\n```json\n{\"a\": \"x\", \"b\": 1}\n```");
+        assertParsedBy(ParsePath.JSON, "The item {\"a\": \"x\", \"b\": 1}");
+        assertParsedBy(ParsePath.REPAIRED_JSON, "{'a': 'x', 'b': 1,");
+        assertParsedBy(ParsePath.YAML, "```yaml\na: x\nb: 1\n```");
+        assertParsedBy(ParsePath.YAML, "a: x\nb: 1");
+        assertParsedBy(ParsePath.YAML, "---\na: x\nb: 1");
+        // Sniffed as YAML, which fails to bind the prose, then parsed as JSON
+        assertParsedBy(ParsePath.JSON, "Here it is: {\"a\": \"x\", \"b\": 1}");
+
+        Map<ParsePath, Long> before = JsonUtils.parsePathCounts();
+        assertEquals(List.of(ITEM, ITEM), JsonUtils.parseJsonOrYamlArray("- a: x\n  b: 1\n- a: x\n  b: 1", Item.class));
+        assertEquals(1, JsonUtils.parsePathCounts().get(ParsePath.YAML) - before.get(ParsePath.YAML));
+    }
+
+    private static void assertParsedBy(ParsePath path, String answer) {
+        Map<ParsePath, Long> before = JsonUtils.parsePathCounts();
+        assertEquals(ITEM, JsonUtils.parseJsonOrYamlObject(answer, Item.class), answer);
+        Map<ParsePath, Long> after = JsonUtils.parsePathCounts();
+        for (ParsePath other : ParsePath.values()) {
+            assertEquals(other == path ? 1 : 0, after.get(other) - before.get(other), answer + " by " + other);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.llmtoolkit.util.json;
+
+/**
+ * Malformed answers with the JSON {@link JSONRepair} repairs them to
+ */
+final class RepairCorpus {
+
+    static final String[][] CORPUS = {
+        {"{\"a\": 1}", "{\"a\":1}"},
+        {
+            "{\"name\": \"Tahoe\", \"price\": 58200.5, \"awd\": true, \"range\": null}",
+            "{\"name\":\"Tahoe\",\"price\":58200.5,\"awd\":true,\"range\":null}"
+        },
+        {"```json\n{\"a\": [1, 2, 3]}\n```", "{\"a\":[1,2,3]}"},
+        {"```json\n{\"a\": 1}", "{\"a\":1}"},
+        {"{\"a\": 1,}", "{\"a\":1}"},
+        {"[1, 2, 3,]", "[1,2,3]"},
+        {"{\"a\": 1,, \"b\": 2}", "{\"a\":1,\"b\":2}"},
+        {"{'a': 'single quoted'}", "{\"a\":\"single quoted\"}"},
+        {"{a: bare, b: 12}", "{\"a\":\"bare\",\"b\":12}"},
+        {"{\"a\": \"unterminated", "{\"a\":\"unterminated\"}"},
+        {"{\"a\": [1, 2", "{\"a\":[1,2]}"},
+        {"{\"a\": {\"b\": {\"c\": 1", "{\"a\":{\"b\":{\"c\":1}}}"},
+        {"[{\"id\": 1}, {\"id\": 2}", "[{\"id\":1},{\"id\":2}]"},
+        {"{\"a\": TRUE, \"b\": False, \"c\": NULL, \"d\": Null}", "{\"a\":true,\"b\":false,\"c\":null,\"d\":null}"},
+        {"{\"a\": -12, \"b\": 1.5e3, \"c\": .5, \"d\": 1-2}", "{\"a\":-12,\"b\":1500.0,\"c\":0.5,\"d\":\"1-2\"}"},
+        {"{\"a\": 12345678901234567890}", "{\"a\":\"12345678901234567890\"}"},
+        {
+            "{\"a\": \"line\\nbreak\\ttab \\\"quoted\\\" back\\\\slash\"}",
+            "{\"a\":\"line\\nbreak\\ttab \\\"quoted\\\" back\\\\slash\"}"
+        },
+        {"{\"a\": \"été ✓\"}", "{\"a\":\"été ✓\"}"},
+        {"{\"\": 1}", "{\"empty_placeholder\":1}"},
+        {"{\"a\": [1, 2, ...]}", "{\"a\":[1,2]}"},
+        {"[\"x\", ..., \"y\"]", "[\"x\",\"y\"]"},
+        {"Here is the JSON: {\"a\": 1} hope it helps", "{\"a\":1}"},
+        {"{\"a\" 1}", "{\"a\":1}"},
+        {"{\"a\": }", "{\"a\":\"\"}"},
+        {"{\"a\"}", "{\"a\":\"\"}"},
+        {"{\"a\": \"x\" \"b\": \"y\"}", "{\"a\":\"x\",\"b\":\"y\"}"},
+        {"{\"a\": 1}}", "{\"a\":1}"},
+        {"[1, 2]]", "[1,2]"},
+        {"[]", "[]"},
+        {"{}", "{}"},
+        {"[[1, 2], [3, [4, 5]]]", "[[1,2],[3,[4,5]]]"},
+        {"{\"a\": [{\"b\": [1, {\"c\": \"d\"}]}]}", "{\"a\":[{\"b\":[1,{\"c\":\"d\"}]}]}"},
+        {
+            "{\"vehicles\": [{\"id\": \"v1\", \"features\": [\"AWD\", \"Heated seats\"]}, {\"id\": \"v2\", \"features\": []}]}",
+            "{\"vehicles\":[{\"id\":\"v1\",\"features\":[\"AWD\",\"Heated seats\"]},{\"id\":\"v2\",\"features\":[]}]}"
+        },
+        // Without a container the answer is the empty string
+        {"", "\"\""},
+        {"plain text", "\"\""},
+        {"42", "\"\""},
+    };
+
+    private RepairCorpus() {}
+}
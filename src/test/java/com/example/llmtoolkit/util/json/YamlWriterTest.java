@@ -0,0 +1,260 @@
+package com.example.llmtoolkit.util.json;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.Yaml;
+
+/**
+ * {@link YamlWriter} against the SnakeYAML dump of the same maps and lists, as YAML was formatted
+ * before, and against the tree the YAML reads back as.
+ */
+class YamlWriterTest {
+
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+    private static final ObjectMapper YAML_MAPPER = new ObjectMapper(new YAMLFactory());
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    private static final int INDENT = 4;
+    private static final int[] WIDTHS = {10, 20, 40, 80, 120, Integer.MAX_VALUE};
+
+    private static final List<String> AWKWARD_STRINGS = List.of(
+            "",
+            " leading space",
+            "trailing space ",
+            "  ",
+            "key: value",
+            "ends with colon:",
+            "# comment",
+            "not a # comment",
+            "not#comment",
+            "- dash",
+            "? question",
+            "---",
+            "...",
+            "'single'",
+            "\"double\"",
+            "back\\slash",
+            "multi\nline",
+            "trailing break\n",
+            "\nleading break",
+            "two\n\nbreaks",
+            "space \nbefore break",
+            "break\n after",
+            "tab\there",
+            "true",
+            "null",
+            "~",
+            "1.5",
+            "0123",
+            "-12",
+            "[flow]",
+            "{flow}",
+            "a, b",
+            "&anchor",
+            "*alias",
+            "!tag",
+            "|literal",
+            ">folded",
+            "%directive",
+            "@at",
+            "`tick",
+            "été ✓",
+            "emoji 😀",
+            "no\u00A0break",
+            "line\u2028separator",
+            "A long sentence that goes well past the narrow widths, so that the writer has to fold it "
+                    + "on spaces at the configured width like SnakeYAML does.",
+            "A long sentence: with a colon and # hash, which must be quoted and then folded at the width "
+                    + "of the emitter, quotes 'and' all.");
+
+    @Test
+    void writesAwkwardStringsAsSnakeYamlDoes() {
+        for (String text : AWKWARD_STRINGS) {
+            ObjectNode object = NODES.objectNode();
+            object.put("text", text);
+            object.put(text.isEmpty() ? "empty" : text, "as key");
+            object.putArray("list").add(text).addObject().put("nested", text);
+            assertSameAsSnakeYaml(object);
+            assertSameAsSnakeYaml(NODES.arrayNode().add(text));
+        }
+    }
+
+    @Test
+    void writesScalarsAndContainersAsSnakeYamlDoes() {
+        ObjectNode object = NODES.objectNode();
+        object.put("int", 42);
+        object.put("long", 12_345_678_901L);
+        object.put("negative", -7);
+        object.put("double", 58_200.5);
+        object.put("small", 1.0e-7);
+        object.put("large", 3.5e21);
+        object.put("true", true);
+        object.put("false", false);
+        object.putNull("null");
+        object.putObject("emptyObject");
+        object.putArray("emptyArray");
+        object.putArray("nested").addArray().add(1).addArray().add("deep");
+        object.putObject("object")
+                .putObject("inner")
+                .putArray("items")
+                .addObject()
+                .put("a", 1)
+                .put("b", "two");
+        object.put("k".repeat(130), "long key");
+        object.put("multiline\nkey", "value");
+        assertSameAsSnakeYaml(object);
+    }
+
+    @Test
+    void writesRandomTreesAsSnakeYamlDoes() {
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            JsonNode tree = random.nextBoolean() ? randomObject(random, 0) : randomArray(random, 0);
+            assertSameAsSnakeYaml(tree);
+        }
+    }
+
+    @Test
+    void doubleQuotesNonPrintableText() {
+        // SnakeYAML dumps such text as !!binary, which reads back as bytes
+        ObjectNode object = NODES.objectNode();
+        object.put("control", "bell\u0007 and \u0001 and \u001B");
+        object.put("private", "\uFFFE");
+        String yaml = YamlWriter.write(object, INDENT, Integer.MAX_VALUE);
+        assertTrue(yaml.contains("control: \"bell\\a and \\x01 and \\e\""), yaml);
+        for (int width : WIDTHS) {
+            assertReadsBack(object, YamlWriter.write(object, INDENT, width));
+        }
+    }
+
+    @Test
+    void foldsQuotedTextIndentedBeyondTheWidthAsSnakeYamlDoes() {
+        // SnakeYAML folds right after the escaped space that starts a line, which reads back a backslash
+        ObjectNode object = NODES.objectNode();
+        object.putObject("a").putObject("b").putObject("c").put("d", "tab\t and  two  spaces here");
+        String yaml = YamlWriter.write(object, INDENT, 10);
+        assertEquals(snakeYaml(object, 10), yaml);
+        assertTrue(yaml.contains("\\t\\\n                \\\\\n"), yaml);
+    }
+
+    private static void assertSameAsSnakeYaml(JsonNode tree) {
+        for (int width : WIDTHS) {
+            String yaml = YamlWriter.write(tree, INDENT, width);
+            assertEquals(snakeYaml(tree, width), yaml, "width " + width + ", tree " + tree);
+            assertReadsBack(tree, yaml);
+        }
+    }
+
+    private static void assertReadsBack(JsonNode tree, String yaml) {
+        try {
+            // Printing both as JSON evens out the numeric node types of the two parsers
+            assertEquals(
+                    JSON_MAPPER.writeValueAsString(tree),
+                    JSON_MAPPER.writeValueAsString(YAML_MAPPER.readTree(yaml)),
+                    yaml);
+        } catch (Exception e) {
+            throw new AssertionError("Cannot read back:\n" + yaml, e);
+        }
+    }
+
+    private static String snakeYaml(JsonNode tree, int width) {
+        DumperOptions options = new DumperOptions();
+        options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+        options.setDefaultScalarStyle(DumperOptions.ScalarStyle.PLAIN);
+        options.setIndent(INDENT);
+        options.setWidth(width);
+        Object value = tree.isObject()
+                ? JSON_MAPPER.convertValue(tree, LinkedHashMap.class)
+                : JSON_MAPPER.convertValue(tree, List.class);
+        return new Yaml(options).dump(value);
+    }
+
+    private static ObjectNode randomObject(Random random, int depth) {
+        ObjectNode object = NODES.objectNode();
+        int fields = random.nextInt(4);
+        for (int i = 0; i < fields; i++) {
+            String key = random.nextInt(4) == 0 ? randomText(random) : "key" + i;
+            object.set(key, randomNode(random, depth + 1));
+        }
+        return object;
+    }
+
+    private static ArrayNode randomArray(Random random, int depth) {
+        ArrayNode array = NODES.arrayNode();
+        int elements = random.nextInt(4);
+        for (int i = 0; i < elements; i++) {
+            array.add(randomNode(random, depth + 1));
+        }
+        return array;
+    }
+
+    private static JsonNode randomNode(Random random, int depth) {
+        int kind = random.nextInt(depth < 3 ? 8 : 6);
+        return switch (kind) {
+            case 0 -> NODES.numberNode(random.nextInt(2_000) - 1_000);
+            case 1 -> NODES.numberNode(random.nextInt(100_000) / 8.0);
+            case 2 -> NODES.booleanNode(random.nextBoolean());
+            case 3 -> NODES.nullNode();
+            case 4, 5 -> NODES.textNode(randomText(random));
+            case 6 -> randomObject(random, depth);
+            default -> randomArray(random, depth);
+        };
+    }
+
+    private static String randomText(Random random) {
+        String[] fragments = {
+            "word",
+            "longer words here",
+            " ",
+            " ",
+            ":",
+            ": ",
+            "#",
+            " #",
+            "-",
+            "- ",
+            "?",
+            "'",
+            "\"",
+            "\\",
+            "\n",
+            "\t",
+            "é",
+            "✓",
+            "😀",
+            "0",
+            "12",
+            "true",
+            "null",
+            "~",
+            ",",
+            "[",
+            "{",
+            "|",
+            ">",
+            "&",
+            "*",
+            "!",
+            "%",
+            "@"
+        };
+        StringBuilder text = new StringBuilder();
+        int count = random.nextInt(12);
+        for (int i = 0; i < count; i++) {
+            text.append(fragments[random.nextInt(fragments.length)]);
+        }
+        return text.toString();
+    }
+}